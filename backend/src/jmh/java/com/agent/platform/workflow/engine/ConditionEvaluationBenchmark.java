@@ -0,0 +1,70 @@
+package com.agent.platform.workflow.engine;
+
+import com.agent.platform.workflow.engine.nodes.ConditionNodeExecutor;
+import com.agent.platform.workflow.entity.NodeExecution;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 条件节点求值基准（含变量解析）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConditionEvaluationBenchmark {
+
+    @Param({"equals", "greater_than", "contains"})
+    public String operator;
+
+    private ConditionNodeExecutor executor;
+    private ExecutionContext context;
+
+    @Setup
+    public void setup() {
+        Map<String, Object> upstream = new HashMap<>();
+        upstream.put("score", "87.5");
+        upstream.put("text", "the quick brown fox jumps over the lazy dog");
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("upstream_output", upstream);
+
+        Map<String, Object> config = new HashMap<>();
+        config.put("operator", operator);
+        switch (operator) {
+            case "greater_than":
+                config.put("leftValue", "${upstream_output.score}");
+                config.put("rightValue", "60");
+                config.put("valueType", "number");
+                break;
+            case "contains":
+                config.put("leftValue", "${upstream_output.text}");
+                config.put("rightValue", "lazy");
+                config.put("valueType", "string");
+                break;
+            default:
+                config.put("leftValue", "${upstream_output.score}");
+                config.put("rightValue", "87.5");
+                config.put("valueType", "string");
+        }
+
+        NodeExecution nodeExecution = new NodeExecution();
+        nodeExecution.setNodeId("condition");
+        nodeExecution.setNodeType("condition");
+
+        context = new ExecutionContext();
+        context.setNodeExecution(nodeExecution);
+        context.setVariables(variables);
+        context.setNodeConfig(config);
+        executor = new ConditionNodeExecutor();
+    }
+
+    @Benchmark
+    public Map<String, Object> evaluate() throws Exception {
+        return executor.execute(context);
+    }
+}
@@ -0,0 +1,47 @@
+package com.agent.platform.workflow.engine;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ExecutionContext.resolveVariables 基准
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResolveVariablesBenchmark {
+
+    @Param({"0", "1", "5", "20"})
+    public int placeholders;
+
+    private ExecutionContext context;
+    private String template;
+
+    @Setup
+    public void setup() {
+        Map<String, Object> variables = new HashMap<>();
+        StringBuilder builder = new StringBuilder("请根据以下内容回答问题：");
+        for (int i = 0; i < placeholders; i++) {
+            Map<String, Object> output = new HashMap<>();
+            output.put("text", "节点" + i + "的输出内容");
+            variables.put("node" + i + "_output", output);
+            builder.append(" ${node").append(i).append("_output.text}");
+        }
+        builder.append(" 结束。");
+
+        context = new ExecutionContext();
+        context.setVariables(variables);
+        template = builder.toString();
+    }
+
+    @Benchmark
+    public String resolve() {
+        return context.resolveVariables(template);
+    }
+}
@@ -0,0 +1,216 @@
+package com.agent.platform.workflow.engine;
+
+import com.agent.platform.workflow.distributed.WorkflowRunTransport;
+import com.agent.platform.workflow.engine.nodes.ConditionNodeExecutor;
+import com.agent.platform.workflow.engine.nodes.EndNodeExecutor;
+import com.agent.platform.workflow.engine.nodes.StartNodeExecutor;
+import com.agent.platform.workflow.entity.NodeExecution;
+import com.agent.platform.workflow.entity.Workflow;
+import com.agent.platform.workflow.entity.WorkflowExecution;
+import com.agent.platform.workflow.repository.NodeExecutionRepository;
+import com.agent.platform.workflow.repository.WorkflowExecutionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 基准测试公共工具：合成工作流图、内存仓库、桩执行器
+ */
+final class WorkflowBenchmarkSupport {
+
+    private WorkflowBenchmarkSupport() {
+    }
+
+    /**
+     * 生成分层工作流图：start -> 若干层宽度为 width 的桩节点 -> end，
+     * 每个节点依赖上一层相邻的两个节点
+     */
+    static Workflow.WorkflowDefinition layeredGraph(int nodeCount, int width) {
+        List<Workflow.WorkflowNode> nodes = new ArrayList<>();
+        List<Workflow.WorkflowEdge> edges = new ArrayList<>();
+
+        nodes.add(node("start", "start"));
+        int body = Math.max(1, nodeCount - 2);
+        List<String> previous = List.of("start");
+        int created = 0;
+        int layer = 0;
+        while (created < body) {
+            int size = Math.min(width, body - created);
+            List<String> current = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                String id = "n" + layer + "_" + i;
+                nodes.add(node(id, "stub"));
+                current.add(id);
+                edges.add(edge(previous.get(i % previous.size()), id));
+                if (previous.size() > 1) {
+                    edges.add(edge(previous.get((i + 1) % previous.size()), id));
+                }
+            }
+            previous = current;
+            created += size;
+            layer++;
+        }
+
+        nodes.add(node("end", "end"));
+        for (String id : previous) {
+            edges.add(edge(id, "end"));
+        }
+
+        Workflow.WorkflowDefinition definition = new Workflow.WorkflowDefinition();
+        definition.setNodes(nodes);
+        definition.setEdges(edges);
+        return definition;
+    }
+
+    private static Workflow.WorkflowNode node(String id, String type) {
+        Workflow.WorkflowNode node = new Workflow.WorkflowNode();
+        node.setId(id);
+        node.setType(type);
+        node.setName(id);
+        node.setConfig(new HashMap<>());
+        node.setData(new HashMap<>());
+        return node;
+    }
+
+    private static Workflow.WorkflowEdge edge(String source, String target) {
+        Workflow.WorkflowEdge edge = new Workflow.WorkflowEdge();
+        edge.setId(source + "->" + target);
+        edge.setSource(source);
+        edge.setTarget(target);
+        edge.setData(new HashMap<>());
+        return edge;
+    }
+
+    /**
+     * 使用内存仓库和桩执行器构建引擎
+     */
+    static WorkflowEngine newEngine(WorkflowExecutionRepository executionRepository,
+                                    NodeExecutionRepository nodeExecutionRepository) {
+        NodeRegistry registry = new NodeRegistry();
+        registry.register("start", new StartNodeExecutor());
+        registry.register("condition", new ConditionNodeExecutor());
+        registry.register("end", new EndNodeExecutor());
+        registry.register("stub", new StubNodeExecutor());
+
+        WorkflowExecutionScheduler scheduler = new WorkflowExecutionScheduler();
+        WorkflowMetrics metrics = new WorkflowMetrics(new SimpleMeterRegistry(), scheduler, 100);
+
+        return new WorkflowEngine(null, executionRepository, nodeExecutionRepository, registry,
+                new ExecutionContext(), scheduler, new NoTransport(), metrics);
+    }
+
+    static WorkflowExecutionRepository executionRepository() {
+        return inMemoryRepository(WorkflowExecutionRepository.class,
+                WorkflowExecution::getId, WorkflowExecution::setId);
+    }
+
+    static NodeExecutionRepository nodeExecutionRepository() {
+        return inMemoryRepository(NodeExecutionRepository.class,
+                NodeExecution::getId, NodeExecution::setId);
+    }
+
+    /**
+     * 基于动态代理的内存仓库，只支持 save / findById* / count / deleteAll
+     */
+    @SuppressWarnings("unchecked")
+    private static <R, T> R inMemoryRepository(Class<R> repositoryType,
+                                               Function<T, Long> idGetter,
+                                               BiConsumer<T, Long> idSetter) {
+        Map<Long, T> store = new ConcurrentHashMap<>();
+        AtomicLong sequence = new AtomicLong();
+
+        return (R) Proxy.newProxyInstance(repositoryType.getClassLoader(), new Class<?>[]{repositoryType},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.equals("save")) {
+                        T entity = (T) args[0];
+                        if (idGetter.apply(entity) == null) {
+                            idSetter.accept(entity, sequence.incrementAndGet());
+                        }
+                        store.put(idGetter.apply(entity), entity);
+                        return entity;
+                    }
+                    if (name.startsWith("findById") && method.getReturnType() == Optional.class) {
+                        return Optional.ofNullable(store.get((Long) args[0]));
+                    }
+                    if (name.equals("count")) {
+                        return (long) store.size();
+                    }
+                    if (name.equals("deleteAll") && (args == null || args.length == 0)) {
+                        store.clear();
+                        return null;
+                    }
+                    if (name.equals("toString")) {
+                        return "InMemory" + repositoryType.getSimpleName();
+                    }
+                    if (name.equals("hashCode")) {
+                        return System.identityHashCode(proxy);
+                    }
+                    if (name.equals("equals")) {
+                        return proxy == args[0];
+                    }
+                    throw new UnsupportedOperationException(repositoryType.getSimpleName() + "." + name);
+                });
+    }
+
+    /**
+     * 桩执行器：不做外部调用，只产生少量输出
+     */
+    static class StubNodeExecutor implements NodeExecutor {
+
+        @Override
+        public Map<String, Object> execute(ExecutionContext context) {
+            Map<String, Object> output = new HashMap<>();
+            output.put("nodeId", context.getNodeId());
+            output.put("value", 1);
+            return output;
+        }
+
+        @Override
+        public String getNodeType() {
+            return "stub";
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "桩节点";
+        }
+
+        @Override
+        public String getDescription() {
+            return "基准测试用桩节点";
+        }
+    }
+
+    /**
+     * 未启用分布式执行
+     */
+    private static class NoTransport implements ObjectProvider<WorkflowRunTransport> {
+
+        @Override
+        public WorkflowRunTransport getObject(Object... args) {
+            throw new IllegalStateException("未启用分布式执行");
+        }
+
+        @Override
+        public WorkflowRunTransport getIfAvailable() {
+            return null;
+        }
+
+        @Override
+        public WorkflowRunTransport getIfUnique() {
+            return null;
+        }
+
+        @Override
+        public WorkflowRunTransport getObject() {
+            throw new IllegalStateException("未启用分布式执行");
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.agent.platform.workflow.engine;
+
+import com.agent.platform.workflow.entity.Workflow;
+import com.agent.platform.workflow.entity.WorkflowExecution;
+import com.agent.platform.workflow.repository.NodeExecutionRepository;
+import com.agent.platform.workflow.repository.WorkflowExecutionRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端到端执行基准：桩执行器 + 内存仓库，测量引擎自身的调度与持久化调用开销
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WorkflowEndToEndBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int nodes;
+
+    private WorkflowEngine engine;
+    private WorkflowExecutionRepository executionRepository;
+    private NodeExecutionRepository nodeExecutionRepository;
+    private Workflow workflow;
+
+    @Setup
+    public void setup() {
+        executionRepository = WorkflowBenchmarkSupport.executionRepository();
+        nodeExecutionRepository = WorkflowBenchmarkSupport.nodeExecutionRepository();
+        engine = WorkflowBenchmarkSupport.newEngine(executionRepository, nodeExecutionRepository);
+
+        workflow = new Workflow();
+        workflow.setId(1L);
+        workflow.setVersion(1);
+        workflow.setDefinition(WorkflowBenchmarkSupport.layeredGraph(nodes, 10));
+    }
+
+    @TearDown(Level.Iteration)
+    public void clear() {
+        executionRepository.deleteAll();
+        nodeExecutionRepository.deleteAll();
+    }
+
+    @Benchmark
+    public WorkflowExecution run() {
+        Map<String, Object> context = new HashMap<>();
+        context.put("variables", new HashMap<String, Object>());
+        context.put("inputData", new HashMap<String, Object>());
+
+        WorkflowExecution execution = new WorkflowExecution();
+        execution.setWorkflow(workflow);
+        execution.setWorkflowVersion(workflow.getVersion());
+        execution.setStatus(WorkflowExecution.ExecutionStatus.RUNNING);
+        execution.setContext(context);
+        executionRepository.save(execution);
+
+        WorkflowExecution result = engine.runQueuedExecution(execution.getId());
+        if (result.getStatus() != WorkflowExecution.ExecutionStatus.COMPLETED) {
+            throw new IllegalStateException("执行未完成: " + result.getErrorMessage());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,47 @@
+package com.agent.platform.workflow.engine;
+
+import com.agent.platform.workflow.entity.Workflow;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 执行计划构建与遍历基准：依赖图构建，以及按引擎方式为每个节点查找下游节点
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WorkflowPlanBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int nodes;
+
+    private WorkflowEngine engine;
+    private Workflow.WorkflowDefinition definition;
+
+    @Setup
+    public void setup() {
+        engine = WorkflowBenchmarkSupport.newEngine(WorkflowBenchmarkSupport.executionRepository(),
+                WorkflowBenchmarkSupport.nodeExecutionRepository());
+        definition = WorkflowBenchmarkSupport.layeredGraph(nodes, 10);
+    }
+
+    @Benchmark
+    public Map<String, List<String>> buildPlan() {
+        return engine.buildDependencyGraph(definition.getNodes(), definition.getEdges());
+    }
+
+    @Benchmark
+    public void traversePlan(Blackhole blackhole) {
+        List<Workflow.WorkflowEdge> edges = definition.getEdges();
+        for (Workflow.WorkflowNode node : definition.getNodes()) {
+            blackhole.consume(engine.getNextNodes(node.getId(), edges));
+        }
+    }
+}
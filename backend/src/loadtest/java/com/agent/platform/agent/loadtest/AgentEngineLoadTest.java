@@ -0,0 +1,119 @@
+package com.agent.platform.agent.loadtest;
+
+import com.agent.platform.AgentPlatformApplication;
+import com.agent.platform.config.LangChain4jConfig;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * 智能体引擎压测入口
+ * 以 loadtest 配置启动完整的应用上下文（内存 H2，不连接 Redis、RabbitMQ、Chroma 和 OpenAI），
+ * 由 LoadGenerator 按配置的请求组合持续提交任务和消息，结束后输出吞吐量和延迟分布。
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@EnableJpaAuditing
+@EnableAsync
+@ComponentScan(basePackages = "com.agent.platform", excludeFilters = @ComponentScan.Filter(
+        type = FilterType.ASSIGNABLE_TYPE, classes = {AgentPlatformApplication.class, LangChain4jConfig.class}))
+public class AgentEngineLoadTest {
+
+    public static void main(String[] args) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(AgentEngineLoadTest.class)
+                .profiles("loadtest")
+                .run(args);
+
+        int result;
+        try {
+            result = context.getBean(LoadGenerator.class).run();
+        } catch (Exception e) {
+            System.err.println("压测失败: " + e.getMessage());
+            e.printStackTrace();
+            result = 1;
+        }
+        int exitCode = result;
+        System.exit(SpringApplication.exit(context, () -> exitCode));
+    }
+
+    /**
+     * 桩对话模型（引擎处理由桩处理策略接管，此模型只用于满足依赖）
+     */
+    @Bean
+    public ChatLanguageModel chatLanguageModel() {
+        return messages -> Response.from(AiMessage.from("loadtest"));
+    }
+
+    /**
+     * 桩向量模型，返回零向量
+     */
+    @Bean
+    public EmbeddingModel embeddingModel() {
+        return segments -> Response.from(segments.stream()
+                .map(segment -> Embedding.from(new float[8]))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * 空向量存储，替代启动时即连接 Chroma 的存储
+     */
+    @Bean
+    public EmbeddingStore<TextSegment> embeddingStore() {
+        return new NoopEmbeddingStore();
+    }
+
+    private static class NoopEmbeddingStore implements EmbeddingStore<TextSegment> {
+
+        @Override
+        public String add(Embedding embedding) {
+            return UUID.randomUUID().toString();
+        }
+
+        @Override
+        public void add(String id, Embedding embedding) {
+        }
+
+        @Override
+        public String add(Embedding embedding, TextSegment segment) {
+            return add(embedding);
+        }
+
+        @Override
+        public List<String> addAll(List<Embedding> embeddings) {
+            List<String> ids = new ArrayList<>();
+            embeddings.forEach(embedding -> ids.add(add(embedding)));
+            return ids;
+        }
+
+        @Override
+        public List<String> addAll(List<Embedding> embeddings, List<TextSegment> segments) {
+            return addAll(embeddings);
+        }
+
+        @Override
+        public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+            return new EmbeddingSearchResult<>(new ArrayList<>());
+        }
+    }
+}
@@ -0,0 +1,473 @@
+package com.agent.platform.agent.loadtest;
+
+import com.agent.platform.agent.engine.AgentEngine;
+import com.agent.platform.agent.engine.AgentProcessor;
+import com.agent.platform.agent.engine.AgentTypeProcessor;
+import com.agent.platform.agent.engine.MessageRejectedException;
+import com.agent.platform.agent.engine.TaskFinishedEvent;
+import com.agent.platform.agent.engine.TaskRejectedException;
+import com.agent.platform.agent.entity.AgentDefinition;
+import com.agent.platform.agent.entity.Message;
+import com.agent.platform.agent.entity.Task;
+import com.agent.platform.agent.service.AgentDefinitionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 压测发压器
+ * 若干发压线程按请求组合的权重随机提交任务（AgentEngine.submitTaskToAgent）和协作查询消息（sendMessageToAgent）。
+ * 指定目标速率时为开环发压，延迟从计划提交时间算起（发压线程被阻塞的时间也计入，避免协调遗漏）；
+ * 速率为 0 时每个发压线程尽快提交，队列已满被拒绝时短暂退避。
+ * 分发延迟：提交 -> 桩处理器开始处理；
+ * 端到端延迟：任务为提交 -> 任务结束事件（状态已提交），消息为发送 -> 桩处理器处理完成。
+ * 预热期间提交的请求不计入统计。
+ */
+@Component
+public class LoadGenerator {
+
+    private static final String INPUT_PREFIX = "loadtest:";
+
+    private static final String MESSAGE = "MESSAGE";
+
+    private static final String TOTAL = "合计";
+
+    @Autowired
+    private AgentEngine agentEngine;
+
+    @Autowired
+    private AgentProcessor agentProcessor;
+
+    @Autowired
+    private AgentDefinitionService agentDefinitionService;
+
+    @Value("${loadtest.instances:8}")
+    private int instanceCount;
+
+    @Value("${loadtest.agent-type:AGENT}")
+    private AgentDefinition.AgentType agentType;
+
+    @Value("${loadtest.producers:8}")
+    private int producers;
+
+    // 目标总速率（次/秒），0 表示不限速
+    @Value("${loadtest.rate:2000}")
+    private double rate;
+
+    @Value("${loadtest.warmup-ms:5000}")
+    private long warmupMs;
+
+    @Value("${loadtest.duration-ms:30000}")
+    private long durationMs;
+
+    @Value("${loadtest.drain-timeout-ms:60000}")
+    private long drainTimeoutMs;
+
+    @Value("${loadtest.mix:TEXT_PROCESSING=50,DATA_ANALYSIS=15,DECISION_MAKING=10,MESSAGE=25}")
+    private String mix;
+
+    @Value("${loadtest.stub-latency-ms:5}")
+    private long stubLatencyMs;
+
+    // 压测期间屏蔽引擎的标准输出
+    @Value("${loadtest.quiet:true}")
+    private boolean quiet;
+
+    // 按请求类型的统计，最后一项为合计
+    private final Map<String, KindStats> stats = new LinkedHashMap<>();
+
+    // 请求类型及累计权重，用于按权重随机选择
+    private final List<String> kinds = new ArrayList<>();
+    private final List<Integer> cumulativeWeights = new ArrayList<>();
+
+    // 桩处理器尚未处理完的请求
+    private final Map<Long, Op> inflight = new ConcurrentHashMap<>();
+
+    // 任务ID -> 提交的请求与结束事件的配对（结束事件可能先于提交返回到达）
+    private final Map<Long, TaskSlot> taskSlots = new ConcurrentHashMap<>();
+
+    private final AtomicLong opSequence = new AtomicLong();
+
+    // 已提交未结束的请求数（含预热期）
+    private final AtomicLong outstanding = new AtomicLong();
+
+    // 最后一个计入统计的请求结束时间
+    private final AtomicLong lastCompletedNanos = new AtomicLong();
+
+    private volatile long measureStartNanos = Long.MAX_VALUE;
+
+    /**
+     * 执行压测并输出报告，全部请求在等待时间内结束时返回 0
+     */
+    public int run() throws InterruptedException {
+        if (instanceCount < 1 || producers < 1 || durationMs <= 0) {
+            throw new IllegalArgumentException("实例数、发压线程数和统计时长必须大于0");
+        }
+        parseMix();
+
+        // 所有智能体类型都使用桩处理策略
+        StubAgentTypeProcessor stub = new StubAgentTypeProcessor(this, stubLatencyMs);
+        for (AgentDefinition.AgentType type : AgentDefinition.AgentType.values()) {
+            agentProcessor.registerProcessor(type, stub);
+        }
+        List<Long> instanceIds = createInstances();
+        agentEngine.startEngine();
+
+        PrintStream out = System.out;
+        if (quiet) {
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        }
+        try {
+            out.println("开始压测: " + instanceCount + " 个实例, " + producers + " 个发压线程, 目标速率 "
+                    + (rate > 0 ? rate + "/s" : "不限") + ", 预热 " + warmupMs + "ms, 统计 " + durationMs + "ms");
+
+            long startNanos = System.nanoTime();
+            measureStartNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(warmupMs);
+            long endNanos = measureStartNanos + TimeUnit.MILLISECONDS.toNanos(durationMs);
+
+            AtomicInteger threadIndex = new AtomicInteger();
+            ExecutorService pool = Executors.newFixedThreadPool(producers, r -> {
+                Thread thread = new Thread(r, "loadtest-producer-" + threadIndex.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+            for (int i = 0; i < producers; i++) {
+                int index = i;
+                pool.execute(() -> produce(index, instanceIds, startNanos, endNanos));
+            }
+            pool.shutdown();
+            if (!pool.awaitTermination(warmupMs + durationMs + drainTimeoutMs, TimeUnit.MILLISECONDS)) {
+                pool.shutdownNow();
+            }
+
+            boolean drained = awaitDrained();
+            report(out, drained);
+            return drained ? 0 : 1;
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    /**
+     * 桩处理器开始处理：记录分发延迟
+     */
+    void onProcessingStarted(String input) {
+        Op op = findOp(input);
+        if (op != null && op.dispatched.compareAndSet(false, true) && op.measured) {
+            long latency = System.nanoTime() - op.issuedNanos;
+            stats.get(op.kind).dispatch.record(latency);
+            stats.get(TOTAL).dispatch.record(latency);
+        }
+    }
+
+    /**
+     * 桩处理器处理完成：消息在此结束，任务等待结束事件
+     */
+    void onProcessingFinished(AgentTypeProcessor.RequestKind kind, String input) {
+        Op op = findOp(input);
+        if (op == null) {
+            return;
+        }
+        inflight.remove(op.id);
+        if (kind == AgentTypeProcessor.RequestKind.COLLABORATION) {
+            complete(op, System.nanoTime(), true);
+        }
+    }
+
+    /**
+     * 任务结束（事务提交后执行）
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskFinished(TaskFinishedEvent event) {
+        pairTask(event.getTaskId(), null, System.nanoTime(), event.getStatus() == Task.TaskStatus.COMPLETED);
+    }
+
+    private void produce(int index, List<Long> instanceIds, long startNanos, long endNanos) {
+        Random random = ThreadLocalRandom.current();
+        // 每个发压线程承担 1/producers 的速率，起始时间错开
+        long intervalNanos = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) * producers / rate) : 0;
+        long next = startNanos + intervalNanos * index / producers;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                long issuedNanos;
+                if (intervalNanos > 0) {
+                    if (next >= endNanos) {
+                        break;
+                    }
+                    long waitNanos = next - System.nanoTime();
+                    if (waitNanos > 0) {
+                        LockSupport.parkNanos(waitNanos);
+                    }
+                    issuedNanos = next;
+                    next += intervalNanos;
+                } else {
+                    issuedNanos = System.nanoTime();
+                    if (issuedNanos >= endNanos) {
+                        break;
+                    }
+                }
+                if (!submit(pickKind(random), instanceIds, random, issuedNanos) && intervalNanos == 0) {
+                    // 不限速时被拒绝，退避后再提交
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("发压线程异常: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 提交一个请求，被拒绝或失败时返回 false
+     */
+    private boolean submit(String kind, List<Long> instanceIds, Random random, long issuedNanos) {
+        Op op = new Op(opSequence.incrementAndGet(), kind, issuedNanos, issuedNanos >= measureStartNanos);
+        KindStats kindStats = stats.get(kind);
+        inflight.put(op.id, op);
+        outstanding.incrementAndGet();
+        try {
+            Long instanceId = instanceIds.get(random.nextInt(instanceIds.size()));
+            if (MESSAGE.equals(kind)) {
+                Long senderId = instanceIds.get(random.nextInt(instanceIds.size()));
+                agentEngine.sendMessageToAgent(senderId, instanceId, INPUT_PREFIX + op.id,
+                        Message.MessageType.QUERY.name());
+            } else {
+                Task task = agentEngine.submitTaskToAgent(instanceId, kind, INPUT_PREFIX + op.id, new HashMap<>());
+                pairTask(task.getId(), op, 0, false);
+            }
+            count(op, kindStats.submitted);
+            return true;
+        } catch (TaskRejectedException | MessageRejectedException e) {
+            abandon(op);
+            count(op, kindStats.rejected);
+            return false;
+        } catch (RuntimeException e) {
+            abandon(op);
+            count(op, kindStats.failed);
+            return false;
+        }
+    }
+
+    /**
+     * 配对任务的提交和结束事件，两者都到达后结束请求
+     */
+    private void pairTask(Long taskId, Op op, long finishedNanos, boolean succeeded) {
+        taskSlots.compute(taskId, (id, slot) -> {
+            TaskSlot current = slot != null ? slot : new TaskSlot();
+            if (op != null) {
+                current.op = op;
+            } else {
+                current.finishedNanos = finishedNanos;
+                current.succeeded = succeeded;
+            }
+            if (current.op == null || current.finishedNanos == 0) {
+                return current;
+            }
+            complete(current.op, current.finishedNanos, current.succeeded);
+            return null;
+        });
+    }
+
+    private void complete(Op op, long finishedNanos, boolean succeeded) {
+        if (op.measured) {
+            KindStats kindStats = stats.get(op.kind);
+            if (succeeded) {
+                long latency = finishedNanos - op.issuedNanos;
+                kindStats.endToEnd.record(latency);
+                stats.get(TOTAL).endToEnd.record(latency);
+                count(op, kindStats.completed);
+            } else {
+                count(op, kindStats.failed);
+            }
+            lastCompletedNanos.accumulateAndGet(finishedNanos, Math::max);
+        }
+        outstanding.decrementAndGet();
+    }
+
+    private void abandon(Op op) {
+        inflight.remove(op.id);
+        outstanding.decrementAndGet();
+    }
+
+    private void count(Op op, AtomicLong counter) {
+        if (op.measured) {
+            counter.incrementAndGet();
+        }
+    }
+
+    private Op findOp(String input) {
+        if (input == null || !input.startsWith(INPUT_PREFIX)) {
+            return null;
+        }
+        try {
+            return inflight.get(Long.parseLong(input.substring(INPUT_PREFIX.length())));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private boolean awaitDrained() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + drainTimeoutMs;
+        while (outstanding.get() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        return outstanding.get() <= 0;
+    }
+
+    private List<Long> createInstances() {
+        AgentDefinition definition = new AgentDefinition();
+        definition.setName("loadtest-" + System.currentTimeMillis());
+        definition.setDescription("压测智能体");
+        definition.setType(agentType);
+        AgentDefinition created = agentDefinitionService.createAgentDefinition(definition);
+
+        List<Long> instanceIds = new ArrayList<>();
+        for (int i = 0; i < instanceCount; i++) {
+            instanceIds.add(agentEngine.createAndStartAgentInstance(created.getId(), 1L, null).getId());
+        }
+        return instanceIds;
+    }
+
+    /**
+     * 解析请求组合，如 TEXT_PROCESSING=50,MESSAGE=25
+     */
+    private void parseMix() {
+        int total = 0;
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("请求组合格式错误: " + entry);
+            }
+            String kind = parts[0].trim().toUpperCase();
+            // 协作任务需要指定参与者，不参与压测
+            if (!MESSAGE.equals(kind) && !isTaskKind(kind)) {
+                throw new IllegalArgumentException("不支持的请求类型: " + kind);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight <= 0) {
+                continue;
+            }
+            total += weight;
+            kinds.add(kind);
+            cumulativeWeights.add(total);
+            stats.put(kind, new KindStats());
+        }
+        if (kinds.isEmpty()) {
+            throw new IllegalArgumentException("请求组合为空: " + mix);
+        }
+        stats.put(TOTAL, new KindStats());
+    }
+
+    private static boolean isTaskKind(String kind) {
+        for (Task.TaskSubType subType : Task.TaskSubType.values()) {
+            if (subType != Task.TaskSubType.COLLABORATIVE && subType.name().equals(kind)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String pickKind(Random random) {
+        int value = random.nextInt(cumulativeWeights.get(cumulativeWeights.size() - 1));
+        for (int i = 0; i < kinds.size(); i++) {
+            if (value < cumulativeWeights.get(i)) {
+                return kinds.get(i);
+            }
+        }
+        return kinds.get(kinds.size() - 1);
+    }
+
+    private void report(PrintStream out, boolean drained) {
+        KindStats total = stats.get(TOTAL);
+        stats.forEach((kind, kindStats) -> {
+            if (kindStats != total) {
+                total.submitted.addAndGet(kindStats.submitted.get());
+                total.rejected.addAndGet(kindStats.rejected.get());
+                total.completed.addAndGet(kindStats.completed.get());
+                total.failed.addAndGet(kindStats.failed.get());
+            }
+        });
+
+        double measuredSeconds = durationMs / 1000.0;
+        long lastCompleted = lastCompletedNanos.get();
+        double completionSeconds = lastCompleted > measureStartNanos
+                ? (lastCompleted - measureStartNanos) / 1_000_000_000.0 : measuredSeconds;
+
+        out.println();
+        out.println("==== 智能体引擎压测结果 ====");
+        out.println("请求组合: " + mix + ", 桩处理耗时: " + stubLatencyMs + "ms");
+        out.printf("提交 %d, 完成 %d, 失败 %d, 拒绝 %d%s%n", total.submitted.get(), total.completed.get(),
+                total.failed.get(), total.rejected.get(), drained ? "" : ", 等待超时仍有 " + outstanding.get() + " 个请求未结束");
+        out.printf("吞吐量: 提交 %.1f/s, 完成 %.1f/s%n", total.submitted.get() / measuredSeconds,
+                total.completed.get() / completionSeconds);
+        out.println();
+        out.printf("%-16s %9s | %-40s | %-40s%n", "类型", "完成", "分发延迟(ms) p50 / p99 / p999 / max",
+                "端到端延迟(ms) p50 / p99 / p999 / max");
+        stats.forEach((kind, kindStats) -> out.printf("%-16s %9d | %s | %s%n", kind, kindStats.completed.get(),
+                format(kindStats.dispatch), format(kindStats.endToEnd)));
+    }
+
+    private static String format(LatencyRecorder recorder) {
+        return String.format("%9.2f %9.2f %9.2f %9.2f", recorder.getPercentileMs(50), recorder.getPercentileMs(99),
+                recorder.getPercentileMs(99.9), recorder.getMaxMs());
+    }
+
+    /**
+     * 一次提交的请求
+     */
+    private static class Op {
+        private final long id;
+        private final String kind;
+        // 计划提交时间（开环）或实际提交时间（不限速）
+        private final long issuedNanos;
+        // 预热结束后提交的请求才计入统计
+        private final boolean measured;
+        private final AtomicBoolean dispatched = new AtomicBoolean();
+
+        Op(long id, String kind, long issuedNanos, boolean measured) {
+            this.id = id;
+            this.kind = kind;
+            this.issuedNanos = issuedNanos;
+            this.measured = measured;
+        }
+    }
+
+    /**
+     * 任务提交与结束事件的配对
+     */
+    private static class TaskSlot {
+        private Op op;
+        private long finishedNanos;
+        private boolean succeeded;
+    }
+
+    /**
+     * 按请求类型的计数和延迟
+     */
+    private static class KindStats {
+        private final AtomicLong submitted = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final LatencyRecorder dispatch = new LatencyRecorder();
+        private final LatencyRecorder endToEnd = new LatencyRecorder();
+    }
+}
@@ -0,0 +1,34 @@
+package com.agent.platform.agent.loadtest;
+
+import com.agent.platform.agent.engine.AgentTypeProcessor;
+import com.agent.platform.agent.entity.AgentInstance;
+
+/**
+ * 桩处理策略：固定耗时后返回，不调用大模型
+ * 开始和结束时回调压测器，用于记录分发延迟和消息的端到端延迟
+ */
+final class StubAgentTypeProcessor implements AgentTypeProcessor {
+
+    private final LoadGenerator generator;
+
+    private final long latencyMs;
+
+    StubAgentTypeProcessor(LoadGenerator generator, long latencyMs) {
+        this.generator = generator;
+        this.latencyMs = latencyMs;
+    }
+
+    @Override
+    public String process(AgentInstance agentInstance, AgentRequest request) {
+        generator.onProcessingStarted(request.getInput());
+        try {
+            if (latencyMs > 0) {
+                Thread.sleep(latencyMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        generator.onProcessingFinished(request.getKind(), request.getInput());
+        return "stub:" + request.getKind();
+    }
+}
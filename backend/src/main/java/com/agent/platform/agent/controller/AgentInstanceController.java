@@ -1,5 +1,6 @@
 package com.agent.platform.agent.controller;
 
+import com.agent.platform.agent.engine.ExpiredInstanceCleaner;
 import com.agent.platform.agent.entity.AgentInstance;
 import com.agent.platform.agent.service.AgentInstanceService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,6 +18,9 @@ public class AgentInstanceController {
     @Autowired
     private AgentInstanceService agentInstanceService;
 
+    @Autowired
+    private ExpiredInstanceCleaner expiredInstanceCleaner;
+
     /**
      * 创建智能体实例
      */
@@ -62,4 +66,33 @@ public class AgentInstanceController {
             return ResponseEntity.badRequest().build();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 上报智能体实例心跳
+     */
+    @PostMapping("/{id}/heartbeat")
+    public ResponseEntity<Void> heartbeat(@PathVariable Long id) {
+        try {
+            agentInstanceService.updateLastActiveTime(id);
+            return ResponseEntity.accepted().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * 检查智能体实例是否活跃
+     */
+    @GetMapping("/{id}/active")
+    public ResponseEntity<Boolean> isInstanceActive(@PathVariable Long id) {
+        return ResponseEntity.ok(agentInstanceService.isInstanceActive(id));
+    }
+
+    /**
+     * 立即清理过期实例（连同其任务和消息）
+     */
+    @PostMapping("/cleanup")
+    public ResponseEntity<AgentInstanceService.CleanupResult> cleanupExpiredInstances() {
+        return ResponseEntity.ok(expiredInstanceCleaner.cleanup());
+    }
+}
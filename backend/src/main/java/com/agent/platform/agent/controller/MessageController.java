@@ -2,11 +2,18 @@ package com.agent.platform.agent.controller;
 
 import com.agent.platform.agent.entity.Message;
 import com.agent.platform.agent.service.MessageService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -20,6 +27,9 @@ public class MessageController {
     @Autowired
     private MessageService messageService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * 发送消息
      */
@@ -59,4 +69,82 @@ public class MessageController {
         List<Message> messages = messageService.getReceiversMessages(receiverId);
         return ResponseEntity.ok(messages);
     }
-}
\ No newline at end of file
+
+    /**
+     * 键集分页获取接收方的收件箱
+     */
+    @GetMapping("/receiver/{receiverId}/inbox")
+    public ResponseEntity<MessageService.MessagePage> getInboxPage(@PathVariable Long receiverId,
+                                                                   @RequestParam(required = false) String cursor,
+                                                                   @RequestParam(defaultValue = "20") int size) {
+        try {
+            return ResponseEntity.ok(messageService.getInboxPage(receiverId, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * 键集分页获取两个智能体之间的对话
+     */
+    @GetMapping("/conversation")
+    public ResponseEntity<MessageService.MessagePage> getConversationPage(@RequestParam Long agent1Id,
+                                                                          @RequestParam Long agent2Id,
+                                                                          @RequestParam(required = false) String cursor,
+                                                                          @RequestParam(defaultValue = "20") int size) {
+        try {
+            return ResponseEntity.ok(messageService.getConversationPage(agent1Id, agent2Id, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * 流式导出两个智能体之间的完整对话（每行一条 JSON）
+     */
+    @GetMapping(value = "/conversation/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportConversation(@RequestParam Long agent1Id,
+                                                                    @RequestParam Long agent2Id) {
+        StreamingResponseBody body = outputStream -> messageService.exportConversation(agent1Id, agent2Id, message -> {
+            try {
+                // 不能直接 writeValue(outputStream)，否则会关闭响应流
+                outputStream.write(objectMapper.writeValueAsBytes(toExportRow(message)));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=conversation-" + Message.conversationKey(agent1Id, agent2Id).replace(':', '-') + ".ndjson")
+                .body(body);
+    }
+
+    /**
+     * 获取最新的消息
+     */
+    @GetMapping("/latest")
+    public ResponseEntity<List<Message>> getLatestMessages(@RequestParam(defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(messageService.getLatestMessages(limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * 导出行只包含标量字段，避免序列化延迟加载的关联对象
+     */
+    private static Map<String, Object> toExportRow(Message message) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", message.getId());
+        row.put("senderId", message.getSenderId());
+        row.put("receiverId", message.getReceiverId());
+        row.put("taskId", message.getTask() != null ? message.getTask().getId() : null);
+        row.put("type", message.getMessageType());
+        row.put("status", message.getStatus());
+        row.put("content", message.getContent());
+        row.put("sendTime", message.getSendTime() != null ? message.getSendTime().toString() : null);
+        return row;
+    }
+}
@@ -1,8 +1,16 @@
 package com.agent.platform.agent.controller;
 
+import com.agent.platform.agent.engine.AgentEngine;
+import com.agent.platform.agent.engine.AgentTaskExecutor;
+import com.agent.platform.agent.engine.TaskBulkheadExecutor;
+import com.agent.platform.agent.engine.TaskDispatcher;
+import com.agent.platform.agent.engine.TaskRejectedException;
+import com.agent.platform.agent.engine.TaskRetryScheduler;
 import com.agent.platform.agent.entity.Task;
 import com.agent.platform.agent.service.TaskService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -20,6 +28,18 @@ public class TaskController {
     @Autowired
     private TaskService taskService;
 
+    @Autowired
+    private TaskDispatcher taskDispatcher;
+
+    @Autowired
+    private AgentTaskExecutor agentTaskExecutor;
+
+    @Autowired
+    private TaskRetryScheduler retryScheduler;
+
+    @Autowired
+    private AgentEngine agentEngine;
+
     /**
      * 创建任务
      */
@@ -33,6 +53,21 @@ public class TaskController {
         }
     }
 
+    /**
+     * 提交任务图（顺序或并行父任务及其子任务），队列已满时返回429
+     */
+    @PostMapping("/graph")
+    public ResponseEntity<Task> submitTaskGraph(@RequestBody TaskGraphRequest request) {
+        try {
+            Task parent = agentEngine.submitTaskGraph(request.getAgentInstanceId(), request.getName(),
+                    request.getType(), request.getSubTasks(),
+                    request.getPriority() != null ? request.getPriority() : 5);
+            return ResponseEntity.ok(parent);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     /**
      * 根据ID获取任务
      */
@@ -106,4 +141,70 @@ public class TaskController {
             return ResponseEntity.notFound().build();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 立即重试失败任务（包括死信任务的手动重放）
+     */
+    @PostMapping("/{id}/retry")
+    public ResponseEntity<Task> retryTask(@PathVariable Long id) {
+        try {
+            Task task = retryScheduler.retryNow(id);
+            return ResponseEntity.ok(task);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        } catch (TaskRejectedException e) {
+            throw e;
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * 分页获取死信任务
+     */
+    @GetMapping("/dead-letters")
+    public ResponseEntity<Page<Task>> getDeadLetterTasks(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(taskService.getDeadLetterTasks(PageRequest.of(page, size)));
+    }
+
+    /**
+     * 获取任务分发分片统计
+     */
+    @GetMapping("/dispatcher/stats")
+    public ResponseEntity<List<TaskDispatcher.ShardStats>> getDispatcherStats() {
+        return ResponseEntity.ok(taskDispatcher.getShardStats());
+    }
+
+    /**
+     * 获取任务执行舱壁统计
+     */
+    @GetMapping("/executor/stats")
+    public ResponseEntity<List<TaskBulkheadExecutor.BulkheadStats>> getExecutorStats() {
+        return ResponseEntity.ok(agentTaskExecutor.getExecutorStats());
+    }
+
+    /**
+     * 任务图提交请求
+     */
+    public static class TaskGraphRequest {
+        private Long agentInstanceId;
+        private String name;
+        private Task.TaskType type;
+        private Integer priority;
+        private List<Task> subTasks;
+
+        // Getters and Setters
+        public Long getAgentInstanceId() { return agentInstanceId; }
+        public void setAgentInstanceId(Long agentInstanceId) { this.agentInstanceId = agentInstanceId; }
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+        public Task.TaskType getType() { return type; }
+        public void setType(Task.TaskType type) { this.type = type; }
+        public Integer getPriority() { return priority; }
+        public void setPriority(Integer priority) { this.priority = priority; }
+        public List<Task> getSubTasks() { return subTasks; }
+        public void setSubTasks(List<Task> subTasks) { this.subTasks = subTasks; }
+    }
+}
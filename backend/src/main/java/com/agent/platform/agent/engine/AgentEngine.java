@@ -11,12 +11,9 @@ import com.agent.platform.agent.service.MessageService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 
 /**
  * 智能体引擎 - 核心调度和协作引擎
@@ -42,14 +39,17 @@ public class AgentEngine {
     @Autowired
     private MessageRouter messageRouter;
 
-    // 线程池管理
-    private final ExecutorService executorService = Executors.newCachedThreadPool();
-    
-    // 活跃实例缓存
-    private final Map<Long, AgentInstance> activeInstances = new ConcurrentHashMap<>();
+    // 任务执行器（按任务类型隔离的有界线程池）
+    @Autowired
+    private AgentTaskExecutor agentTaskExecutor;
     
-    // 任务执行状态跟踪
-    private final Map<Long, Future<?>> runningTasks = new ConcurrentHashMap<>();
+    // 实例状态注册表
+    @Autowired
+    private AgentInstanceRegistry instanceRegistry;
+
+    // 统计快照
+    @Autowired
+    private AgentStatsSnapshot statsSnapshot;
 
     /**
      * 启动智能体引擎
@@ -58,8 +58,9 @@ public class AgentEngine {
         // 加载所有启用的智能体定义
         List<AgentDefinition> enabledDefinitions = agentDefinitionService.getEnabledAgentDefinitions();
         
-        // 初始化消息路由
+        // 初始化并启动消息路由
         messageRouter.initialize();
+        messageRouter.start();
         
         // 启动任务分发器
         taskDispatcher.start();
@@ -71,24 +72,20 @@ public class AgentEngine {
      * 停止智能体引擎
      */
     public void stopEngine() {
-        // 停止所有运行中的任务
-        runningTasks.values().forEach(future -> future.cancel(true));
+        // 停止分发和消息路由，再停止所有运行中的任务
+        taskDispatcher.stop();
+        messageRouter.stop();
+        agentTaskExecutor.stopAllTasks();
         
-        // 停止所有活跃实例
-        activeInstances.values().forEach(instance -> {
+        // 停止所有运行中的实例
+        instanceRegistry.getRunningInstanceIds().forEach(instanceId -> {
             try {
-                agentInstanceService.stopAgentInstance(instance.getId());
+                agentInstanceService.stopAgentInstance(instanceId);
             } catch (Exception e) {
                 // 忽略停止过程中的异常
             }
         });
         
-        // 关闭线程池
-        executorService.shutdownNow();
-        
-        // 停止任务分发器
-        taskDispatcher.stop();
-        
         System.out.println("智能体引擎已停止");
     }
 
@@ -103,9 +100,6 @@ public class AgentEngine {
             // 启动实例
             instance = agentInstanceService.startAgentInstance(instance.getId());
             
-            // 添加到活跃实例缓存
-            activeInstances.put(instance.getId(), instance);
-            
             return instance;
         } catch (Exception e) {
             throw new RuntimeException("创建并启动智能体实例失败: " + e.getMessage(), e);
@@ -116,6 +110,21 @@ public class AgentEngine {
      * 提交任务给智能体
      */
     public Task submitTaskToAgent(Long agentInstanceId, String taskType, String input, Map<String, Object> parameters) {
+        return submitTaskToAgent(agentInstanceId, taskType, input, parameters, 5); // 默认优先级
+    }
+
+    /**
+     * 提交任务给智能体（指定优先级，1为最高）
+     *
+     * @throws TaskRejectedException 任务队列已满，调用方应稍后重试
+     */
+    public Task submitTaskToAgent(Long agentInstanceId, String taskType, String input, Map<String, Object> parameters,
+                                  int priority) {
+        // 队列已满时直接拒绝，避免创建无法调度的任务
+        if (!taskDispatcher.hasCapacity(agentInstanceId)) {
+            throw new TaskRejectedException("智能体任务队列已满，请稍后重试: " + agentInstanceId);
+        }
+        
         try {
             // 创建任务
             Task task = new Task();
@@ -123,15 +132,22 @@ public class AgentEngine {
             task.setTaskTypeString(taskType);
             task.setInput(input);
             task.setParameters(parameters);
-            task.setPriority(5); // 默认优先级
+            task.setPriority(priority);
             task.setStatus(Task.TaskStatus.PENDING);
             
             Task createdTask = taskService.createTask(task);
             
-            // 提交给任务分发器
-            taskDispatcher.submitTask(createdTask);
+            // 提交给任务分发器，并发提交导致队列已满时将任务标记为失败
+            try {
+                taskDispatcher.submitTask(createdTask);
+            } catch (TaskRejectedException e) {
+                taskService.failTask(createdTask.getId(), e.getMessage());
+                throw e;
+            }
             
             return createdTask;
+        } catch (TaskRejectedException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("提交任务失败: " + e.getMessage(), e);
         }
@@ -151,10 +167,17 @@ public class AgentEngine {
             
             Message sentMessage = messageService.sendMessage(message);
             
-            // 通过消息路由发送
-            messageRouter.routeMessage(sentMessage);
+            // 通过消息路由发送，接收者邮箱已满时将消息标记为失败
+            try {
+                messageRouter.routeMessage(sentMessage);
+            } catch (MessageRejectedException e) {
+                messageService.markMessageAsFailed(sentMessage.getId());
+                throw e;
+            }
             
             return sentMessage;
+        } catch (MessageRejectedException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("发送消息失败: " + e.getMessage(), e);
         }
@@ -164,11 +187,13 @@ public class AgentEngine {
      * 获取智能体状态
      */
     public AgentEngineStatus getEngineStatus() {
+        // 计数来自短时缓存的统计快照，不扫描全表
+        AgentStatsSnapshot.Snapshot stats = statsSnapshot.getSnapshot();
         AgentEngineStatus status = new AgentEngineStatus();
-        status.setActiveInstanceCount(activeInstances.size());
-        status.setRunningTaskCount(runningTasks.size());
-        status.setTotalAgentDefinitions(agentDefinitionService.getAllAgentDefinitions().size());
-        status.setTotalAgentInstances(agentInstanceService.getAllAgentInstances().size());
+        status.setActiveInstanceCount((int) stats.getInstanceCount(AgentInstance.InstanceStatus.RUNNING));
+        status.setRunningTaskCount(agentTaskExecutor.getExecutingTaskCount());
+        status.setTotalAgentDefinitions((int) stats.getDefinitionCount());
+        status.setTotalAgentInstances((int) stats.getTotalInstances());
         
         return status;
     }
@@ -193,19 +218,88 @@ public class AgentEngine {
             Task createdTask = taskService.createTask(mainTask);
             
             // 提交给协作任务处理器
-            taskDispatcher.submitCollaborativeTask(createdTask, agentInstanceIds);
+            try {
+                taskDispatcher.submitCollaborativeTask(createdTask, agentInstanceIds);
+            } catch (TaskRejectedException e) {
+                taskService.failTask(createdTask.getId(), e.getMessage());
+                throw e;
+            }
             
             return createdTask;
+        } catch (TaskRejectedException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("执行协作任务失败: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * 提交任务图：创建父任务（SEQUENTIAL 或 PARALLEL）及其子任务，只提交父任务，
+     * 子任务由任务图执行器按顺序或并行提交，全部完成后父任务自动完成
+     *
+     * @param subTasks 子任务，按列表顺序执行（顺序任务）；未指定智能体实例或优先级时沿用父任务
+     * @throws TaskRejectedException 任务队列已满，调用方应稍后重试
+     */
+    public Task submitTaskGraph(Long agentInstanceId, String name, Task.TaskType type, List<Task> subTasks, int priority) {
+        if (type != Task.TaskType.SEQUENTIAL && type != Task.TaskType.PARALLEL) {
+            throw new IllegalArgumentException("任务图只支持顺序或并行任务: " + type);
+        }
+        if (subTasks == null || subTasks.isEmpty()) {
+            throw new IllegalArgumentException("任务图缺少子任务");
+        }
+        if (!taskDispatcher.hasCapacity(agentInstanceId)) {
+            throw new TaskRejectedException("智能体任务队列已满，请稍后重试: " + agentInstanceId);
+        }
+
+        // 创建父任务
+        Task parent = new Task();
+        parent.setAgentInstanceId(agentInstanceId);
+        parent.setName(name);
+        parent.setType(type);
+        parent.setPriority(priority);
+        parent.setStatus(Task.TaskStatus.PENDING);
+        Task createdParent = taskService.createTask(parent);
+
+        List<Task> createdChildren = new ArrayList<>(subTasks.size());
+        try {
+            // 按顺序创建子任务，子任务ID顺序即执行顺序
+            for (Task subTask : subTasks) {
+                subTask.setParentTask(createdParent);
+                if (subTask.getAgentInstanceId() == null) {
+                    subTask.setAgentInstanceId(agentInstanceId);
+                }
+                if (subTask.getPriority() == null) {
+                    subTask.setPriority(priority);
+                }
+                if (subTask.getName() == null) {
+                    subTask.setName(name);
+                }
+                subTask.setStatus(Task.TaskStatus.PENDING);
+                createdChildren.add(taskService.createTask(subTask));
+            }
+
+            taskDispatcher.submitTask(createdParent);
+        } catch (RuntimeException e) {
+            // 父任务未进入任务图执行器，已创建的子任务不会再被提交，需一并取消，否则恢复时会一直停留在待处理
+            for (Task child : createdChildren) {
+                try {
+                    taskService.cancelTask(child.getId());
+                } catch (Exception ex) {
+                    System.err.println("取消子任务失败: " + child.getId() + " - " + ex.getMessage());
+                }
+            }
+            taskService.failTask(createdParent.getId(), "提交任务图失败: " + e.getMessage());
+            throw e;
+        }
+
+        return createdParent;
+    }
+
     /**
      * 获取智能体实例的当前状态
      */
     public AgentInstance getAgentInstanceStatus(Long agentInstanceId) {
-        return activeInstances.get(agentInstanceId);
+        return instanceRegistry.getInstance(agentInstanceId).orElse(null);
     }
 
     /**
@@ -216,17 +310,8 @@ public class AgentEngine {
             // 停止实例
             agentInstanceService.stopAgentInstance(agentInstanceId);
             
-            // 从活跃实例中移除
-            activeInstances.remove(agentInstanceId);
-            
-            // 取消相关任务
-            runningTasks.entrySet().stream()
-                .filter(entry -> {
-                    // 这里需要根据任务关联的实例ID来过滤
-                    // 简化实现：取消所有任务
-                    return true;
-                })
-                .forEach(entry -> entry.getValue().cancel(true));
+            // 取消该实例的执行中任务
+            agentTaskExecutor.cancelTasksForInstance(agentInstanceId);
                 
         } catch (Exception e) {
             throw new RuntimeException("强制停止智能体实例失败: " + e.getMessage(), e);
@@ -0,0 +1,209 @@
+package com.agent.platform.agent.engine;
+
+import com.agent.platform.agent.entity.AgentInstance;
+import com.agent.platform.agent.service.AgentInstanceService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 智能体实例心跳跟踪
+ * 心跳只记录在内存中（实例 → 最近一次心跳的单调时钟），活跃检查直接读取内存；
+ * 后台线程按固定间隔把有心跳的实例用批量 UPDATE 写入最后活跃时间，
+ * 开启失活检查后，定期把数据库中超过存活期未活跃的运行中实例批量标记为错误。
+ * 失活检查默认关闭：只有客户端定期调用心跳接口时才应开启，否则空闲的运行中实例会被误判为失活。
+ * 持久化的最后活跃时间精度为刷新间隔，存活期应远大于刷新间隔。
+ */
+@Component
+public class AgentHeartbeatTracker {
+
+    // 实例服务依赖心跳跟踪器，延迟获取避免循环依赖
+    @Autowired
+    private ObjectProvider<AgentInstanceService> agentInstanceServiceProvider;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 心跳刷新间隔
+    @Value("${app.agent.heartbeat.flush-interval-ms:5000}")
+    private long flushIntervalMs;
+
+    // 单次批量更新的最大条数
+    @Value("${app.agent.heartbeat.batch-size:500}")
+    private int batchSize;
+
+    // 超过该时间没有心跳的运行中实例视为失活
+    @Value("${app.agent.heartbeat.stale-after-ms:300000}")
+    private long staleAfterMs;
+
+    // 是否定期把失活实例标记为错误
+    @Value("${app.agent.heartbeat.sweep-enabled:false}")
+    private boolean sweepEnabled;
+
+    // 失活检查间隔
+    @Value("${app.agent.heartbeat.sweep-interval-ms:60000}")
+    private long sweepIntervalMs;
+
+    // 最近一次心跳（System.nanoTime）
+    private final Map<Long, Long> lastSeenNanos = new ConcurrentHashMap<>();
+
+    // 待刷新的实例
+    private final Map<Long, Boolean> pendingIds = new ConcurrentHashMap<>();
+
+    private Counter flushedCounter;
+    private Counter staleCounter;
+
+    private final ScheduledExecutorService heartbeatThread = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "agent-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init() {
+        heartbeatThread.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (sweepEnabled) {
+            heartbeatThread.scheduleWithFixedDelay(this::sweep, sweepIntervalMs, sweepIntervalMs, TimeUnit.MILLISECONDS);
+        }
+
+        Gauge.builder("agent.instance.heartbeat.pending", pendingIds, Map::size)
+                .register(meterRegistry);
+        flushedCounter = Counter.builder("agent.instance.heartbeat.flushed").register(meterRegistry);
+        staleCounter = Counter.builder("agent.instance.heartbeat.stale").register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeatThread.shutdown();
+        try {
+            heartbeatThread.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * 启动后按数据库中的最后活跃时间为运行中实例建立内存心跳
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        try {
+            long nowNanos = System.nanoTime();
+            LocalDateTime now = LocalDateTime.now();
+            List<AgentInstance> running = agentInstanceServiceProvider.getObject()
+                    .getAgentInstancesByStatus(AgentInstance.InstanceStatus.RUNNING);
+            for (AgentInstance instance : running) {
+                if (instance.getLastActiveTime() != null) {
+                    long ageNanos = Math.max(0, Duration.between(instance.getLastActiveTime(), now).toNanos());
+                    lastSeenNanos.putIfAbsent(instance.getId(), nowNanos - ageNanos);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("加载实例心跳失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 记录实例心跳，等待批量刷新
+     */
+    public void recordHeartbeat(Long instanceId) {
+        if (instanceId == null) {
+            return;
+        }
+        lastSeenNanos.put(instanceId, System.nanoTime());
+        pendingIds.put(instanceId, Boolean.TRUE);
+    }
+
+    /**
+     * 实例在存活期内是否有过心跳（只读内存）
+     */
+    public boolean isAlive(Long instanceId) {
+        Long lastSeen = instanceId != null ? lastSeenNanos.get(instanceId) : null;
+        return lastSeen != null && System.nanoTime() - lastSeen <= TimeUnit.MILLISECONDS.toNanos(staleAfterMs);
+    }
+
+    /**
+     * 移除实例的心跳记录（实例停止或删除后）
+     */
+    public void forget(Long instanceId) {
+        lastSeenNanos.remove(instanceId);
+        pendingIds.remove(instanceId);
+    }
+
+    /**
+     * 把待刷新的心跳批量写入最后活跃时间
+     */
+    public synchronized void flush() {
+        if (pendingIds.isEmpty()) {
+            return;
+        }
+        List<Long> batch = new ArrayList<>(batchSize);
+        for (Long instanceId : pendingIds.keySet()) {
+            pendingIds.remove(instanceId);
+            batch.add(instanceId);
+            if (batch.size() >= batchSize) {
+                write(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    private void write(List<Long> batch) {
+        try {
+            agentInstanceServiceProvider.getObject().updateLastActiveTimes(batch, LocalDateTime.now());
+            flushedCounter.increment(batch.size());
+        } catch (Exception e) {
+            System.err.println("刷新实例心跳失败: " + e.getMessage());
+            // 下次刷新时重试
+            batch.forEach(instanceId -> pendingIds.put(instanceId, Boolean.TRUE));
+        }
+    }
+
+    /**
+     * 把超过存活期未活跃的运行中实例批量标记为错误
+     */
+    private void sweep() {
+        try {
+            flush();
+            AgentInstanceService agentInstanceService = agentInstanceServiceProvider.getObject();
+            LocalDateTime staleBefore = LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(staleAfterMs));
+            List<Long> staleIds = new ArrayList<>(agentInstanceService.getStaleInstanceIds(staleBefore));
+            // 刷新后才收到心跳的实例仍然存活
+            staleIds.removeIf(this::isAlive);
+            if (staleIds.isEmpty()) {
+                return;
+            }
+
+            int marked = agentInstanceService.markStaleInstancesAsError(staleIds, staleBefore);
+            staleIds.forEach(this::forget);
+            staleCounter.increment(marked);
+            if (marked > 0) {
+                System.out.println("已将失活实例标记为错误: " + marked);
+            }
+        } catch (Exception e) {
+            System.err.println("检查失活实例失败: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.agent.platform.agent.engine;
+
+import com.agent.platform.agent.entity.AgentInstance;
+import com.agent.platform.agent.repository.AgentInstanceRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 智能体实例注册表 - 实例状态的内存视图
+ * 实例状态的所有变更都经过 AgentInstanceService，事务提交后同步更新注册表，
+ * 分发和路由时直接读取内存状态，未命中时从数据库加载（连同智能体定义）并缓存。
+ * 配置了跨节点复制时，状态变更会广播失效事件，其他节点丢弃本地缓存后重新加载。
+ */
+@Component
+public class AgentInstanceRegistry {
+
+    @Autowired
+    private AgentInstanceRepository agentInstanceRepository;
+
+    @Autowired
+    private ObjectProvider<InstanceStatusReplicator> replicatorProvider;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 统计快照依赖实例服务，延迟获取避免循环依赖
+    @Autowired
+    private ObjectProvider<AgentStatsSnapshot> statsSnapshotProvider;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    // 变更序号：加载期间发生过变更时不缓存加载结果，避免缓存提交前读到的旧状态
+    private final AtomicLong changeSequence = new AtomicLong();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    private InstanceStatusReplicator replicator;
+
+    @PostConstruct
+    public void init() {
+        replicator = replicatorProvider.getIfAvailable();
+        if (replicator != null) {
+            replicator.subscribe(this::invalidate);
+        }
+
+        Gauge.builder("agent.instance.registry.size", entries, Map::size)
+                .register(meterRegistry);
+        FunctionCounter.builder("agent.instance.registry.hits", hitCount, AtomicLong::get)
+                .register(meterRegistry);
+        FunctionCounter.builder("agent.instance.registry.misses", missCount, AtomicLong::get)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 启动后预加载运行中和暂停的实例
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            List<AgentInstance> instances = agentInstanceRepository.findByStatusInWithDefinition(Arrays.asList(
+                    AgentInstance.InstanceStatus.RUNNING, AgentInstance.InstanceStatus.PAUSED));
+            instances.forEach(instance -> entries.putIfAbsent(instance.getId(), new Entry(instance, instance.getStatus())));
+            System.out.println("实例注册表已预加载: " + instances.size());
+        } catch (Exception e) {
+            System.err.println("实例注册表预加载失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取实例（智能体定义已加载），未缓存时从数据库加载
+     */
+    public Optional<AgentInstance> getInstance(Long instanceId) {
+        Entry entry = lookup(instanceId);
+        return entry != null ? Optional.of(entry.instance) : Optional.empty();
+    }
+
+    /**
+     * 获取实例状态，实例不存在时返回null
+     */
+    public AgentInstance.InstanceStatus getStatus(Long instanceId) {
+        Entry entry = lookup(instanceId);
+        return entry != null ? entry.status : null;
+    }
+
+    /**
+     * 实例是否处于运行中
+     */
+    public boolean isRunning(Long instanceId) {
+        return getStatus(instanceId) == AgentInstance.InstanceStatus.RUNNING;
+    }
+
+    /**
+     * 获取已缓存的运行中实例ID
+     */
+    public List<Long> getRunningInstanceIds() {
+        List<Long> ids = new ArrayList<>();
+        entries.forEach((id, entry) -> {
+            if (entry.status == AgentInstance.InstanceStatus.RUNNING) {
+                ids.add(id);
+            }
+        });
+        return ids;
+    }
+
+    /**
+     * 实例状态已变更（在事务提交后生效）
+     */
+    public void onStatusChanged(Long instanceId, AgentInstance.InstanceStatus status) {
+        afterCommit(() -> {
+            changeSequence.incrementAndGet();
+            entries.computeIfPresent(instanceId, (id, entry) -> {
+                entry.instance.setStatus(status);
+                return new Entry(entry.instance, status);
+            });
+            publishInvalidation(instanceId);
+        });
+    }
+
+    /**
+     * 实例已删除（在事务提交后生效）
+     */
+    public void onRemoved(Long instanceId) {
+        afterCommit(() -> {
+            changeSequence.incrementAndGet();
+            entries.remove(instanceId);
+            publishInvalidation(instanceId);
+        });
+    }
+
+    /**
+     * 实例已在数据库中批量变更（事务提交后丢弃缓存，下次访问时重新加载）
+     */
+    public void onChanged(Long instanceId) {
+        afterCommit(() -> {
+            changeSequence.incrementAndGet();
+            entries.remove(instanceId);
+            publishInvalidation(instanceId);
+        });
+    }
+
+    /**
+     * 丢弃本地缓存，下次访问时从数据库重新加载
+     */
+    public void invalidate(Long instanceId) {
+        changeSequence.incrementAndGet();
+        entries.remove(instanceId);
+        invalidateStats();
+    }
+
+    private Entry lookup(Long instanceId) {
+        if (instanceId == null) {
+            return null;
+        }
+        Entry entry = entries.get(instanceId);
+        if (entry != null) {
+            hitCount.incrementAndGet();
+            return entry;
+        }
+
+        missCount.incrementAndGet();
+        long sequence = changeSequence.get();
+        Optional<AgentInstance> loaded = agentInstanceRepository.findByIdWithDefinition(instanceId);
+        if (loaded.isEmpty()) {
+            return null;
+        }
+        Entry created = new Entry(loaded.get(), loaded.get().getStatus());
+        // 在 compute 中检查变更序号，与同一实例的状态更新互斥；并发加载时保留先写入的条目
+        Entry cached = entries.compute(instanceId, (id, existing) -> {
+            if (existing != null) {
+                return existing;
+            }
+            return changeSequence.get() == sequence ? created : null;
+        });
+        return cached != null ? cached : created;
+    }
+
+    private void publishInvalidation(Long instanceId) {
+        invalidateStats();
+        if (replicator != null) {
+            replicator.publishInvalidation(instanceId);
+        }
+    }
+
+    private void invalidateStats() {
+        AgentStatsSnapshot statsSnapshot = statsSnapshotProvider.getIfAvailable();
+        if (statsSnapshot != null) {
+            statsSnapshot.invalidateInstanceCounts();
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 注册表条目，状态单独保存，读取时无需访问实体
+     */
+    private static class Entry {
+        private final AgentInstance instance;
+        private final AgentInstance.InstanceStatus status;
+
+        Entry(AgentInstance instance, AgentInstance.InstanceStatus status) {
+            this.instance = instance;
+            this.status = status;
+        }
+    }
+}
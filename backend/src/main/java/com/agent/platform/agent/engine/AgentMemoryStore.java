@@ -0,0 +1,435 @@
+package com.agent.platform.agent.engine;
+
+import com.agent.platform.agent.service.AgentInstanceService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 智能体会话记忆
+ * 每个实例在内存中保存最近若干轮对话（环形缓冲区），读取上下文时按 token 预算从最新一轮向前截取；
+ * 被挤出缓冲区的轮次可折叠进滚动摘要。记忆首次访问时从实例的 memoryState 加载，
+ * 变更后由后台线程批量写回（write-behind），处理消息时不读数据库。
+ * 进程崩溃时最近一个刷新间隔内的变更会丢失。
+ */
+@Component
+public class AgentMemoryStore {
+
+    // 实例服务依赖较多组件，延迟获取避免循环依赖
+    @Autowired
+    private ObjectProvider<AgentInstanceService> agentInstanceServiceProvider;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 每个实例保留的最近轮数
+    @Value("${app.agent.memory.capacity:50}")
+    private int capacity;
+
+    // 默认上下文 token 预算
+    @Value("${app.agent.memory.token-budget:2000}")
+    private int defaultTokenBudget;
+
+    // 是否把挤出缓冲区的轮次折叠进摘要
+    @Value("${app.agent.memory.summary-enabled:true}")
+    private boolean summaryEnabled;
+
+    // 摘要最大长度（字符）
+    @Value("${app.agent.memory.summary-max-chars:2000}")
+    private int summaryMaxChars;
+
+    // 写回间隔
+    @Value("${app.agent.memory.flush-interval-ms:2000}")
+    private long flushIntervalMs;
+
+    // 空闲超过该时间且已写回的记忆从内存中移除
+    @Value("${app.agent.memory.idle-evict-ms:1800000}")
+    private long idleEvictMs;
+
+    private final Map<Long, Memory> memories = new ConcurrentHashMap<>();
+
+    // 摘要器，可替换为基于模型的实现
+    private volatile Summarizer summarizer = AgentMemoryStore::truncatingSummary;
+
+    private static final TypeReference<Map<String, Object>> STATE_TYPE = new TypeReference<>() {};
+
+    private final ScheduledExecutorService flushThread = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "agent-memory-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init() {
+        flushThread.scheduleWithFixedDelay(this::flushAndEvict, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+
+        Gauge.builder("agent.memory.instances", memories, Map::size)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushThread.shutdown();
+        try {
+            flushThread.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * 替换摘要器
+     */
+    public void setSummarizer(Summarizer summarizer) {
+        this.summarizer = summarizer;
+    }
+
+    /**
+     * 记录一轮对话
+     *
+     * @param role 说话方，如 user、agent 或对端实例标识
+     */
+    public void recordTurn(Long instanceId, String role, String content) {
+        if (instanceId == null || content == null) {
+            return;
+        }
+        Memory memory = memory(instanceId);
+        Turn evicted;
+        synchronized (memory) {
+            evicted = memory.append(new Turn(role, content, System.currentTimeMillis()));
+            if (evicted != null && summaryEnabled) {
+                memory.summary = limit(summarizer.summarize(memory.summary, evicted));
+            }
+            memory.dirty = true;
+        }
+    }
+
+    /**
+     * 按默认 token 预算获取上下文
+     */
+    public ContextWindow getContext(Long instanceId) {
+        return getContext(instanceId, defaultTokenBudget);
+    }
+
+    /**
+     * 获取上下文：摘要（预算允许时）加上从最新一轮向前、总 token 不超过预算的若干轮
+     */
+    public ContextWindow getContext(Long instanceId, int tokenBudget) {
+        Memory memory = memory(instanceId);
+        synchronized (memory) {
+            int remaining = tokenBudget;
+            String summary = null;
+            if (memory.summary != null && !memory.summary.isEmpty()) {
+                int summaryTokens = estimateTokens(memory.summary);
+                if (summaryTokens <= remaining) {
+                    summary = memory.summary;
+                    remaining -= summaryTokens;
+                }
+            }
+
+            List<Turn> turns = new ArrayList<>();
+            for (int i = memory.size - 1; i >= 0; i--) {
+                Turn turn = memory.get(i);
+                if (turn.tokens > remaining) {
+                    break;
+                }
+                turns.add(turn);
+                remaining -= turn.tokens;
+            }
+            Collections.reverse(turns);
+            return new ContextWindow(summary, turns, tokenBudget - remaining);
+        }
+    }
+
+    /**
+     * 清空实例记忆（写回后生效）
+     */
+    public void clear(Long instanceId) {
+        Memory memory = memory(instanceId);
+        synchronized (memory) {
+            memory.clear();
+            memory.dirty = true;
+        }
+    }
+
+    /**
+     * 丢弃实例的内存记忆，不写回（实例删除后调用）
+     */
+    public void forget(Long instanceId) {
+        memories.remove(instanceId);
+    }
+
+    /**
+     * 把有变更的记忆写回实例的 memoryState
+     */
+    public synchronized void flush() {
+        Map<Long, String> states = new HashMap<>();
+        memories.forEach((instanceId, memory) -> {
+            synchronized (memory) {
+                if (memory.dirty) {
+                    memory.dirty = false;
+                    states.put(instanceId, serialize(memory));
+                }
+            }
+        });
+        if (states.isEmpty()) {
+            return;
+        }
+        try {
+            agentInstanceServiceProvider.getObject().updateMemoryStates(states);
+        } catch (Exception e) {
+            System.err.println("写回智能体记忆失败: " + e.getMessage());
+            // 下次刷新时重试
+            states.keySet().forEach(instanceId -> {
+                Memory memory = memories.get(instanceId);
+                if (memory != null) {
+                    synchronized (memory) {
+                        memory.dirty = true;
+                    }
+                }
+            });
+        }
+    }
+
+    private void flushAndEvict() {
+        flush();
+        long now = System.currentTimeMillis();
+        // 与 memory() 在同一映射锁下判断并移除，刚被访问的记忆不会被淘汰
+        for (Long instanceId : memories.keySet()) {
+            memories.computeIfPresent(instanceId, (id, memory) -> {
+                synchronized (memory) {
+                    return !memory.dirty && now - memory.lastAccess > idleEvictMs ? null : memory;
+                }
+            });
+        }
+    }
+
+    private Memory memory(Long instanceId) {
+        // 在映射锁内更新访问时间，避免返回后、更新前被淘汰
+        return memories.compute(instanceId, (id, existing) -> {
+            Memory memory = existing != null ? existing : load(id);
+            memory.lastAccess = System.currentTimeMillis();
+            return memory;
+        });
+    }
+
+    /**
+     * 从实例的 memoryState 加载记忆，格式无法识别时从空记忆开始
+     */
+    private Memory load(Long instanceId) {
+        Memory memory = new Memory(capacity);
+        try {
+            String state = agentInstanceServiceProvider.getObject().getMemoryState(instanceId);
+            if (state == null || state.isBlank()) {
+                return memory;
+            }
+            Map<String, Object> parsed = objectMapper.readValue(state, STATE_TYPE);
+            Object summary = parsed.get("summary");
+            memory.summary = summary != null ? summary.toString() : null;
+            Object turns = parsed.get("turns");
+            if (turns instanceof List<?> list) {
+                for (Object item : list) {
+                    if (item instanceof Map<?, ?> turn && turn.get("content") != null) {
+                        Object timestamp = turn.get("timestamp");
+                        memory.append(new Turn(String.valueOf(turn.get("role")), turn.get("content").toString(),
+                                timestamp instanceof Number number ? number.longValue() : 0L));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("加载智能体记忆失败: " + instanceId + " - " + e.getMessage());
+        }
+        return memory;
+    }
+
+    private String serialize(Memory memory) {
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("summary", memory.summary);
+        List<Map<String, Object>> turns = new ArrayList<>(memory.size);
+        for (int i = 0; i < memory.size; i++) {
+            Turn turn = memory.get(i);
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("role", turn.role);
+            item.put("content", turn.content);
+            item.put("timestamp", turn.timestamp);
+            turns.add(item);
+        }
+        state.put("turns", turns);
+        try {
+            return objectMapper.writeValueAsString(state);
+        } catch (Exception e) {
+            throw new IllegalStateException("序列化智能体记忆失败", e);
+        }
+    }
+
+    private String limit(String summary) {
+        if (summary == null || summary.length() <= summaryMaxChars) {
+            return summary;
+        }
+        // 保留最近的部分
+        return summary.substring(summary.length() - summaryMaxChars);
+    }
+
+    /**
+     * 默认摘要：每个挤出的轮次保留开头一段追加到摘要末尾
+     */
+    private static String truncatingSummary(String previous, Turn evicted) {
+        String content = evicted.content.length() > 200 ? evicted.content.substring(0, 200) + "..." : evicted.content;
+        String line = evicted.role + ": " + content;
+        return previous == null || previous.isEmpty() ? line : previous + "\n" + line;
+    }
+
+    /**
+     * 估算 token 数：汉字每个计 1 个，其他字符每 4 个计 1 个
+     */
+    static int estimateTokens(String text) {
+        int cjk = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.UnicodeScript.of(text.charAt(i)) == Character.UnicodeScript.HAN) {
+                cjk++;
+            } else {
+                other++;
+            }
+        }
+        return cjk + (other + 3) / 4;
+    }
+
+    /**
+     * 摘要器：把挤出缓冲区的一轮合并进已有摘要
+     */
+    @FunctionalInterface
+    public interface Summarizer {
+        String summarize(String previousSummary, Turn evicted);
+    }
+
+    /**
+     * 单个实例的记忆，访问时需持有对象锁
+     */
+    private static class Memory {
+        private final Turn[] turns;
+        private int head;
+        private int size;
+        private String summary;
+        private boolean dirty;
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        Memory(int capacity) {
+            this.turns = new Turn[Math.max(1, capacity)];
+        }
+
+        /**
+         * 追加一轮，缓冲区已满时返回被挤出的最早一轮
+         */
+        Turn append(Turn turn) {
+            Turn evicted = null;
+            if (size == turns.length) {
+                evicted = turns[head];
+                turns[head] = turn;
+                head = (head + 1) % turns.length;
+            } else {
+                turns[(head + size) % turns.length] = turn;
+                size++;
+            }
+            return evicted;
+        }
+
+        /**
+         * 按时间顺序的第 index 轮
+         */
+        Turn get(int index) {
+            return turns[(head + index) % turns.length];
+        }
+
+        void clear() {
+            Arrays.fill(turns, null);
+            head = 0;
+            size = 0;
+            summary = null;
+        }
+    }
+
+    /**
+     * 一轮对话
+     */
+    public static class Turn {
+        private final String role;
+        private final String content;
+        private final long timestamp;
+        private final int tokens;
+
+        Turn(String role, String content, long timestamp) {
+            this.role = role;
+            this.content = content;
+            this.timestamp = timestamp;
+            this.tokens = estimateTokens(content);
+        }
+
+        // Getters
+        public String getRole() { return role; }
+        public String getContent() { return content; }
+        public long getTimestamp() { return timestamp; }
+        public int getTokens() { return tokens; }
+    }
+
+    /**
+     * 上下文窗口
+     */
+    public static class ContextWindow {
+        private final String summary;
+        private final List<Turn> turns;
+        private final int tokens;
+
+        ContextWindow(String summary, List<Turn> turns, int tokens) {
+            this.summary = summary;
+            this.turns = turns;
+            this.tokens = tokens;
+        }
+
+        /**
+         * 渲染为提示词文本
+         */
+        public String toPrompt() {
+            StringBuilder prompt = new StringBuilder();
+            if (summary != null) {
+                prompt.append("此前对话摘要:\n").append(summary).append("\n\n");
+            }
+            for (Turn turn : turns) {
+                prompt.append(turn.role).append(": ").append(turn.content).append("\n");
+            }
+            return prompt.toString();
+        }
+
+        public boolean isEmpty() {
+            return summary == null && turns.isEmpty();
+        }
+
+        // Getters
+        public String getSummary() { return summary; }
+        public List<Turn> getTurns() { return turns; }
+        public int getTokens() { return tokens; }
+    }
+}
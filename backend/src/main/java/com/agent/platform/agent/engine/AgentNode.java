@@ -0,0 +1,25 @@
+package com.agent.platform.agent.engine;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * 当前引擎节点标识
+ * 记录在开始执行的任务上，超时对账等节点相关的处理据此只处理本节点的任务
+ */
+@Component
+public class AgentNode {
+
+    private final String nodeId;
+
+    public AgentNode(@Value("${app.agent.node-id:}") String nodeId) {
+        this.nodeId = nodeId == null || nodeId.isBlank()
+                ? "node-" + UUID.randomUUID().toString().substring(0, 8) : nodeId;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+}
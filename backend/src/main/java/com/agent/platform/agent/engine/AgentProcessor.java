@@ -1,106 +1,112 @@
 package com.agent.platform.agent.engine;
 
+import com.agent.platform.agent.entity.AgentDefinition;
 import com.agent.platform.agent.entity.AgentInstance;
 import com.agent.platform.agent.entity.Message;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.EnumMap;
 import java.util.Map;
 
 /**
  * 智能体处理器 - 负责具体智能体逻辑的处理
+ * 按智能体类型（AgentDefinition.AgentType）从策略注册表中选择处理策略，
+ * 默认策略通过共享的模型客户端池调用大模型；未启用大模型时返回回显结果。
  */
 @Component
 public class AgentProcessor {
 
+    // 会话记忆，处理消息时记录对话轮次
+    @Autowired
+    private AgentMemoryStore memoryStore;
+
+    @Autowired
+    private ModelClientPool modelClientPool;
+
+    @Value("${app.agent.llm.enabled:true}")
+    private boolean llmEnabled;
+
+    // 处理策略注册表（写时复制），可通过 registerProcessor 扩展或替换
+    private volatile Map<AgentDefinition.AgentType, AgentTypeProcessor> processors = new EnumMap<>(AgentDefinition.AgentType.class);
+
+    // 未注册类型或未启用大模型时使用
+    private final AgentTypeProcessor fallbackProcessor = AgentProcessor::echo;
+
+    @PostConstruct
+    public void init() {
+        if (!llmEnabled) {
+            return;
+        }
+        registerProcessor(AgentDefinition.AgentType.AGENT,
+                new LlmAgentTypeProcessor(modelClientPool, "你是一个通用智能助手。"));
+        registerProcessor(AgentDefinition.AgentType.SPECIALIST,
+                new LlmAgentTypeProcessor(modelClientPool, "你是该领域的专业智能体，回答应准确、专业，超出能力范围时直接说明。"));
+        registerProcessor(AgentDefinition.AgentType.COORDINATOR,
+                new LlmAgentTypeProcessor(modelClientPool, "你是协调器智能体，负责拆解任务、分配步骤并汇总结果，输出应条理清晰。"));
+        registerProcessor(AgentDefinition.AgentType.WORKFLOW,
+                new LlmAgentTypeProcessor(modelClientPool, "你是工作流中的一个步骤，只输出本步骤的结果，不要附加解释。"));
+    }
+
     /**
-     * 处理文本任务
+     * 注册（或替换）智能体类型的处理策略
+     */
+    public synchronized void registerProcessor(AgentDefinition.AgentType type, AgentTypeProcessor processor) {
+        Map<AgentDefinition.AgentType, AgentTypeProcessor> updated = new EnumMap<>(processors);
+        updated.put(type, processor);
+        processors = updated;
+    }
+
+    /**
+     * 处理文本任务（parameters.operation: summarize / translate / classify / analyze）
      */
     public String processText(AgentInstance agentInstance, String input, Map<String, Object> parameters) {
-        // 根据智能体类型执行不同的文本处理逻辑
-        String agentType = agentInstance.getAgentDefinition().getType().name();
-        
-        switch (agentType) {
-            case "TEXT_ANALYZER":
-                return processTextAnalysis(agentInstance, input, parameters);
-                
-            case "SUMMARIZER":
-                return processTextSummarization(agentInstance, input, parameters);
-                
-            case "TRANSLATOR":
-                return processTextTranslation(agentInstance, input, parameters);
-                
-            case "CLASSIFIER":
-                return processTextClassification(agentInstance, input, parameters);
-                
-            default:
-                return processGenericText(agentInstance, input, parameters);
-        }
+        return process(agentInstance, AgentTypeProcessor.RequestKind.TEXT, input, parameters, null);
     }
 
     /**
      * 处理数据分析任务
      */
     public String analyzeData(AgentInstance agentInstance, String input, Map<String, Object> parameters) {
-        String agentType = agentInstance.getAgentDefinition().getType().name();
-        
-        switch (agentType) {
-            case "DATA_ANALYZER":
-                return processDataAnalysis(agentInstance, input, parameters);
-                
-            case "STATISTICIAN":
-                return processStatisticalAnalysis(agentInstance, input, parameters);
-                
-            case "PREDICTOR":
-                return processPrediction(agentInstance, input, parameters);
-                
-            default:
-                return "数据分析功能暂不支持此智能体类型: " + agentType;
-        }
+        return process(agentInstance, AgentTypeProcessor.RequestKind.DATA_ANALYSIS, input, parameters, null);
     }
 
     /**
      * 处理决策任务
      */
     public String makeDecision(AgentInstance agentInstance, String input, Map<String, Object> parameters) {
-        String agentType = agentInstance.getAgentDefinition().getType().name();
-        
-        switch (agentType) {
-            case "DECISION_MAKER":
-                return processDecisionMaking(agentInstance, input, parameters);
-                
-            case "RECOMMENDER":
-                return processRecommendation(agentInstance, input, parameters);
-                
-            case "PLANNER":
-                return processPlanning(agentInstance, input, parameters);
-                
-            default:
-                return "决策功能暂不支持此智能体类型: " + agentType;
-        }
+        return process(agentInstance, AgentTypeProcessor.RequestKind.DECISION, input, parameters, null);
     }
 
     /**
      * 处理通用任务
      */
     public String processGenericTask(AgentInstance agentInstance, String input, Map<String, Object> parameters) {
-        // 通用任务处理逻辑
-        return "通用任务处理结果: " + input;
+        return process(agentInstance, AgentTypeProcessor.RequestKind.GENERIC_TASK, input, parameters, null);
     }
 
     /**
-     * 处理消息
+     * 处理消息，上下文来自会话记忆
      */
     public String processMessage(AgentInstance agentInstance, String messageContent) {
-        // 处理接收到的消息
-        return "已处理消息: " + messageContent;
+        AgentMemoryStore.ContextWindow context = memoryStore.getContext(agentInstance.getId());
+        memoryStore.recordTurn(agentInstance.getId(), "user", messageContent);
+        String response = process(agentInstance, AgentTypeProcessor.RequestKind.MESSAGE, messageContent, null, context);
+        memoryStore.recordTurn(agentInstance.getId(), "agent", response);
+        return response;
     }
 
     /**
      * 处理协作请求
      */
     public String processCollaborationRequest(AgentInstance agentInstance, String requestContent) {
-        // 处理协作请求
-        return "协作请求已接受: " + requestContent;
+        AgentMemoryStore.ContextWindow context = memoryStore.getContext(agentInstance.getId());
+        memoryStore.recordTurn(agentInstance.getId(), "collaborator", requestContent);
+        String response = process(agentInstance, AgentTypeProcessor.RequestKind.COLLABORATION, requestContent, null, context);
+        memoryStore.recordTurn(agentInstance.getId(), "agent", response);
+        return response;
     }
 
     /**
@@ -108,6 +114,7 @@ public class AgentProcessor {
      */
     public void processTaskResult(AgentInstance agentInstance, String resultContent) {
         // 处理任务结果
+        memoryStore.recordTurn(agentInstance.getId(), "result", resultContent);
         System.out.println("处理任务结果: " + resultContent);
     }
 
@@ -127,65 +134,29 @@ public class AgentProcessor {
         System.out.println("处理通用消息: " + message.getContent());
     }
 
-    // 具体的处理实现方法
-
-    private String processTextAnalysis(AgentInstance agentInstance, String input, Map<String, Object> parameters) {
-        // 文本分析逻辑
-        return "文本分析结果: 长度=" + input.length() + ", 关键词=待实现";
-    }
-
-    private String processTextSummarization(AgentInstance agentInstance, String input, Map<String, Object> parameters) {
-        // 文本摘要逻辑
-        int maxLength = (int) parameters.getOrDefault("maxLength", 100);
-        if (input.length() > maxLength) {
-            return input.substring(0, maxLength) + "...";
+    private String process(AgentInstance agentInstance, AgentTypeProcessor.RequestKind kind, String input,
+                           Map<String, Object> parameters, AgentMemoryStore.ContextWindow context) {
+        AgentDefinition definition = agentInstance.getAgentDefinition();
+        AgentTypeProcessor processor = definition != null ? processors.get(definition.getType()) : null;
+        if (processor == null) {
+            processor = fallbackProcessor;
         }
-        return input;
+        // 早于参数落库的任务或请求体中参数为 null 时按无参数处理
+        return processor.process(agentInstance, new AgentTypeProcessor.AgentRequest(kind, input,
+                parameters != null ? parameters : Map.of(), context));
     }
 
-    private String processTextTranslation(AgentInstance agentInstance, String input, Map<String, Object> parameters) {
-        // 文本翻译逻辑（简化实现）
-        String targetLanguage = (String) parameters.getOrDefault("targetLanguage", "en");
-        return "翻译到 " + targetLanguage + ": " + input;
-    }
-
-    private String processTextClassification(AgentInstance agentInstance, String input, Map<String, Object> parameters) {
-        // 文本分类逻辑
-        return "分类结果: 待实现分类算法";
-    }
-
-    private String processGenericText(AgentInstance agentInstance, String input, Map<String, Object> parameters) {
-        // 通用文本处理
-        return "通用文本处理结果: " + input;
-    }
-
-    private String processDataAnalysis(AgentInstance agentInstance, String input, Map<String, Object> parameters) {
-        // 数据分析逻辑
-        return "数据分析结果: 待实现数据分析算法";
-    }
-
-    private String processStatisticalAnalysis(AgentInstance agentInstance, String input, Map<String, Object> parameters) {
-        // 统计分析逻辑
-        return "统计分析结果: 待实现统计算法";
-    }
-
-    private String processPrediction(AgentInstance agentInstance, String input, Map<String, Object> parameters) {
-        // 预测逻辑
-        return "预测结果: 待实现预测算法";
-    }
-
-    private String processDecisionMaking(AgentInstance agentInstance, String input, Map<String, Object> parameters) {
-        // 决策逻辑
-        return "决策结果: 基于规则的决策";
-    }
-
-    private String processRecommendation(AgentInstance agentInstance, String input, Map<String, Object> parameters) {
-        // 推荐逻辑
-        return "推荐结果: 基于内容的推荐";
-    }
-
-    private String processPlanning(AgentInstance agentInstance, String input, Map<String, Object> parameters) {
-        // 规划逻辑
-        return "规划结果: 多步骤规划方案";
+    /**
+     * 回显结果（未启用大模型时）
+     */
+    private static String echo(AgentInstance agentInstance, AgentTypeProcessor.AgentRequest request) {
+        switch (request.getKind()) {
+            case MESSAGE:
+                return "已处理消息: " + request.getInput();
+            case COLLABORATION:
+                return "协作请求已接受: " + request.getInput();
+            default:
+                return "通用任务处理结果: " + request.getInput();
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,175 @@
+package com.agent.platform.agent.engine;
+
+import com.agent.platform.agent.entity.AgentInstance;
+import com.agent.platform.agent.entity.Task;
+import com.agent.platform.agent.service.AgentDefinitionService;
+import com.agent.platform.agent.service.AgentInstanceService;
+import com.agent.platform.agent.service.TaskService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 引擎统计快照 - 供状态面板读取的短时缓存
+ * 快照由分组计数查询加载，过期（TTL）后在下次读取时重新加载；
+ * 期间任务数量按任务状态变更事件增量更新，实例状态变更时只重新加载实例计数。
+ * 其他节点的变更在下次重新加载时体现，计数为近似值。
+ */
+@Component
+public class AgentStatsSnapshot {
+
+    @Autowired
+    private AgentDefinitionService agentDefinitionService;
+
+    @Autowired
+    private AgentInstanceService agentInstanceService;
+
+    @Autowired
+    private TaskService taskService;
+
+    // 快照有效期
+    @Value("${app.agent.stats.ttl-ms:5000}")
+    private long ttlMs;
+
+    private volatile Counts counts;
+
+    // 实例计数需要重新加载
+    private volatile boolean instanceCountsStale;
+
+    /**
+     * 获取统计快照，过期时重新加载
+     */
+    public Snapshot getSnapshot() {
+        Counts current = counts;
+        if (current == null || System.currentTimeMillis() - current.loadedAt > ttlMs) {
+            current = reload();
+        } else if (instanceCountsStale) {
+            current = reloadInstanceCounts(current);
+        }
+        return current.toSnapshot();
+    }
+
+    /**
+     * 实例状态变更后标记实例计数过期
+     */
+    public void invalidateInstanceCounts() {
+        instanceCountsStale = true;
+    }
+
+    /**
+     * 按任务状态变更增量更新任务计数（事务提交后执行）
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskStatusChanged(TaskStatusChangedEvent event) {
+        Counts current = counts;
+        if (current == null) {
+            return;
+        }
+        if (event.getPreviousStatus() != null) {
+            current.taskCounts.get(event.getPreviousStatus()).decrementAndGet();
+        }
+        if (event.getStatus() != null) {
+            current.taskCounts.get(event.getStatus()).incrementAndGet();
+        }
+    }
+
+    private synchronized Counts reload() {
+        Counts current = counts;
+        if (current != null && System.currentTimeMillis() - current.loadedAt <= ttlMs) {
+            return current;
+        }
+        instanceCountsStale = false;
+        Counts loaded = new Counts(agentDefinitionService.countAgentDefinitions(),
+                agentInstanceService.countInstancesByStatus(), taskService.countTasksByStatus());
+        counts = loaded;
+        return loaded;
+    }
+
+    private synchronized Counts reloadInstanceCounts(Counts current) {
+        if (!instanceCountsStale || counts != current) {
+            return counts;
+        }
+        instanceCountsStale = false;
+        current.replaceInstanceCounts(agentInstanceService.countInstancesByStatus());
+        return current;
+    }
+
+    /**
+     * 内部计数，任务计数可并发增量更新
+     */
+    private static class Counts {
+        private final long loadedAt = System.currentTimeMillis();
+        private final long definitionCount;
+        private volatile Map<AgentInstance.InstanceStatus, Long> instanceCounts;
+        private final Map<Task.TaskStatus, AtomicLong> taskCounts = new EnumMap<>(Task.TaskStatus.class);
+
+        Counts(long definitionCount, Map<AgentInstance.InstanceStatus, Long> instanceCounts,
+               Map<Task.TaskStatus, Long> taskCounts) {
+            this.definitionCount = definitionCount;
+            replaceInstanceCounts(instanceCounts);
+            for (Task.TaskStatus status : Task.TaskStatus.values()) {
+                this.taskCounts.put(status, new AtomicLong(taskCounts.getOrDefault(status, 0L)));
+            }
+        }
+
+        void replaceInstanceCounts(Map<AgentInstance.InstanceStatus, Long> loaded) {
+            Map<AgentInstance.InstanceStatus, Long> copy = new EnumMap<>(AgentInstance.InstanceStatus.class);
+            for (AgentInstance.InstanceStatus status : AgentInstance.InstanceStatus.values()) {
+                copy.put(status, loaded.getOrDefault(status, 0L));
+            }
+            this.instanceCounts = copy;
+        }
+
+        Snapshot toSnapshot() {
+            Snapshot snapshot = new Snapshot();
+            snapshot.setLoadedAt(loadedAt);
+            snapshot.setDefinitionCount(definitionCount);
+            snapshot.setInstanceCounts(new EnumMap<>(instanceCounts));
+            Map<Task.TaskStatus, Long> tasks = new EnumMap<>(Task.TaskStatus.class);
+            taskCounts.forEach((status, count) -> tasks.put(status, Math.max(0, count.get())));
+            snapshot.setTaskCounts(tasks);
+            return snapshot;
+        }
+    }
+
+    /**
+     * 统计快照
+     */
+    public static class Snapshot {
+        private long loadedAt;
+        private long definitionCount;
+        private Map<AgentInstance.InstanceStatus, Long> instanceCounts;
+        private Map<Task.TaskStatus, Long> taskCounts;
+
+        public long getInstanceCount(AgentInstance.InstanceStatus status) {
+            return instanceCounts.getOrDefault(status, 0L);
+        }
+
+        public long getTotalInstances() {
+            return instanceCounts.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        public long getTaskCount(Task.TaskStatus status) {
+            return taskCounts.getOrDefault(status, 0L);
+        }
+
+        public long getTotalTasks() {
+            return taskCounts.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        // Getters and Setters
+        public long getLoadedAt() { return loadedAt; }
+        public void setLoadedAt(long loadedAt) { this.loadedAt = loadedAt; }
+        public long getDefinitionCount() { return definitionCount; }
+        public void setDefinitionCount(long definitionCount) { this.definitionCount = definitionCount; }
+        public Map<AgentInstance.InstanceStatus, Long> getInstanceCounts() { return instanceCounts; }
+        public void setInstanceCounts(Map<AgentInstance.InstanceStatus, Long> instanceCounts) { this.instanceCounts = instanceCounts; }
+        public Map<Task.TaskStatus, Long> getTaskCounts() { return taskCounts; }
+        public void setTaskCounts(Map<Task.TaskStatus, Long> taskCounts) { this.taskCounts = taskCounts; }
+    }
+}
@@ -2,17 +2,15 @@ package com.agent.platform.agent.engine;
 
 import com.agent.platform.agent.entity.Task;
 import com.agent.platform.agent.entity.AgentInstance;
-import com.agent.platform.agent.entity.Message;
 import com.agent.platform.agent.service.TaskService;
-import com.agent.platform.agent.service.MessageService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 /**
  * 任务执行器 - 负责具体任务的执行
@@ -24,52 +22,121 @@ public class AgentTaskExecutor {
     private TaskService taskService;
 
     @Autowired
-    private MessageService messageService;
+    private AgentProcessor agentProcessor;
 
     @Autowired
-    private AgentProcessor agentProcessor;
+    private TaskTimeoutTracker timeoutTracker;
+
+    @Autowired
+    private TaskBulkheadExecutor bulkheadExecutor;
+
+    @Autowired
+    private CollaborationCoordinator collaborationCoordinator;
+
+    @Autowired
+    private TaskGraphExecutor taskGraphExecutor;
 
-    // 线程池
-    private final ExecutorService executorService = Executors.newCachedThreadPool();
+    @Autowired
+    private AgentHeartbeatTracker heartbeatTracker;
     
     // 任务执行状态跟踪
     private final Map<Long, Future<?>> executingTasks = new ConcurrentHashMap<>();
 
+    // 执行中任务所属的智能体实例
+    private final Map<Long, Long> executingTaskInstances = new ConcurrentHashMap<>();
+
+    /**
+     * 为任务占用执行名额，调用 {@link #executeTask} 前必须成功占用
+     */
+    public boolean tryReserve(Task task, long waitMs) throws InterruptedException {
+        return bulkheadExecutor.tryReserve(task.getTaskType(), waitMs);
+    }
+
+    /**
+     * 释放已占用但未提交执行的名额
+     */
+    public void releaseReservation(Task task) {
+        bulkheadExecutor.release(task.getTaskType());
+    }
+
+    /**
+     * 记录任务因执行名额不足被拒绝或延后
+     */
+    public void recordRejected(Task task) {
+        bulkheadExecutor.recordRejected(task.getTaskType());
+    }
+
     /**
-     * 执行任务
+     * 执行任务（需已通过 {@link #tryReserve} 占用名额）
+     *
+     * @throws TaskRejectedException 执行器已关闭
      */
     public void executeTask(Task task, AgentInstance agentInstance) {
-        Future<?> future = executorService.submit(() -> {
+        Long taskId = task.getId();
+        FutureTask<Void> future = new FutureTask<>(() -> {
+            boolean finished = false;
             try {
                 // 执行任务逻辑
                 String result = processTask(task, agentInstance);
                 
-                // 完成任务
-                taskService.completeTask(task.getId(), result);
-                
-                System.out.println("任务执行完成: " + task.getId());
+                // 完成任务（协作任务和父任务返回null，由协作协调器或任务图执行器完成）
+                if (result != null) {
+                    finished = true;
+                    taskService.completeTask(taskId, result);
+                    System.out.println("任务执行完成: " + taskId);
+                }
                 
             } catch (Exception e) {
-                System.err.println("任务执行失败: " + task.getId() + " - " + e.getMessage());
+                finished = true;
+                System.err.println("任务执行失败: " + taskId + " - " + e.getMessage());
                 try {
-                    taskService.failTask(task.getId(), "执行失败: " + e.getMessage());
+                    taskService.failTask(taskId, "执行失败: " + e.getMessage());
                 } catch (Exception ex) {
                     System.err.println("更新任务状态失败: " + ex.getMessage());
                 }
             } finally {
-                // 从执行中任务中移除
-                executingTasks.remove(task.getId());
+                removeExecuting(taskId);
+                // 协作任务和父任务仍在运行中，保留超时跟踪，结束时由任务结束事件取消
+                if (finished) {
+                    timeoutTracker.cancel(taskId);
+                }
+                heartbeatTracker.recordHeartbeat(agentInstance.getId());
             }
-        });
-        
-        // 记录执行中的任务
-        executingTasks.put(task.getId(), future);
+        }, null);
+
+        // 提交前登记，避免工作线程先结束导致登记残留
+        executingTasks.put(taskId, future);
+        executingTaskInstances.put(taskId, agentInstance.getId());
+        try {
+            bulkheadExecutor.submit(task.getTaskType(), future);
+        } catch (RuntimeException e) {
+            removeExecuting(taskId);
+            throw e;
+        }
+    }
+
+    /**
+     * 任务结束（完成、失败、取消、超时）后取消超时跟踪（事务提交后执行）
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskFinished(TaskFinishedEvent event) {
+        timeoutTracker.cancel(event.getTaskId());
+    }
+
+    private void removeExecuting(Long taskId) {
+        executingTasks.remove(taskId);
+        executingTaskInstances.remove(taskId);
     }
 
     /**
      * 处理任务逻辑
      */
     private String processTask(Task task, AgentInstance agentInstance) throws Exception {
+        // 顺序/并行父任务由任务图执行器提交子任务，子任务全部结束后完成父任务
+        if (taskGraphExecutor.startGraph(task)) {
+            return null;
+        }
+
         // 根据任务类型执行不同的处理逻辑
         switch (task.getTaskType()) {
             case TEXT_PROCESSING:
@@ -126,31 +193,28 @@ public class AgentTaskExecutor {
      * 处理协作任务
      */
     private String processCollaborativeTask(Task task, AgentInstance agentInstance) throws Exception {
-        // 获取参与协作的智能体列表
-        @SuppressWarnings("unchecked")
-        java.util.List<Long> participantAgents = (java.util.List<Long>) 
-                task.getParameters().get("participantAgents");
-        
-        if (participantAgents == null || participantAgents.isEmpty()) {
-            throw new IllegalArgumentException("协作任务缺少参与者信息");
+        // 获取参与协作的智能体列表（参数从数据库 JSON 读取后数值可能被反序列化为 Integer）
+        Map<String, Object> parameters = task.getParameters() != null ? task.getParameters() : Map.of();
+        Object participants = parameters.get("participantAgents");
+        if (participants == null) {
+            participants = parameters.get("collaborativeAgents");
         }
-        
-        // 创建协作消息
-        Message collaborationMessage = new Message();
-        collaborationMessage.setSenderId(agentInstance.getId());
-        collaborationMessage.setContent(task.getInput());
-        collaborationMessage.setMessageType("COLLABORATION_REQUEST");
-        
-        // 向所有参与者发送消息
-        for (Long participantId : participantAgents) {
-            if (!participantId.equals(agentInstance.getId())) {
-                collaborationMessage.setReceiverId(participantId);
-                messageService.sendMessage(collaborationMessage);
+        java.util.List<Long> participantAgents = new java.util.ArrayList<>();
+        if (participants instanceof java.util.Collection<?> collection) {
+            for (Object participant : collection) {
+                if (participant instanceof Number number) {
+                    participantAgents.add(number.longValue());
+                }
             }
         }
         
-        // 等待协作结果（简化实现）
-        return "协作任务已启动，等待参与者响应";
+        if (participantAgents.isEmpty()) {
+            throw new IllegalArgumentException("协作任务缺少参与者信息");
+        }
+        
+        // 分发协作请求后立即返回，不占用执行线程等待响应
+        collaborationCoordinator.start(task, agentInstance, participantAgents);
+        return null;
     }
 
     /**
@@ -168,11 +232,18 @@ public class AgentTaskExecutor {
      * 取消任务执行
      */
     public boolean cancelTask(Long taskId) {
+        // 等待响应中的协作任务不占用执行线程，直接结束协作
+        if (collaborationCoordinator.cancel(taskId)) {
+            System.out.println("协作任务已取消: " + taskId);
+            return true;
+        }
+
         Future<?> future = executingTasks.get(taskId);
         if (future != null && !future.isDone()) {
             boolean cancelled = future.cancel(true);
             if (cancelled) {
                 executingTasks.remove(taskId);
+                executingTaskInstances.remove(taskId);
                 System.out.println("任务已取消: " + taskId);
             }
             return cancelled;
@@ -180,6 +251,19 @@ public class AgentTaskExecutor {
         return false;
     }
 
+    /**
+     * 取消指定智能体实例的所有执行中任务
+     */
+    public int cancelTasksForInstance(Long agentInstanceId) {
+        int cancelled = 0;
+        for (Map.Entry<Long, Long> entry : executingTaskInstances.entrySet()) {
+            if (entry.getValue().equals(agentInstanceId) && cancelTask(entry.getKey())) {
+                cancelled++;
+            }
+        }
+        return cancelled;
+    }
+
     /**
      * 获取执行中的任务数量
      */
@@ -201,22 +285,21 @@ public class AgentTaskExecutor {
     public void stopAllTasks() {
         executingTasks.values().forEach(future -> future.cancel(true));
         executingTasks.clear();
+        executingTaskInstances.clear();
         System.out.println("所有任务执行已停止");
     }
 
     /**
-     * 关闭执行器
+     * 获取各任务类型的执行舱壁统计
+     */
+    public java.util.List<TaskBulkheadExecutor.BulkheadStats> getExecutorStats() {
+        return bulkheadExecutor.getBulkheadStats();
+    }
+
+    /**
+     * 关闭执行器（线程池由 {@link TaskBulkheadExecutor} 随容器关闭）
      */
     public void shutdown() {
         stopAllTasks();
-        executorService.shutdown();
-        try {
-            if (!executorService.awaitTermination(5, java.util.concurrent.TimeUnit.SECONDS)) {
-                executorService.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            executorService.shutdownNow();
-            Thread.currentThread().interrupt();
-        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.agent.platform.agent.engine;
+
+import lombok.Data;
+
+/**
+ * 分布式任务分发消息
+ * 任务（包括参数）已持久化，消息只携带任务ID和分区、排序所需的字段，消费时从数据库读取任务
+ */
+@Data
+public class AgentTaskMessage {
+
+    private Long taskId;
+
+    private Long agentInstanceId;
+
+    // 任务优先级（1为最高）
+    private Integer priority;
+
+    private Long publishedAt;
+}
@@ -0,0 +1,27 @@
+package com.agent.platform.agent.engine;
+
+import java.util.function.Consumer;
+
+/**
+ * 分布式任务分发传输层
+ * 启用后任务不再进入本机队列，而是发布到消息队列，由各节点消费并分发给本机执行器
+ */
+public interface AgentTaskTransport {
+
+    /**
+     * 发布待执行的任务
+     */
+    void publish(AgentTaskMessage message);
+
+    /**
+     * 开始消费任务消息
+     *
+     * @param handler 消息处理器，正常返回即确认，抛出异常则重新入队
+     */
+    void start(Consumer<AgentTaskMessage> handler);
+
+    /**
+     * 停止消费
+     */
+    void stop();
+}
@@ -0,0 +1,54 @@
+package com.agent.platform.agent.engine;
+
+import com.agent.platform.agent.entity.AgentInstance;
+
+import java.util.Map;
+
+/**
+ * 智能体类型处理策略，按 AgentDefinition.AgentType 注册到 AgentProcessor
+ */
+@FunctionalInterface
+public interface AgentTypeProcessor {
+
+    /**
+     * 处理一次请求，返回智能体的回复
+     */
+    String process(AgentInstance agentInstance, AgentRequest request);
+
+    /**
+     * 请求类型
+     */
+    enum RequestKind {
+        TEXT,           // 文本任务
+        DATA_ANALYSIS,  // 数据分析任务
+        DECISION,       // 决策任务
+        GENERIC_TASK,   // 通用任务
+        MESSAGE,        // 对话消息
+        COLLABORATION   // 协作请求
+    }
+
+    /**
+     * 处理请求
+     */
+    class AgentRequest {
+        private final RequestKind kind;
+        private final String input;
+        private final Map<String, Object> parameters;
+        // 会话上下文，任务请求为 null
+        private final AgentMemoryStore.ContextWindow context;
+
+        public AgentRequest(RequestKind kind, String input, Map<String, Object> parameters,
+                            AgentMemoryStore.ContextWindow context) {
+            this.kind = kind;
+            this.input = input;
+            this.parameters = parameters != null ? parameters : Map.of();
+            this.context = context;
+        }
+
+        // Getters
+        public RequestKind getKind() { return kind; }
+        public String getInput() { return input; }
+        public Map<String, Object> getParameters() { return parameters; }
+        public AgentMemoryStore.ContextWindow getContext() { return context; }
+    }
+}
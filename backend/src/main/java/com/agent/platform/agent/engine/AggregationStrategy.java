@@ -0,0 +1,83 @@
+package com.agent.platform.agent.engine;
+
+/**
+ * 协作结果聚合策略
+ * 决定协作任务在收到多少响应后完成，以及超时时已收到的响应是否足以完成任务
+ */
+public interface AggregationStrategy {
+
+    /**
+     * 策略名称
+     */
+    String getName();
+
+    /**
+     * 已收到的响应是否足以立即完成任务
+     */
+    boolean isComplete(int received, int expected);
+
+    /**
+     * 超时时已收到的响应是否可以作为成功结果
+     */
+    boolean acceptOnTimeout(int received, int expected);
+
+    /**
+     * 全部参与者响应
+     */
+    static AggregationStrategy all() {
+        return of("all", (received, expected) -> received >= expected, (received, expected) -> false);
+    }
+
+    /**
+     * 达到法定数量（默认过半）即完成
+     */
+    static AggregationStrategy quorum(int quorum) {
+        return of("quorum",
+                (received, expected) -> received >= resolveQuorum(quorum, expected),
+                (received, expected) -> received >= resolveQuorum(quorum, expected));
+    }
+
+    /**
+     * 收到前 N 个响应即完成
+     */
+    static AggregationStrategy firstN(int n) {
+        return of("first-n",
+                (received, expected) -> received >= Math.min(Math.max(1, n), expected),
+                (received, expected) -> false);
+    }
+
+    /**
+     * 在截止时间前尽量收集，全部响应或超时后以已收到的响应完成（至少一个）
+     */
+    static AggregationStrategy timeoutBounded() {
+        return of("timeout", (received, expected) -> received >= expected, (received, expected) -> received > 0);
+    }
+
+    private static int resolveQuorum(int quorum, int expected) {
+        return quorum > 0 ? Math.min(quorum, expected) : expected / 2 + 1;
+    }
+
+    private static AggregationStrategy of(String name, Condition complete, Condition acceptOnTimeout) {
+        return new AggregationStrategy() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public boolean isComplete(int received, int expected) {
+                return complete.test(received, expected);
+            }
+
+            @Override
+            public boolean acceptOnTimeout(int received, int expected) {
+                return acceptOnTimeout.test(received, expected);
+            }
+        };
+    }
+
+    @FunctionalInterface
+    interface Condition {
+        boolean test(int received, int expected);
+    }
+}
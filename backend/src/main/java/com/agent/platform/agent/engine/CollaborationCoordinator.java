@@ -0,0 +1,333 @@
+package com.agent.platform.agent.engine;
+
+import com.agent.platform.agent.entity.AgentInstance;
+import com.agent.platform.agent.entity.Message;
+import com.agent.platform.agent.entity.Task;
+import com.agent.platform.agent.service.MessageService;
+import com.agent.platform.agent.service.TaskService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 协作任务协调器 - 分散/聚合（scatter-gather）
+ * 向所有参与者发送协作请求（经各自邮箱并行处理），以父任务ID作为关联ID跟踪待响应的参与者，
+ * 响应通过消息路由回到发起者时按聚合策略判断是否完成。等待期间不占用线程，
+ * 截止时间由调度线程触发。
+ *
+ * 任务参数：
+ * aggregation - 聚合策略 all / quorum / first-n / timeout，默认 all
+ * aggregationCount - quorum 的法定数量或 first-n 的 N
+ * collaborationTimeoutMs - 等待响应的截止时间
+ */
+@Component
+public class CollaborationCoordinator {
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private MessageRouter messageRouter;
+
+    @Autowired
+    private AgentProcessor agentProcessor;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // 默认等待响应的时间
+    @Value("${app.agent.collaboration.default-timeout-ms:300000}")
+    private long defaultTimeoutMs;
+
+    // 聚合策略注册表，可通过 registerStrategy 扩展
+    private final Map<String, Function<Map<String, Object>, AggregationStrategy>> strategies = new ConcurrentHashMap<>();
+
+    // 进行中的协作，按父任务ID索引
+    private final Map<Long, Gathering> gatherings = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService deadlineThread = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "collaboration-deadline");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init() {
+        registerStrategy("all", parameters -> AggregationStrategy.all());
+        registerStrategy("quorum", parameters -> AggregationStrategy.quorum(intParameter(parameters, "aggregationCount", 0)));
+        registerStrategy("first-n", parameters -> AggregationStrategy.firstN(intParameter(parameters, "aggregationCount", 1)));
+        registerStrategy("timeout", parameters -> AggregationStrategy.timeoutBounded());
+
+        // 协作响应以结果消息回到发起者
+        messageRouter.registerMessageHandler(Message.MessageType.RESULT.name(), this::handleResultMessage);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        deadlineThread.shutdownNow();
+    }
+
+    /**
+     * 注册聚合策略
+     */
+    public void registerStrategy(String name, Function<Map<String, Object>, AggregationStrategy> factory) {
+        strategies.put(name.toLowerCase(), factory);
+    }
+
+    /**
+     * 发起协作：向参与者分发请求后立即返回，父任务在聚合完成或超时后结束
+     */
+    public void start(Task task, AgentInstance initiator, Collection<Long> participantIds) {
+        Map<String, Object> parameters = task.getParameters() != null ? task.getParameters() : Map.of();
+        AggregationStrategy strategy = resolveStrategy(parameters);
+
+        Set<Long> participants = new LinkedHashSet<>(participantIds);
+        participants.remove(initiator.getId());
+        if (participants.isEmpty()) {
+            throw new IllegalArgumentException("协作任务缺少其他参与者");
+        }
+
+        Gathering gathering = new Gathering(task.getId(), initiator.getId(), participants, strategy);
+        if (gatherings.putIfAbsent(task.getId(), gathering) != null) {
+            throw new IllegalStateException("协作任务已在进行中: " + task.getId());
+        }
+
+        // 分散：每个参与者一条独立的请求消息，由各自邮箱并行处理
+        for (Long participantId : participants) {
+            try {
+                Message request = new Message();
+                request.setSenderId(initiator.getId());
+                request.setReceiverId(participantId);
+                request.setContent(task.getInput());
+                request.setType(Message.MessageType.QUERY);
+                request.setRequiresReply(true);
+                request.setTask(task);
+
+                Message sent = messageService.sendMessage(request);
+                messageRouter.routeMessage(sent);
+            } catch (Exception e) {
+                System.err.println("协作请求发送失败: " + task.getId() + " -> " + participantId + " - " + e.getMessage());
+                gathering.recordFailure(participantId, e.getMessage());
+            }
+        }
+
+        long timeoutMs = longParameter(parameters, "collaborationTimeoutMs", defaultTimeoutMs);
+        gathering.deadline = deadlineThread.schedule(() -> onDeadline(task.getId()), timeoutMs, TimeUnit.MILLISECONDS);
+
+        System.out.println("协作任务已分发: " + task.getId() + "，参与者: " + participants.size() + "，策略: " + strategy.getName());
+        evaluate(gathering);
+    }
+
+    /**
+     * 取消协作（父任务被取消或超时时调用）
+     */
+    public boolean cancel(Long taskId) {
+        Gathering gathering = gatherings.remove(taskId);
+        if (gathering == null) {
+            return false;
+        }
+        if (gathering.deadline != null) {
+            gathering.deadline.cancel(false);
+        }
+        return true;
+    }
+
+    /**
+     * 进行中的协作数量
+     */
+    public int getActiveCount() {
+        return gatherings.size();
+    }
+
+    /**
+     * 处理结果消息：属于进行中协作的响应计入聚合，其他结果消息交给智能体处理器
+     */
+    private void handleResultMessage(Message message, AgentInstance receiver) {
+        Long taskId = message.getTask() != null ? message.getTask().getId() : null;
+        Gathering gathering = taskId != null ? gatherings.get(taskId) : null;
+        if (gathering == null || !gathering.initiatorId.equals(receiver.getId())) {
+            agentProcessor.processTaskResult(receiver, message.getContent());
+            return;
+        }
+
+        gathering.recordResponse(message.getSenderId(), message.getContent());
+        evaluate(gathering);
+    }
+
+    /**
+     * 检查是否满足完成条件；所有参与者都已响应或失败但仍不满足时判定失败
+     */
+    private void evaluate(Gathering gathering) {
+        int received;
+        int settled;
+        synchronized (gathering) {
+            received = gathering.responses.size();
+            settled = received + gathering.failures.size();
+        }
+        int expected = gathering.participants.size();
+
+        if (gathering.strategy.isComplete(received, expected)) {
+            finish(gathering, true, null);
+        } else if (settled >= expected) {
+            finish(gathering, gathering.strategy.acceptOnTimeout(received, expected), "参与者响应不足");
+        }
+    }
+
+    private void onDeadline(Long taskId) {
+        Gathering gathering = gatherings.get(taskId);
+        if (gathering == null) {
+            return;
+        }
+        int received;
+        synchronized (gathering) {
+            received = gathering.responses.size();
+        }
+        finish(gathering, gathering.strategy.acceptOnTimeout(received, gathering.participants.size()), "等待协作响应超时");
+    }
+
+    /**
+     * 聚合结果并结束父任务，只执行一次
+     */
+    private void finish(Gathering gathering, boolean success, String reason) {
+        if (!gatherings.remove(gathering.taskId, gathering)) {
+            return;
+        }
+        if (gathering.deadline != null) {
+            gathering.deadline.cancel(false);
+        }
+
+        String result = aggregate(gathering, success, reason);
+        try {
+            if (success) {
+                taskService.completeTask(gathering.taskId, result);
+            } else {
+                taskService.failTask(gathering.taskId, result);
+            }
+            System.out.println("协作任务已结束: " + gathering.taskId + (success ? " 成功" : " 失败: " + reason));
+        } catch (Exception e) {
+            // 任务可能已被取消或超时
+            System.err.println("更新协作任务状态失败: " + gathering.taskId + " - " + e.getMessage());
+        }
+    }
+
+    private String aggregate(Gathering gathering, boolean success, String reason) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        synchronized (gathering) {
+            summary.put("strategy", gathering.strategy.getName());
+            summary.put("success", success);
+            if (reason != null && !success) {
+                summary.put("reason", reason);
+            }
+            summary.put("expected", gathering.participants.size());
+            summary.put("received", gathering.responses.size());
+
+            List<Map<String, Object>> responses = new ArrayList<>();
+            gathering.responses.forEach((participantId, content) -> {
+                Map<String, Object> response = new LinkedHashMap<>();
+                response.put("agentInstanceId", participantId);
+                response.put("content", content);
+                responses.add(response);
+            });
+            summary.put("responses", responses);
+
+            List<Long> missing = new ArrayList<>(gathering.participants);
+            missing.removeAll(gathering.responses.keySet());
+            summary.put("missing", missing);
+            if (!gathering.failures.isEmpty()) {
+                summary.put("failures", new LinkedHashMap<>(gathering.failures));
+            }
+        }
+        try {
+            return objectMapper.writeValueAsString(summary);
+        } catch (JsonProcessingException e) {
+            return summary.toString();
+        }
+    }
+
+    private AggregationStrategy resolveStrategy(Map<String, Object> parameters) {
+        Object name = parameters.get("aggregation");
+        String key = name != null ? name.toString().toLowerCase() : "all";
+        Function<Map<String, Object>, AggregationStrategy> factory = strategies.get(key);
+        if (factory == null) {
+            throw new IllegalArgumentException("不支持的聚合策略: " + key);
+        }
+        return factory.apply(parameters);
+    }
+
+    private static int intParameter(Map<String, Object> parameters, String key, int defaultValue) {
+        Object value = parameters.get(key);
+        if (value instanceof Number number) {
+            return number.intValue();
+        }
+        if (value instanceof String text && !text.isBlank()) {
+            return Integer.parseInt(text.trim());
+        }
+        return defaultValue;
+    }
+
+    private static long longParameter(Map<String, Object> parameters, String key, long defaultValue) {
+        Object value = parameters.get(key);
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        if (value instanceof String text && !text.isBlank()) {
+            return Long.parseLong(text.trim());
+        }
+        return defaultValue;
+    }
+
+    /**
+     * 一次协作的聚合状态
+     */
+    private static class Gathering {
+        private final Long taskId;
+        private final Long initiatorId;
+        private final Set<Long> participants;
+        private final AggregationStrategy strategy;
+        // 按到达顺序记录的响应，每个参与者只计一次
+        private final Map<Long, String> responses = new LinkedHashMap<>();
+        private final Map<Long, String> failures = new LinkedHashMap<>();
+        private volatile ScheduledFuture<?> deadline;
+
+        Gathering(Long taskId, Long initiatorId, Set<Long> participants, AggregationStrategy strategy) {
+            this.taskId = taskId;
+            this.initiatorId = initiatorId;
+            this.participants = participants;
+            this.strategy = strategy;
+        }
+
+        synchronized void recordResponse(Long participantId, String content) {
+            if (participants.contains(participantId) && !responses.containsKey(participantId)) {
+                failures.remove(participantId);
+                responses.put(participantId, content);
+            }
+        }
+
+        synchronized void recordFailure(Long participantId, String error) {
+            if (!responses.containsKey(participantId)) {
+                failures.put(participantId, error);
+            }
+        }
+    }
+}
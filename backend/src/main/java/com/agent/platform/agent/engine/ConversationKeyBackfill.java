@@ -0,0 +1,64 @@
+package com.agent.platform.agent.engine;
+
+import com.agent.platform.agent.service.MessageService;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 会话键回填
+ * 新消息在保存时写入会话键，启动后由后台线程按ID范围分批为历史消息回填，
+ * 每批一个短事务，避免长时间锁表。回填完成前历史消息不会出现在会话查询中。
+ */
+@Component
+public class ConversationKeyBackfill {
+
+    @Autowired
+    private MessageService messageService;
+
+    // 每批处理的ID范围
+    @Value("${app.agent.message.backfill-batch-size:5000}")
+    private int batchSize;
+
+    private final ExecutorService backfillThread = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "conversation-key-backfill");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        backfillThread.execute(this::backfill);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        backfillThread.shutdownNow();
+    }
+
+    private void backfill() {
+        try {
+            // 回填完成后不再扫描消息表
+            Long minId = messageService.getMinMessageIdWithoutConversationKey();
+            if (minId == null) {
+                return;
+            }
+            long maxId = messageService.getMaxMessageId();
+            long updated = 0;
+            for (long fromId = minId; fromId <= maxId && !Thread.currentThread().isInterrupted(); fromId += batchSize) {
+                updated += messageService.backfillConversationKeys(fromId, fromId + batchSize - 1);
+            }
+            if (updated > 0) {
+                System.out.println("会话键回填完成，更新消息: " + updated);
+            }
+        } catch (Exception e) {
+            System.err.println("会话键回填失败: " + e.getMessage());
+        }
+    }
+}
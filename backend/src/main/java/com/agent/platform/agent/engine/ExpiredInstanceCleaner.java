@@ -0,0 +1,145 @@
+package com.agent.platform.agent.engine;
+
+import com.agent.platform.agent.service.AgentInstanceService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 过期实例清理器
+ * 按 cron 在低峰时段运行，把超过保留期的已停止/错误实例连同其任务和消息分批删除，
+ * 每批一个短事务，批间暂停以降低对在线业务的影响；超过运行窗口时停止，剩余部分下次继续。
+ * 每次运行结束后输出删除行数和每秒删除行数。
+ */
+@Component
+public class ExpiredInstanceCleaner {
+
+    @Autowired
+    private AgentInstanceService agentInstanceService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.agent.cleanup.enabled:true}")
+    private boolean enabled;
+
+    // 运行时间（低峰时段）
+    @Value("${app.agent.cleanup.cron:0 0 3 * * *}")
+    private String cron;
+
+    // 最后活跃时间早于保留期的实例才会清理
+    @Value("${app.agent.cleanup.retention-days:7}")
+    private int retentionDays;
+
+    // 每批清理的实例数
+    @Value("${app.agent.cleanup.batch-size:200}")
+    private int batchSize;
+
+    // 批间暂停
+    @Value("${app.agent.cleanup.batch-pause-ms:100}")
+    private long batchPauseMs;
+
+    // 单次运行的最长时间
+    @Value("${app.agent.cleanup.max-duration-ms:1800000}")
+    private long maxDurationMs;
+
+    private CronExpression cronExpression;
+
+    private Counter deletedCounter;
+
+    // 最近一次运行结果
+    private final AtomicReference<AgentInstanceService.CleanupResult> lastResult = new AtomicReference<>();
+
+    private final ScheduledExecutorService cleanupThread = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "instance-cleanup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init() {
+        cronExpression = CronExpression.parse(cron);
+        deletedCounter = Counter.builder("agent.instance.cleanup.deleted_rows").register(meterRegistry);
+        Gauge.builder("agent.instance.cleanup.rows_per_second", lastResult,
+                        ref -> ref.get() != null ? ref.get().getRowsPerSecond() : 0)
+                .register(meterRegistry);
+
+        if (enabled) {
+            scheduleNext();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cleanupThread.shutdownNow();
+    }
+
+    /**
+     * 执行一次清理，返回删除的行数和耗时
+     */
+    public synchronized AgentInstanceService.CleanupResult cleanup() {
+        LocalDateTime expireTime = LocalDateTime.now().minusDays(retentionDays);
+        AgentInstanceService.CleanupResult total = new AgentInstanceService.CleanupResult();
+        long startNanos = System.nanoTime();
+        long deadlineNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(maxDurationMs);
+
+        try {
+            while (System.nanoTime() < deadlineNanos) {
+                AgentInstanceService.CleanupResult batch = agentInstanceService.cleanupExpiredInstances(expireTime, batchSize);
+                total.add(batch);
+                deletedCounter.increment(batch.getTotalRows());
+                if (batch.getInstances() < batchSize) {
+                    break;
+                }
+                if (batchPauseMs > 0) {
+                    Thread.sleep(batchPauseMs);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("清理过期实例失败: " + e.getMessage());
+        }
+
+        total.setElapsedMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        lastResult.set(total);
+        System.out.println(String.format("过期实例清理完成: 实例 %d, 任务 %d, 消息 %d, 耗时 %d ms, %.1f 行/秒",
+                total.getInstances(), total.getTasks(), total.getMessages(), total.getElapsedMs(), total.getRowsPerSecond()));
+        return total;
+    }
+
+    /**
+     * 最近一次运行结果，尚未运行时返回 null
+     */
+    public AgentInstanceService.CleanupResult getLastResult() {
+        return lastResult.get();
+    }
+
+    private void scheduleNext() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime next = cronExpression.next(now);
+        if (next == null) {
+            return;
+        }
+        cleanupThread.schedule(() -> {
+            try {
+                cleanup();
+            } finally {
+                scheduleNext();
+            }
+        }, Duration.between(now, next).toMillis(), TimeUnit.MILLISECONDS);
+    }
+}
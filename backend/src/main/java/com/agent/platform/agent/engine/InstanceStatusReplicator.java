@@ -0,0 +1,20 @@
+package com.agent.platform.agent.engine;
+
+import java.util.function.Consumer;
+
+/**
+ * 实例状态失效事件的跨节点复制
+ * 某节点上实例状态变化后广播实例ID，其他节点收到后使本地缓存失效，下次访问时从数据库重新加载
+ */
+public interface InstanceStatusReplicator {
+
+    /**
+     * 广播实例状态失效事件
+     */
+    void publishInvalidation(Long instanceId);
+
+    /**
+     * 订阅其他节点的失效事件（不包含本节点发出的事件）
+     */
+    void subscribe(Consumer<Long> listener);
+}
@@ -0,0 +1,101 @@
+package com.agent.platform.agent.engine;
+
+import com.agent.platform.agent.entity.AgentDefinition;
+import com.agent.platform.agent.entity.AgentInstance;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基于大模型的智能体类型处理策略
+ * 系统提示词由智能体定义（systemPrompt / roleDefinition）、类型角色说明和请求说明组成，
+ * 对话请求附带会话记忆中的摘要和最近轮次。
+ */
+public class LlmAgentTypeProcessor implements AgentTypeProcessor {
+
+    private final ModelClientPool modelClientPool;
+
+    // 智能体类型的角色说明
+    private final String typeInstruction;
+
+    public LlmAgentTypeProcessor(ModelClientPool modelClientPool, String typeInstruction) {
+        this.modelClientPool = modelClientPool;
+        this.typeInstruction = typeInstruction;
+    }
+
+    @Override
+    public String process(AgentInstance agentInstance, AgentRequest request) {
+        AgentDefinition definition = agentInstance.getAgentDefinition();
+        List<ChatMessage> messages = new ArrayList<>();
+        messages.add(SystemMessage.from(systemPrompt(definition, request)));
+
+        AgentMemoryStore.ContextWindow context = request.getContext();
+        if (context != null) {
+            for (AgentMemoryStore.Turn turn : context.getTurns()) {
+                messages.add("agent".equals(turn.getRole())
+                        ? AiMessage.from(turn.getContent())
+                        : UserMessage.from(turn.getContent()));
+            }
+        }
+        messages.add(UserMessage.from(request.getInput()));
+
+        return modelClientPool.generate(definition, messages);
+    }
+
+    private String systemPrompt(AgentDefinition definition, AgentRequest request) {
+        StringBuilder prompt = new StringBuilder();
+        if (definition.getSystemPrompt() != null && !definition.getSystemPrompt().isBlank()) {
+            prompt.append(definition.getSystemPrompt().trim()).append("\n\n");
+        }
+        if (definition.getRoleDefinition() != null && !definition.getRoleDefinition().isBlank()) {
+            prompt.append("角色: ").append(definition.getRoleDefinition().trim()).append("\n");
+        }
+        prompt.append(typeInstruction).append("\n");
+        prompt.append(requestInstruction(request));
+
+        AgentMemoryStore.ContextWindow context = request.getContext();
+        if (context != null && context.getSummary() != null) {
+            prompt.append("\n\n此前对话摘要:\n").append(context.getSummary());
+        }
+        return prompt.toString();
+    }
+
+    /**
+     * 请求说明，文本任务按 operation 参数区分摘要、翻译、分类和分析
+     */
+    private static String requestInstruction(AgentRequest request) {
+        Map<String, Object> parameters = request.getParameters() != null ? request.getParameters() : Map.of();
+        switch (request.getKind()) {
+            case TEXT:
+                String operation = String.valueOf(parameters.getOrDefault("operation", "process")).toLowerCase();
+                switch (operation) {
+                    case "summarize":
+                        return "请为用户提供的文本写摘要，不超过 " + parameters.getOrDefault("maxLength", 100) + " 字。";
+                    case "translate":
+                        return "请把用户提供的文本翻译为 " + parameters.getOrDefault("targetLanguage", "en") + "，只输出译文。";
+                    case "classify":
+                        Object categories = parameters.get("categories");
+                        return "请对用户提供的文本进行分类" + (categories != null ? "，可选类别: " + categories : "") + "，输出类别和理由。";
+                    case "analyze":
+                        return "请分析用户提供的文本，给出主题、关键词和情感倾向。";
+                    default:
+                        return "请处理用户提供的文本。";
+                }
+            case DATA_ANALYSIS:
+                return "请分析用户提供的数据，给出统计特征、趋势和结论。";
+            case DECISION:
+                return "请根据用户提供的信息做出决策，列出备选方案并说明选择理由。";
+            case COLLABORATION:
+                return "你正在与其他智能体协作，请针对协作请求给出你负责部分的结果。";
+            case MESSAGE:
+                return "请回复用户的消息。";
+            default:
+                return "请完成用户提供的任务。";
+        }
+    }
+}
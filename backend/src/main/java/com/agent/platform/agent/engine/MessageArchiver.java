@@ -0,0 +1,108 @@
+package com.agent.platform.agent.engine;
+
+import com.agent.platform.agent.entity.Message;
+import com.agent.platform.agent.service.MessageArchiveService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 消息归档器
+ * 后台线程按固定间隔把超过保留期、处于完成状态的消息按会话压缩写入归档表并从消息表删除，
+ * 每批一个短事务，单次运行的批数有上限，避免与在线写入争抢。
+ * 归档后的会话消息由消息服务在会话查询和导出时回读。
+ */
+@Component
+public class MessageArchiver {
+
+    @Autowired
+    private MessageArchiveService messageArchiveService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.agent.message.archive.enabled:true}")
+    private boolean enabled;
+
+    // 保留期，早于该时间的消息才会归档
+    @Value("${app.agent.message.archive.retention-days:30}")
+    private int retentionDays;
+
+    // 可归档的消息状态（消息路由处理完成后标记为已送达）
+    @Value("${app.agent.message.archive.statuses:PROCESSED,READ,DELIVERED}")
+    private List<String> statusNames;
+
+    @Value("${app.agent.message.archive.batch-size:500}")
+    private int batchSize;
+
+    // 单次运行最多归档的批数
+    @Value("${app.agent.message.archive.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    @Value("${app.agent.message.archive.interval-ms:600000}")
+    private long intervalMs;
+
+    private Set<Message.MessageStatus> statuses;
+
+    private Counter archivedCounter;
+
+    private final ScheduledExecutorService archiveThread = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "message-archiver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init() {
+        statuses = EnumSet.noneOf(Message.MessageStatus.class);
+        for (String name : statusNames) {
+            statuses.add(Message.MessageStatus.valueOf(name.trim().toUpperCase()));
+        }
+        archivedCounter = Counter.builder("agent.message.archived").register(meterRegistry);
+
+        if (enabled) {
+            archiveThread.scheduleWithFixedDelay(this::archive, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        archiveThread.shutdownNow();
+    }
+
+    /**
+     * 执行一次归档，返回归档条数
+     */
+    public int archive() {
+        LocalDateTime before = LocalDateTime.now().minusDays(retentionDays);
+        int total = 0;
+        try {
+            for (int batch = 0; batch < maxBatchesPerRun && !Thread.currentThread().isInterrupted(); batch++) {
+                int archived = messageArchiveService.archiveMessages(statuses, before, batchSize);
+                total += archived;
+                archivedCounter.increment(archived);
+                if (archived < batchSize) {
+                    break;
+                }
+            }
+            if (total > 0) {
+                System.out.println("消息归档完成，归档消息: " + total);
+            }
+        } catch (Exception e) {
+            System.err.println("消息归档失败: " + e.getMessage());
+        }
+        return total;
+    }
+}
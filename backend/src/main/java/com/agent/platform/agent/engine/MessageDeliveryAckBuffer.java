@@ -0,0 +1,126 @@
+package com.agent.platform.agent.engine;
+
+import com.agent.platform.agent.service.MessageService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 消息送达确认缓冲
+ * 消息处理完成后只记录ID，由后台线程按固定间隔（或积压达到批量大小时）
+ * 用一条批量 UPDATE 标记为已送达。进程崩溃时未刷新的消息仍为已发送状态，
+ * 由消息路由器启动时重新投递，保证至少一次送达。
+ */
+@Component
+public class MessageDeliveryAckBuffer {
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 刷新间隔
+    @Value("${app.agent.message-router.ack-flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    // 单次批量更新的最大条数
+    @Value("${app.agent.message-router.ack-batch-size:500}")
+    private int batchSize;
+
+    private final ConcurrentLinkedQueue<Long> pendingIds = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final AtomicLong flushedCount = new AtomicLong();
+
+    private final ScheduledExecutorService flushThread = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "message-ack-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init() {
+        flushThread.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+
+        Gauge.builder("agent.message.ack.pending", pendingCount, AtomicInteger::get)
+                .register(meterRegistry);
+        FunctionCounter.builder("agent.message.ack.flushed", flushedCount, AtomicLong::get)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushThread.shutdown();
+        try {
+            flushThread.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * 记录消息已送达，等待批量刷新
+     */
+    public void ack(Long messageId) {
+        if (messageId == null) {
+            return;
+        }
+        pendingIds.add(messageId);
+        // 积压达到批量大小时提前刷新
+        if (pendingCount.incrementAndGet() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            try {
+                flushThread.execute(this::flush);
+            } catch (Exception e) {
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    /**
+     * 刷新积压的确认，更新失败时放回缓冲下次重试
+     */
+    public synchronized void flush() {
+        flushRequested.set(false);
+        while (!pendingIds.isEmpty()) {
+            List<Long> batch = new ArrayList<>(batchSize);
+            Long id;
+            while (batch.size() < batchSize && (id = pendingIds.poll()) != null) {
+                batch.add(id);
+            }
+            pendingCount.addAndGet(-batch.size());
+            try {
+                messageService.markMessagesAsDelivered(batch);
+                flushedCount.addAndGet(batch.size());
+            } catch (Exception e) {
+                System.err.println("批量更新消息送达状态失败: " + e.getMessage());
+                pendingIds.addAll(batch);
+                pendingCount.addAndGet(batch.size());
+                return;
+            }
+        }
+    }
+
+    /**
+     * 获取待刷新的确认数
+     */
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+}
@@ -0,0 +1,11 @@
+package com.agent.platform.agent.engine;
+
+/**
+ * 消息被拒绝异常 - 接收者邮箱已满时抛出，调用方应稍后重试
+ */
+public class MessageRejectedException extends IllegalStateException {
+
+    public MessageRejectedException(String message) {
+        super(message);
+    }
+}
@@ -3,37 +3,96 @@ package com.agent.platform.agent.engine;
 import com.agent.platform.agent.entity.Message;
 import com.agent.platform.agent.entity.AgentInstance;
 import com.agent.platform.agent.service.MessageService;
-import com.agent.platform.agent.service.AgentInstanceService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 消息路由器 - 负责消息的路由和传递
+ * 每个接收者一个邮箱（Actor 模型），邮箱在共享线程池上调度：
+ * 同一接收者的消息按到达顺序串行处理，不同接收者之间并行处理，
+ * 某个接收者处理缓慢不会阻塞其他接收者的消息。
  */
 @Component
 public class MessageRouter {
 
+    // 未指定接收者的消息使用的邮箱
+    private static final Long UNKNOWN_RECEIVER = 0L;
+
+    // 重新投递时每页读取的消息数
+    private static final int REDELIVERY_PAGE_SIZE = 500;
+
     @Autowired
     private MessageService messageService;
 
     @Autowired
-    private AgentInstanceService agentInstanceService;
+    private AgentInstanceRegistry instanceRegistry;
 
     @Autowired
     private AgentProcessor agentProcessor;
 
-    // 消息队列
-    private final BlockingQueue<Message> messageQueue = new LinkedBlockingQueue<>();
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private MessageDeliveryAckBuffer ackBuffer;
+
+    @Autowired
+    private AgentHeartbeatTracker heartbeatTracker;
+
+    // 启动时是否重新投递仍为已发送状态的消息（上次运行中未确认送达）
+    @Value("${app.agent.message-router.redeliver-on-start:true}")
+    private boolean redeliverOnStart;
+
+    // 启动重投租约时长，租约期内其他副本不重复投递同一条消息
+    @Value("${app.agent.message-router.redelivery-lease-ms:60000}")
+    private long redeliveryLeaseMs;
+
+    // 邮箱调度线程数
+    @Value("${app.agent.message-router.threads:8}")
+    private int routerThreads;
+
+    // 单个邮箱最多积压的消息数
+    @Value("${app.agent.message-router.mailbox-capacity:1000}")
+    private int mailboxCapacity;
+
+    // 邮箱已满时的处理策略：reject 拒绝新消息，drop-oldest 丢弃最早的消息，drop-newest 丢弃新消息
+    @Value("${app.agent.message-router.overflow-policy:reject}")
+    private String overflowPolicy;
+
+    // 邮箱每次被调度最多处理的消息数，处理完后让出线程，保证接收者之间的公平性
+    @Value("${app.agent.message-router.throughput:16}")
+    private int throughput;
+
+    // 接收者邮箱
+    private final Map<Long, Mailbox> mailboxes = new ConcurrentHashMap<>();
     
-    // 消息处理器线程池
-    private final ExecutorService routerThread = Executors.newSingleThreadExecutor();
+    // 邮箱调度线程池
+    private ExecutorService routerPool;
+
+    // 所有邮箱中积压的消息总数
+    private final AtomicInteger queuedCount = new AtomicInteger();
+
+    // 邮箱溢出被丢弃或拒绝的消息数
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
     
     // 运行标志
     private volatile boolean running = false;
@@ -41,6 +100,25 @@ public class MessageRouter {
     // 消息处理回调注册表
     private final Map<String, MessageHandler> messageHandlers = new ConcurrentHashMap<>();
 
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        routerPool = Executors.newFixedThreadPool(Math.max(1, routerThreads), r -> {
+            Thread thread = new Thread(r, "message-router-" + threadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("agent.message.router.queued", queuedCount, AtomicInteger::get)
+                .register(meterRegistry);
+        Gauge.builder("agent.message.router.mailboxes", mailboxes, Map::size)
+                .register(meterRegistry);
+        FunctionCounter.builder("agent.message.router.dropped", droppedCount, AtomicLong::get)
+                .register(meterRegistry);
+        FunctionCounter.builder("agent.message.router.rejected", rejectedCount, AtomicLong::get)
+                .register(meterRegistry);
+    }
+
     /**
      * 初始化消息路由器
      */
@@ -50,6 +128,8 @@ public class MessageRouter {
         registerMessageHandler("COLLABORATION_REQUEST", this::handleCollaborationRequest);
         registerMessageHandler("TASK_RESULT", this::handleTaskResult);
         registerMessageHandler("SYSTEM_NOTIFICATION", this::handleSystemNotification);
+        // 协作请求以查询消息发送，响应由协作协调器注册的结果消息处理器接收
+        registerMessageHandler(Message.MessageType.QUERY.name(), this::handleCollaborationRequest);
     }
 
     /**
@@ -61,7 +141,11 @@ public class MessageRouter {
         }
         
         running = true;
-        routerThread.submit(this::routeLoop);
+        if (redeliverOnStart) {
+            redeliverUnacknowledgedMessages();
+        }
+        // 启动前已到达的消息
+        mailboxes.values().forEach(this::schedule);
         System.out.println("消息路由器已启动");
     }
 
@@ -70,23 +154,105 @@ public class MessageRouter {
      */
     public void stop() {
         running = false;
-        routerThread.shutdown();
+        routerPool.shutdown();
+        try {
+            if (!routerPool.awaitTermination(5, TimeUnit.SECONDS)) {
+                routerPool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            routerPool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
         System.out.println("消息路由器已停止");
     }
 
     /**
-     * 路由消息
+     * 路由消息，投递到接收者邮箱
+     *
+     * @throws MessageRejectedException 邮箱已满且策略为 reject
      */
     public void routeMessage(Message message) {
+        Long receiverId = message.getReceiverId() != null ? message.getReceiverId() : UNKNOWN_RECEIVER;
+        Message[] dropped = new Message[1];
+        boolean[] accepted = new boolean[1];
+
+        // 在 compute 中入队，与空邮箱的回收互斥，保证同一接收者只有一个邮箱
+        Mailbox mailbox = mailboxes.compute(receiverId, (id, box) -> {
+            Mailbox target = box != null ? box : new Mailbox(id);
+            if (target.size() < mailboxCapacity) {
+                target.offer(message);
+                accepted[0] = true;
+            } else if ("drop-oldest".equalsIgnoreCase(overflowPolicy)) {
+                dropped[0] = target.poll();
+                target.offer(message);
+                accepted[0] = true;
+            } else if ("drop-newest".equalsIgnoreCase(overflowPolicy)) {
+                dropped[0] = message;
+            }
+            return target;
+        });
+
+        if (accepted[0] && dropped[0] == null) {
+            queuedCount.incrementAndGet();
+        }
+        if (dropped[0] != null) {
+            droppedCount.incrementAndGet();
+            System.err.println("接收者邮箱已满，丢弃消息: " + dropped[0].getId() + " -> " + receiverId);
+            markFailed(dropped[0]);
+        }
+        if (!accepted[0] && dropped[0] == null) {
+            rejectedCount.incrementAndGet();
+            throw new MessageRejectedException("接收者邮箱已满，请稍后重试: " + receiverId);
+        }
+
+        if (accepted[0]) {
+            schedule(mailbox);
+            System.out.println("消息已投递到接收者邮箱: " + message.getId() + " -> " + receiverId);
+        }
+    }
+
+    /**
+     * 重新投递仍为已发送状态的消息
+     * 送达确认是批量异步刷新的，进程崩溃时已处理但未刷新的消息会再次投递（至少一次）。
+     * 每条消息先领取重投租约，多个副本同时启动时只有一个副本投递，租约期内不会重复投递。
+     */
+    private void redeliverUnacknowledgedMessages() {
+        Duration lease = Duration.ofMillis(Math.max(1, redeliveryLeaseMs));
+        int redelivered = 0;
+        Long afterId = 0L;
         try {
-            messageQueue.put(message);
-            System.out.println("消息已加入路由队列: " + message.getId());
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("路由消息被中断", e);
+            while (true) {
+                List<Message> page = messageService.getRedeliverableMessagesPage(lease, afterId, REDELIVERY_PAGE_SIZE);
+                for (Message message : page) {
+                    if (mailboxContains(message) || !messageService.claimRedelivery(message.getId(), lease)) {
+                        continue;
+                    }
+                    try {
+                        routeMessage(message);
+                        redelivered++;
+                    } catch (MessageRejectedException e) {
+                        // 邮箱已满，保持已发送状态并释放租约，下次启动再投递
+                        messageService.releaseRedelivery(message.getId());
+                    }
+                }
+                if (page.size() < REDELIVERY_PAGE_SIZE) {
+                    break;
+                }
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } catch (Exception e) {
+            System.err.println("重新投递消息失败: " + e.getMessage());
+        }
+        if (redelivered > 0) {
+            System.out.println("已重新投递未确认送达的消息: " + redelivered);
         }
     }
 
+    private boolean mailboxContains(Message message) {
+        Mailbox mailbox = mailboxes.get(message.getReceiverId() != null ? message.getReceiverId() : UNKNOWN_RECEIVER);
+        return mailbox != null && mailbox.contains(message.getId());
+    }
+
     /**
      * 注册消息处理器
      */
@@ -96,40 +262,71 @@ public class MessageRouter {
     }
 
     /**
-     * 路由循环
+     * 调度邮箱，已在调度中的邮箱不重复提交
      */
-    private void routeLoop() {
-        while (running) {
-            try {
-                // 从队列中获取消息
-                Message message = messageQueue.poll(1, java.util.concurrent.TimeUnit.SECONDS);
-                
-                if (message != null) {
+    private void schedule(Mailbox mailbox) {
+        if (!running || !mailbox.scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            routerPool.execute(() -> runMailbox(mailbox));
+        } catch (RejectedExecutionException e) {
+            mailbox.scheduled.set(false);
+        }
+    }
+
+    /**
+     * 处理邮箱中的一批消息
+     */
+    private void runMailbox(Mailbox mailbox) {
+        try {
+            for (int i = 0; i < throughput && running; i++) {
+                Message message = mailbox.poll();
+                if (message == null) {
+                    break;
+                }
+                queuedCount.decrementAndGet();
+                try {
                     processMessage(message);
+                } catch (Exception e) {
+                    System.err.println("消息路由异常: " + e.getMessage());
                 }
-                
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
-            } catch (Exception e) {
-                System.err.println("消息路由异常: " + e.getMessage());
-                // 继续运行，不中断循环
+            }
+        } finally {
+            mailbox.scheduled.set(false);
+            if (mailbox.size() > 0) {
+                schedule(mailbox);
+            } else {
+                // 回收空闲邮箱；仍在调度中或已有新消息时保留
+                mailboxes.computeIfPresent(mailbox.receiverId,
+                        (id, box) -> box == mailbox && box.size() == 0 && !box.scheduled.get() ? null : box);
             }
         }
     }
 
+    private void markFailed(Message message) {
+        if (message.getId() == null) {
+            return;
+        }
+        try {
+            messageService.markMessageAsFailed(message.getId());
+        } catch (Exception e) {
+            System.err.println("更新消息状态失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 处理单个消息
      */
     private void processMessage(Message message) {
         try {
-            // 检查接收者是否存在且活跃
-            AgentInstance receiver = agentInstanceService.getAgentInstanceById(message.getReceiverId())
+            // 从实例注册表检查接收者是否存在且活跃
+            AgentInstance receiver = instanceRegistry.getInstance(message.getReceiverId())
                     .orElseThrow(() -> new IllegalArgumentException("接收者不存在: " + message.getReceiverId()));
 
-            if (receiver.getStatus() != AgentInstance.InstanceStatus.RUNNING) {
+            if (!instanceRegistry.isRunning(receiver.getId())) {
                 System.out.println("接收者未运行，无法传递消息: " + receiver.getId());
-                messageService.markMessageAsDelivered(message.getId());
+                ackBuffer.ack(message.getId());
                 return;
             }
 
@@ -142,18 +339,15 @@ public class MessageRouter {
                 handleDefaultMessage(message, receiver);
             }
 
-            // 标记消息为已送达
-            messageService.markMessageAsDelivered(message.getId());
+            // 标记消息为已送达并记录接收者心跳（均批量刷新）
+            ackBuffer.ack(message.getId());
+            heartbeatTracker.recordHeartbeat(receiver.getId());
 
             System.out.println("消息已路由到接收者: " + message.getId() + " -> " + receiver.getId());
 
         } catch (Exception e) {
             System.err.println("消息处理失败: " + message.getId() + " - " + e.getMessage());
-            try {
-                messageService.markMessageAsDelivered(message.getId());
-            } catch (Exception ex) {
-                System.err.println("更新消息状态失败: " + ex.getMessage());
-            }
+            ackBuffer.ack(message.getId());
         }
     }
 
@@ -184,12 +378,14 @@ public class MessageRouter {
         // 处理协作请求逻辑
         String collaborationResponse = agentProcessor.processCollaborationRequest(receiver, message.getContent());
         
-        // 发送协作响应
+        // 发送协作响应，携带原请求和任务以便发起者关联
         Message response = new Message();
         response.setSenderId(receiver.getId());
         response.setReceiverId(message.getSenderId());
         response.setContent(collaborationResponse);
-        response.setMessageType("COLLABORATION_RESPONSE");
+        response.setType(Message.MessageType.RESULT);
+        response.setReplyTo(message);
+        response.setTask(message.getTask());
         
         messageService.sendMessage(response);
         routeMessage(response);
@@ -223,20 +419,69 @@ public class MessageRouter {
     }
 
     /**
-     * 获取队列大小
+     * 获取队列大小（所有邮箱积压的消息总数）
      */
     public int getQueueSize() {
-        return messageQueue.size();
+        return queuedCount.get();
+    }
+
+    /**
+     * 获取指定接收者邮箱积压的消息数
+     */
+    public int getMailboxSize(Long receiverId) {
+        Mailbox mailbox = mailboxes.get(receiverId);
+        return mailbox != null ? mailbox.size() : 0;
     }
 
     /**
      * 清空消息队列
      */
     public void clearQueue() {
-        messageQueue.clear();
+        mailboxes.values().forEach(mailbox -> queuedCount.addAndGet(-mailbox.clear()));
         System.out.println("消息队列已清空");
     }
 
+    /**
+     * 接收者邮箱
+     */
+    private static class Mailbox {
+        private final Long receiverId;
+        private final ArrayDeque<Message> messages = new ArrayDeque<>();
+        // 是否已提交到线程池（保证同一邮箱同一时刻只有一个线程处理）
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        Mailbox(Long receiverId) {
+            this.receiverId = receiverId;
+        }
+
+        synchronized void offer(Message message) {
+            messages.addLast(message);
+        }
+
+        synchronized Message poll() {
+            return messages.pollFirst();
+        }
+
+        synchronized boolean contains(Long messageId) {
+            for (Message message : messages) {
+                if (messageId != null && messageId.equals(message.getId())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        synchronized int size() {
+            return messages.size();
+        }
+
+        synchronized int clear() {
+            int size = messages.size();
+            messages.clear();
+            return size;
+        }
+    }
+
     /**
      * 消息处理器接口
      */
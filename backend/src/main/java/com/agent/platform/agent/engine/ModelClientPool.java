@@ -0,0 +1,247 @@
+package com.agent.platform.agent.engine;
+
+import com.agent.platform.agent.entity.AgentDefinition;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.openai.OpenAiChatModel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 模型客户端池
+ * 所有智能体共享模型客户端：与默认配置相同的智能体定义直接使用全局 ChatLanguageModel，
+ * 模型或采样参数不同的按配置缓存一个客户端供同配置的定义共用。
+ * 全局信号量限制同时进行的模型调用数；完全相同的并发请求合并为一次调用。
+ */
+@Component
+public class ModelClientPool {
+
+    @Autowired
+    private ChatLanguageModel defaultModel;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${langchain4j.open-ai.chat-model.api-key:}")
+    private String apiKey;
+
+    @Value("${langchain4j.open-ai.chat-model.base-url:https://api.openai.com/v1}")
+    private String baseUrl;
+
+    @Value("${langchain4j.open-ai.chat-model.model-name:gpt-3.5-turbo}")
+    private String defaultModelName;
+
+    @Value("${langchain4j.open-ai.chat-model.temperature:0.7}")
+    private double defaultTemperature;
+
+    @Value("${langchain4j.open-ai.chat-model.max-tokens:2000}")
+    private int defaultMaxTokens;
+
+    // 同时进行的模型调用上限
+    @Value("${app.agent.llm.max-concurrency:16}")
+    private int maxConcurrency;
+
+    // 等待调用名额的最长时间
+    @Value("${app.agent.llm.acquire-timeout-ms:30000}")
+    private long acquireTimeoutMs;
+
+    // 单次调用的超时时间
+    @Value("${app.agent.llm.timeout-ms:60000}")
+    private long timeoutMs;
+
+    // 按配置缓存的客户端上限，超出后使用默认客户端
+    @Value("${app.agent.llm.max-clients:32}")
+    private int maxClients;
+
+    private final Map<ClientKey, ChatLanguageModel> clients = new ConcurrentHashMap<>();
+
+    // 进行中的请求，相同请求共享结果
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    private Semaphore permits;
+
+    private Timer requestTimer;
+    private Counter coalescedCounter;
+    private Counter rejectedCounter;
+
+    private static final TypeReference<Map<String, Object>> CONFIG_TYPE = new TypeReference<>() {};
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(maxConcurrency);
+        requestTimer = Timer.builder("agent.llm.request").register(meterRegistry);
+        coalescedCounter = Counter.builder("agent.llm.coalesced").register(meterRegistry);
+        rejectedCounter = Counter.builder("agent.llm.rejected").register(meterRegistry);
+        Gauge.builder("agent.llm.in_flight", permits, p -> maxConcurrency - p.availablePermits())
+                .register(meterRegistry);
+        Gauge.builder("agent.llm.clients", clients, Map::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 以智能体定义的模型配置调用模型，返回回复文本
+     *
+     * @throws TaskRejectedException 等待调用名额超时
+     */
+    public String generate(AgentDefinition definition, List<ChatMessage> messages) {
+        ClientKey clientKey = clientKey(definition);
+        String requestKey = requestKey(clientKey, messages);
+
+        CompletableFuture<String> future = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(requestKey, future);
+        if (existing != null) {
+            coalescedCounter.increment();
+            return await(existing);
+        }
+
+        try {
+            future.complete(call(client(clientKey), messages));
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        } finally {
+            inFlight.remove(requestKey, future);
+        }
+        return await(future);
+    }
+
+    private String call(ChatLanguageModel client, List<ChatMessage> messages) {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                rejectedCounter.increment();
+                throw new TaskRejectedException("模型调用并发已满，请稍后重试");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待模型调用被中断", e);
+        }
+        try {
+            return requestTimer.record(() -> client.generate(messages).content().text());
+        } finally {
+            permits.release();
+        }
+    }
+
+    private String await(CompletableFuture<String> future) {
+        try {
+            return future.get(acquireTimeoutMs + timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待模型调用被中断", e);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("等待模型调用超时", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("模型调用失败: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private ChatLanguageModel client(ClientKey key) {
+        if (key.isDefault(defaultModelName, defaultTemperature, defaultMaxTokens)) {
+            return defaultModel;
+        }
+        ChatLanguageModel client = clients.get(key);
+        if (client != null) {
+            return client;
+        }
+        if (clients.size() >= maxClients) {
+            return defaultModel;
+        }
+        return clients.computeIfAbsent(key, k -> OpenAiChatModel.builder()
+                .apiKey(apiKey)
+                .baseUrl(baseUrl)
+                .modelName(k.modelName)
+                .temperature(k.temperature)
+                .maxTokens(k.maxTokens)
+                .timeout(Duration.ofMillis(timeoutMs))
+                .maxRetries(3)
+                .build());
+    }
+
+    /**
+     * 模型名取自 modelConfig 的 modelName，采样参数取自智能体定义
+     */
+    private ClientKey clientKey(AgentDefinition definition) {
+        String modelName = defaultModelName;
+        if (definition.getModelConfig() != null && !definition.getModelConfig().isBlank()) {
+            try {
+                Object configured = objectMapper.readValue(definition.getModelConfig(), CONFIG_TYPE).get("modelName");
+                if (configured != null && !configured.toString().isBlank()) {
+                    modelName = configured.toString();
+                }
+            } catch (Exception e) {
+                System.err.println("智能体模型配置无效，使用默认模型: " + definition.getId() + " - " + e.getMessage());
+            }
+        }
+        double temperature = definition.getTemperature() != null ? definition.getTemperature() : defaultTemperature;
+        int maxTokens = definition.getMaxTokens() != null ? definition.getMaxTokens() : defaultMaxTokens;
+        return new ClientKey(modelName, temperature, maxTokens);
+    }
+
+    private static String requestKey(ClientKey clientKey, List<ChatMessage> messages) {
+        StringBuilder key = new StringBuilder(clientKey.toString());
+        for (ChatMessage message : messages) {
+            key.append('\u0000').append(message.type()).append(':').append(message.text());
+        }
+        return key.toString();
+    }
+
+    /**
+     * 客户端配置
+     */
+    private static class ClientKey {
+        private final String modelName;
+        private final double temperature;
+        private final int maxTokens;
+
+        ClientKey(String modelName, double temperature, int maxTokens) {
+            this.modelName = modelName;
+            this.temperature = temperature;
+            this.maxTokens = maxTokens;
+        }
+
+        boolean isDefault(String defaultModelName, double defaultTemperature, int defaultMaxTokens) {
+            return modelName.equals(defaultModelName) && temperature == defaultTemperature && maxTokens == defaultMaxTokens;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ClientKey other)) return false;
+            return temperature == other.temperature && maxTokens == other.maxTokens && modelName.equals(other.modelName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(modelName, temperature, maxTokens);
+        }
+
+        @Override
+        public String toString() {
+            return modelName + "|" + temperature + "|" + maxTokens;
+        }
+    }
+}
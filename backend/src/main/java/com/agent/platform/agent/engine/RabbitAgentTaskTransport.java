@@ -0,0 +1,144 @@
+package com.agent.platform.agent.engine;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 基于 RabbitMQ 的分布式任务分发
+ * 任务按智能体实例ID哈希到固定数量的分区队列，每个分区队列开启单活跃消费者，
+ * 所有节点都订阅全部分区，但同一时刻每个分区只有一个消费者在处理，
+ * 因此同一实例的任务只会由一个节点按顺序分发；该消费者下线后由其他节点自动接管。
+ * 分区队列开启优先级，消费者通过 prefetch 限制在途消息数。
+ */
+@Component
+@ConditionalOnProperty(name = "app.agent.distributed.transport", havingValue = "rabbit")
+public class RabbitAgentTaskTransport implements AgentTaskTransport {
+
+    static final String TASK_EXCHANGE = "agent.tasks";
+    static final String TASK_QUEUE_PREFIX = "agent.tasks.";
+
+    @Autowired
+    private ConnectionFactory connectionFactory;
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // 分区数，所有节点必须一致
+    @Value("${app.agent.distributed.partitions:8}")
+    private int partitions;
+
+    // 每个分区消费者的预取数量
+    @Value("${app.agent.distributed.prefetch:4}")
+    private int prefetch;
+
+    private final List<SimpleMessageListenerContainer> containers = new ArrayList<>();
+
+    @Override
+    public void publish(AgentTaskMessage message) {
+        message.setPublishedAt(System.currentTimeMillis());
+
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        properties.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+        properties.setPriority(toAmqpPriority(message.getPriority()));
+
+        rabbitTemplate.send(TASK_EXCHANGE, String.valueOf(partitionFor(message.getAgentInstanceId())),
+                new Message(toBytes(message), properties));
+    }
+
+    @Override
+    public synchronized void start(Consumer<AgentTaskMessage> handler) {
+        if (!containers.isEmpty()) {
+            return;
+        }
+
+        declareTopology();
+
+        for (int i = 0; i < partitions; i++) {
+            SimpleMessageListenerContainer container = new SimpleMessageListenerContainer(connectionFactory);
+            container.setQueueNames(TASK_QUEUE_PREFIX + i);
+            container.setPrefetchCount(prefetch);
+            // 单消费者串行处理，保证分区内任务顺序
+            container.setConcurrentConsumers(1);
+            container.setAcknowledgeMode(AcknowledgeMode.AUTO);
+            container.setDefaultRequeueRejected(true);
+            container.setMessageListener(message -> handler.accept(fromBytes(message)));
+            container.start();
+            containers.add(container);
+        }
+
+        System.out.println("RabbitMQ 任务分发已启动，分区数: " + partitions + "，prefetch: " + prefetch);
+    }
+
+    @Override
+    @PreDestroy
+    public synchronized void stop() {
+        containers.forEach(SimpleMessageListenerContainer::stop);
+        containers.clear();
+    }
+
+    /**
+     * 声明交换机和分区队列
+     */
+    private void declareTopology() {
+        RabbitAdmin admin = new RabbitAdmin(connectionFactory);
+
+        DirectExchange exchange = new DirectExchange(TASK_EXCHANGE, true, false);
+        admin.declareExchange(exchange);
+        for (int i = 0; i < partitions; i++) {
+            Queue queue = QueueBuilder.durable(TASK_QUEUE_PREFIX + i)
+                    .withArgument("x-max-priority", 10)
+                    .withArgument("x-single-active-consumer", true)
+                    .build();
+            admin.declareQueue(queue);
+            admin.declareBinding(BindingBuilder.bind(queue).to(exchange).with(String.valueOf(i)));
+        }
+    }
+
+    private int partitionFor(Long agentInstanceId) {
+        return agentInstanceId == null ? 0 : Math.floorMod(Long.hashCode(agentInstanceId), partitions);
+    }
+
+    /**
+     * 任务优先级 1~10（1为最高）映射为 AMQP 优先级 9~0
+     */
+    private int toAmqpPriority(Integer priority) {
+        int value = priority != null ? Math.max(1, Math.min(10, priority)) : 5;
+        return 10 - value;
+    }
+
+    private byte[] toBytes(AgentTaskMessage message) {
+        try {
+            return objectMapper.writeValueAsBytes(message);
+        } catch (IOException e) {
+            throw new IllegalStateException("序列化任务消息失败: " + e.getMessage(), e);
+        }
+    }
+
+    private AgentTaskMessage fromBytes(Message message) {
+        try {
+            return objectMapper.readValue(message.getBody(), AgentTaskMessage.class);
+        } catch (IOException e) {
+            // 无法解析的消息不再重新入队
+            throw new AmqpRejectAndDontRequeueException("无法解析任务消息: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.agent.platform.agent.engine;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * 基于 Redis 发布订阅的实例状态失效复制
+ * 消息格式为“节点ID|实例ID”，节点忽略自己发出的消息
+ */
+@Component
+@ConditionalOnProperty(name = "app.agent.instance-registry.replication", havingValue = "redis")
+public class RedisInstanceStatusReplicator implements InstanceStatusReplicator {
+
+    static final String CHANNEL = "agent:instance-status";
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private RedisConnectionFactory connectionFactory;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private RedisMessageListenerContainer container;
+
+    @Override
+    public void publishInvalidation(Long instanceId) {
+        try {
+            redisTemplate.convertAndSend(CHANNEL, nodeId + "|" + instanceId);
+        } catch (Exception e) {
+            // 广播失败不影响本地状态，其他节点的缓存会在下次失效事件或重启后恢复一致
+            System.err.println("广播实例状态失效事件失败: " + instanceId + " - " + e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void subscribe(Consumer<Long> listener) {
+        if (container != null) {
+            return;
+        }
+        container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener((message, pattern) -> {
+            String body = new String(message.getBody(), StandardCharsets.UTF_8);
+            int separator = body.indexOf('|');
+            if (separator < 0 || body.substring(0, separator).equals(nodeId)) {
+                return;
+            }
+            try {
+                listener.accept(Long.valueOf(body.substring(separator + 1)));
+            } catch (NumberFormatException e) {
+                System.err.println("无法解析实例状态失效事件: " + body);
+            }
+        }, new ChannelTopic(CHANNEL));
+        container.afterPropertiesSet();
+        container.start();
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (container != null) {
+            container.stop();
+            container = null;
+        }
+    }
+}
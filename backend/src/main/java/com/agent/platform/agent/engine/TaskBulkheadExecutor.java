@@ -0,0 +1,238 @@
+package com.agent.platform.agent.engine;
+
+import com.agent.platform.agent.entity.Task;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 任务舱壁执行器 - 按任务子类型隔离的有界线程池
+ * 每个子类型拥有独立的线程数和排队上限，某类任务堆积不会占满其他类型的执行资源。
+ * 分发器先通过 {@link #tryReserve} 占用名额，再提交任务，名额在任务结束后释放。
+ */
+@Component
+public class TaskBulkheadExecutor {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.agent.executor.text-processing.threads:16}")
+    private int textProcessingThreads;
+
+    @Value("${app.agent.executor.text-processing.queue-capacity:200}")
+    private int textProcessingQueueCapacity;
+
+    @Value("${app.agent.executor.data-analysis.threads:8}")
+    private int dataAnalysisThreads;
+
+    @Value("${app.agent.executor.data-analysis.queue-capacity:100}")
+    private int dataAnalysisQueueCapacity;
+
+    @Value("${app.agent.executor.decision-making.threads:8}")
+    private int decisionMakingThreads;
+
+    @Value("${app.agent.executor.decision-making.queue-capacity:100}")
+    private int decisionMakingQueueCapacity;
+
+    @Value("${app.agent.executor.collaborative.threads:4}")
+    private int collaborativeThreads;
+
+    @Value("${app.agent.executor.collaborative.queue-capacity:50}")
+    private int collaborativeQueueCapacity;
+
+    private final Map<Task.TaskSubType, Bulkhead> bulkheads = new EnumMap<>(Task.TaskSubType.class);
+
+    @PostConstruct
+    public void init() {
+        bulkheads.put(Task.TaskSubType.TEXT_PROCESSING,
+                new Bulkhead("text-processing", textProcessingThreads, textProcessingQueueCapacity));
+        bulkheads.put(Task.TaskSubType.DATA_ANALYSIS,
+                new Bulkhead("data-analysis", dataAnalysisThreads, dataAnalysisQueueCapacity));
+        bulkheads.put(Task.TaskSubType.DECISION_MAKING,
+                new Bulkhead("decision-making", decisionMakingThreads, decisionMakingQueueCapacity));
+        bulkheads.put(Task.TaskSubType.COLLABORATIVE,
+                new Bulkhead("collaborative", collaborativeThreads, collaborativeQueueCapacity));
+        bulkheads.values().forEach(this::registerMetrics);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        bulkheads.values().forEach(bulkhead -> bulkhead.executor.shutdown());
+        for (Bulkhead bulkhead : bulkheads.values()) {
+            try {
+                if (!bulkhead.executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                    bulkhead.executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                bulkhead.executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 占用执行名额，在等待时间内无空闲名额时返回false
+     */
+    public boolean tryReserve(Task.TaskSubType type, long waitMs) throws InterruptedException {
+        return bulkheadFor(type).permits.tryAcquire(waitMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 记录一次因名额不足被拒绝或延后的任务
+     */
+    public void recordRejected(Task.TaskSubType type) {
+        bulkheadFor(type).rejectedCount.incrementAndGet();
+    }
+
+    /**
+     * 释放未使用的执行名额（占用后未能提交任务时调用）
+     */
+    public void release(Task.TaskSubType type) {
+        bulkheadFor(type).permits.release();
+    }
+
+    /**
+     * 提交已占用名额的任务，名额在工作线程执行结束后释放
+     *
+     * @throws TaskRejectedException 线程池已关闭
+     */
+    public FutureTask<Void> submit(Task.TaskSubType type, Runnable runnable) {
+        Bulkhead bulkhead = bulkheadFor(type);
+        FutureTask<Void> future = new FutureTask<>(runnable, null);
+        // 名额在工作线程的 finally 中释放：cancel(true) 时 done() 会在工作线程仍在运行时触发，
+        // 不能在那里释放；排队中被取消的任务出队后 run() 直接返回，同样在此归还名额
+        Runnable worker = () -> {
+            try {
+                future.run();
+            } finally {
+                bulkhead.permits.release();
+            }
+        };
+        try {
+            bulkhead.executor.execute(worker);
+        } catch (RejectedExecutionException e) {
+            bulkhead.permits.release();
+            bulkhead.rejectedCount.incrementAndGet();
+            throw new TaskRejectedException("任务执行器已关闭: " + bulkhead.name);
+        }
+        return future;
+    }
+
+    /**
+     * 获取各舱壁统计
+     */
+    public List<BulkheadStats> getBulkheadStats() {
+        List<BulkheadStats> result = new ArrayList<>(bulkheads.size());
+        for (Bulkhead bulkhead : bulkheads.values()) {
+            BulkheadStats stats = new BulkheadStats();
+            stats.setName(bulkhead.name);
+            stats.setMaxThreads(bulkhead.executor.getMaximumPoolSize());
+            stats.setQueueCapacity(bulkhead.queueCapacity);
+            stats.setActiveCount(bulkhead.executor.getActiveCount());
+            stats.setQueuedCount(bulkhead.executor.getQueue().size());
+            stats.setRejectedCount(bulkhead.rejectedCount.get());
+            stats.setCompletedCount(bulkhead.executor.getCompletedTaskCount());
+            result.add(stats);
+        }
+        return result;
+    }
+
+    private Bulkhead bulkheadFor(Task.TaskSubType type) {
+        // 未设置子类型的任务与默认的文本处理任务共用舱壁
+        return bulkheads.get(type != null ? type : Task.TaskSubType.TEXT_PROCESSING);
+    }
+
+    /**
+     * 注册舱壁指标
+     */
+    private void registerMetrics(Bulkhead bulkhead) {
+        Gauge.builder("agent.executor.active", bulkhead.executor, ThreadPoolExecutor::getActiveCount)
+                .tag("bulkhead", bulkhead.name)
+                .register(meterRegistry);
+        Gauge.builder("agent.executor.queued", bulkhead.executor, e -> e.getQueue().size())
+                .tag("bulkhead", bulkhead.name)
+                .register(meterRegistry);
+        FunctionCounter.builder("agent.executor.rejected", bulkhead.rejectedCount, AtomicLong::get)
+                .tag("bulkhead", bulkhead.name)
+                .register(meterRegistry);
+        FunctionCounter.builder("agent.executor.completed", bulkhead.executor, ThreadPoolExecutor::getCompletedTaskCount)
+                .tag("bulkhead", bulkhead.name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 单个舱壁：固定线程数的线程池，名额数为线程数加排队上限
+     */
+    private static class Bulkhead {
+        private final String name;
+        private final int queueCapacity;
+        private final ThreadPoolExecutor executor;
+        private final Semaphore permits;
+        private final AtomicLong rejectedCount = new AtomicLong();
+
+        Bulkhead(String name, int threads, int queueCapacity) {
+            int poolSize = Math.max(1, threads);
+            this.name = name;
+            this.queueCapacity = Math.max(0, queueCapacity);
+            AtomicInteger threadIndex = new AtomicInteger();
+            // 名额控制了提交数量，这里的队列不会溢出
+            this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(),
+                    r -> {
+                        Thread thread = new Thread(r, "agent-task-" + name + "-" + threadIndex.getAndIncrement());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.AbortPolicy());
+            this.executor.allowCoreThreadTimeOut(true);
+            this.permits = new Semaphore(poolSize + this.queueCapacity);
+        }
+    }
+
+    /**
+     * 舱壁统计信息
+     */
+    public static class BulkheadStats {
+        private String name;
+        private int maxThreads;
+        private int queueCapacity;
+        private int activeCount;
+        private int queuedCount;
+        private long rejectedCount;
+        private long completedCount;
+
+        // Getters and Setters
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+        public int getMaxThreads() { return maxThreads; }
+        public void setMaxThreads(int maxThreads) { this.maxThreads = maxThreads; }
+        public int getQueueCapacity() { return queueCapacity; }
+        public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+        public int getActiveCount() { return activeCount; }
+        public void setActiveCount(int activeCount) { this.activeCount = activeCount; }
+        public int getQueuedCount() { return queuedCount; }
+        public void setQueuedCount(int queuedCount) { this.queuedCount = queuedCount; }
+        public long getRejectedCount() { return rejectedCount; }
+        public void setRejectedCount(long rejectedCount) { this.rejectedCount = rejectedCount; }
+        public long getCompletedCount() { return completedCount; }
+        public void setCompletedCount(long completedCount) { this.completedCount = completedCount; }
+    }
+}
@@ -3,41 +3,169 @@ package com.agent.platform.agent.engine;
 import com.agent.platform.agent.entity.Task;
 import com.agent.platform.agent.entity.AgentInstance;
 import com.agent.platform.agent.service.TaskService;
-import com.agent.platform.agent.service.AgentInstanceService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 任务分发器 - 负责任务的调度和分发
+ * 按智能体实例ID将任务分配到多个分发分片，每个分片有独立的队列和分发线程，
+ * 同一实例的任务始终由同一分片按顺序分发
  */
 @Component
 public class TaskDispatcher {
 
+    // 恢复时分片队列已满的等待间隔
+    private static final long RECOVERY_BACKOFF_MS = 200;
+
     @Autowired
     private TaskService taskService;
 
     @Autowired
-    private AgentInstanceService agentInstanceService;
+    private AgentInstanceRegistry instanceRegistry;
 
     @Autowired
     private AgentTaskExecutor agentTaskExecutor;
 
-    // 任务队列
-    private final BlockingQueue<Task> taskQueue = new LinkedBlockingQueue<>();
+    @Autowired
+    private TaskTimeoutTracker timeoutTracker;
+
+    @Autowired
+    private TaskGraphExecutor taskGraphExecutor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 分布式分发传输（app.agent.distributed.transport=rabbit 时存在）
+    @Autowired
+    private ObjectProvider<AgentTaskTransport> taskTransportProvider;
+
+    private AgentTaskTransport taskTransport;
+
+    // 分发分片数
+    @Value("${app.agent.dispatcher.shards:4}")
+    private int shardCount;
+
+    // 队列总容量（平均分配到各分片）
+    @Value("${app.agent.dispatcher.queue-capacity:10000}")
+    private int queueCapacity;
+
+    // 每个智能体实例最多排队的任务数
+    @Value("${app.agent.dispatcher.max-queued-per-instance:1000}")
+    private int maxQueuedPerInstance;
+
+    // 老化周期：任务每等待该时长，优先级相当于提升一级
+    @Value("${app.agent.dispatcher.aging-interval-ms:30000}")
+    private long agingIntervalMs;
+
+    // 执行器名额不足时的处理策略：wait 阻塞分片等待（回压到分片队列），fail 直接将任务置为失败
+    @Value("${app.agent.executor.rejection-policy:wait}")
+    private String rejectionPolicy;
+
+    // 单次等待执行名额的时长
+    @Value("${app.agent.executor.reserve-timeout-ms:1000}")
+    private long reserveTimeoutMs;
+
+    // 启动时是否从数据库恢复任务（内存队列在重启后为空，数据库中仍有待处理任务）
+    @Value("${app.agent.recovery.enabled:true}")
+    private boolean recoveryEnabled;
+
+    // 恢复时每页读取的任务数
+    @Value("${app.agent.recovery.page-size:500}")
+    private int recoveryPageSize;
+
+    // 执行线程已不存在的运行中任务的处理方式：requeue 重新排队，fail 置为失败
+    @Value("${app.agent.recovery.orphaned-running:requeue}")
+    private String orphanedRunningPolicy;
+
+    // 默认任务超时时间，可通过任务参数 timeoutMs 覆盖
+    @Value("${app.agent.task-timeout.default-ms:1800000}")
+    private long defaultTimeoutMs;
+
+    // 超时对账间隔：兜底处理未被时间轮跟踪的运行中任务（如进程重启前遗留的任务）
+    @Value("${app.agent.task-timeout.reconcile-interval-ms:300000}")
+    private long reconcileIntervalMs;
+
+    // 其他节点的任务超时后再等待该时长仍在运行，视为执行节点已下线
+    @Value("${app.agent.task-timeout.orphan-grace-ms:1800000}")
+    private long orphanGraceMs;
+
+    @Autowired
+    private AgentNode agentNode;
+
+    // 分发分片
+    private DispatchShard[] shards;
     
-    // 线程池
-    private final ExecutorService dispatcherThread = Executors.newSingleThreadExecutor();
+    // 分发线程池（每个分片一个线程）
+    private ExecutorService dispatcherThreads;
+
+    // 超时对账线程
+    private final ScheduledExecutorService reconcileThread = Executors.newSingleThreadScheduledExecutor();
     
     // 运行标志
     private volatile boolean running = false;
 
+    @PostConstruct
+    public void init() {
+        int count = Math.max(1, shardCount);
+        int shardCapacity = Math.max(1, (queueCapacity + count - 1) / count);
+        shards = new DispatchShard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new DispatchShard(i, new TaskPriorityQueue(shardCapacity, maxQueuedPerInstance, agingIntervalMs));
+            registerShardMetrics(shards[i]);
+        }
+        
+        AtomicInteger threadIndex = new AtomicInteger();
+        dispatcherThreads = Executors.newFixedThreadPool(count, r -> {
+            Thread thread = new Thread(r, "task-dispatcher-" + threadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        timeoutTracker.setTimeoutHandler(this::handleTaskTimeout);
+        taskTransport = taskTransportProvider.getIfAvailable();
+    }
+
+    /**
+     * 注册分片指标，标签只有分片序号，数量固定
+     */
+    private void registerShardMetrics(DispatchShard shard) {
+        String index = String.valueOf(shard.index);
+        Gauge.builder("agent.dispatcher.queue.size", shard.queue, TaskPriorityQueue::size)
+                .tag("shard", index)
+                .register(meterRegistry);
+        FunctionCounter.builder("agent.dispatcher.rejected", shard.queue, TaskPriorityQueue::getRejectedCount)
+                .tag("shard", index)
+                .register(meterRegistry);
+        FunctionCounter.builder("agent.dispatcher.dispatched", shard.dispatchedCount, AtomicLong::get)
+                .tag("shard", index)
+                .register(meterRegistry);
+        FunctionCounter.builder("agent.dispatcher.failed", shard.failedCount, AtomicLong::get)
+                .tag("shard", index)
+                .register(meterRegistry);
+        FunctionCounter.builder("agent.dispatcher.dispatch.time", shard.totalDispatchNanos, n -> n.get() / 1_000_000_000.0)
+                .tag("shard", index)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
     /**
      * 启动任务分发器
      */
@@ -47,22 +175,42 @@ public class TaskDispatcher {
         }
         
         running = true;
-        dispatcherThread.submit(this::dispatchLoop);
-        System.out.println("任务分发器已启动");
+        if (recoveryEnabled && taskTransport == null) {
+            // 先把无执行线程的运行中任务恢复为待处理，再由恢复线程统一重新入队
+            reconcileOrphanedRunningTasks();
+        }
+        for (DispatchShard shard : shards) {
+            dispatcherThreads.submit(() -> dispatchLoop(shard));
+        }
+        if (taskTransport != null) {
+            // 分布式模式下待处理任务保存在消息队列中，不从数据库恢复，避免多个节点重复入队
+            taskTransport.start(this::handleDistributedTask);
+        } else if (recoveryEnabled) {
+            Thread recoveryThread = new Thread(this::recoverPendingTasks, "task-recovery");
+            recoveryThread.setDaemon(true);
+            recoveryThread.start();
+        }
+        reconcileThread.scheduleWithFixedDelay(this::reconcileTimeoutTasks,
+                reconcileIntervalMs, reconcileIntervalMs, TimeUnit.MILLISECONDS);
+        System.out.println("任务分发器已启动，分片数: " + shards.length);
     }
 
     /**
      * 停止任务分发器
      */
     public void stop() {
+        if (taskTransport != null) {
+            taskTransport.stop();
+        }
         running = false;
-        dispatcherThread.shutdown();
+        reconcileThread.shutdownNow();
+        dispatcherThreads.shutdown();
         try {
-            if (!dispatcherThread.awaitTermination(5, TimeUnit.SECONDS)) {
-                dispatcherThread.shutdownNow();
+            if (!dispatcherThreads.awaitTermination(5, TimeUnit.SECONDS)) {
+                dispatcherThreads.shutdownNow();
             }
         } catch (InterruptedException e) {
-            dispatcherThread.shutdownNow();
+            dispatcherThreads.shutdownNow();
             Thread.currentThread().interrupt();
         }
         System.out.println("任务分发器已停止");
@@ -70,17 +218,89 @@ public class TaskDispatcher {
 
     /**
      * 提交任务到队列
+     *
+     * @throws TaskRejectedException 队列已满
      */
     public void submitTask(Task task) {
+        if (taskTransport != null) {
+            publishTask(task);
+            return;
+        }
+        if (!shardFor(task.getAgentInstanceId()).queue.offer(task)) {
+            System.err.println("任务队列已满，拒绝任务: " + task.getId());
+            throw new TaskRejectedException("任务队列已满，请稍后重试");
+        }
+        System.out.println("任务已提交到队列: " + task.getId() + " (优先级 " + task.getPriority() + ")");
+    }
+
+    /**
+     * 检查智能体实例的队列是否还能接收任务
+     */
+    public boolean hasCapacity(Long agentInstanceId) {
+        if (taskTransport != null) {
+            // 分布式模式下由消息队列缓冲任务
+            return true;
+        }
+        return shardFor(agentInstanceId).queue.hasCapacity(agentInstanceId);
+    }
+
+    /**
+     * 发布任务到分布式队列
+     *
+     * @throws TaskRejectedException 发布失败
+     */
+    private void publishTask(Task task) {
+        AgentTaskMessage message = new AgentTaskMessage();
+        message.setTaskId(task.getId());
+        message.setAgentInstanceId(task.getAgentInstanceId());
+        message.setPriority(task.getPriority());
         try {
-            taskQueue.put(task);
-            System.out.println("任务已提交到队列: " + task.getId());
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("提交任务被中断", e);
+            taskTransport.publish(message);
+        } catch (Exception e) {
+            System.err.println("任务发布失败: " + task.getId() + " - " + e.getMessage());
+            throw new TaskRejectedException("任务发布失败，请稍后重试");
+        }
+        System.out.println("任务已发布到分布式队列: " + task.getId() + " (优先级 " + task.getPriority() + ")");
+    }
+
+    /**
+     * 处理分布式队列中的任务消息，在消费线程上同步分发
+     * 执行名额不足时阻塞消费线程，未确认消息达到 prefetch 后消息队列停止投递
+     */
+    private void handleDistributedTask(AgentTaskMessage message) {
+        if (!running) {
+            throw new IllegalStateException("任务分发器未运行，任务重新入队: " + message.getTaskId());
+        }
+
+        Optional<Task> existing = taskService.getTaskById(message.getTaskId());
+        if (existing.isEmpty() || existing.get().getStatus() != Task.TaskStatus.PENDING) {
+            System.out.println("任务不存在或非待处理状态，忽略消息: " + message.getTaskId());
+            return;
+        }
+
+        Task task = existing.get();
+
+        DispatchShard shard = shardFor(task.getAgentInstanceId());
+        long start = System.nanoTime();
+        boolean dispatched = dispatchTask(task);
+        shard.recordDispatch(dispatched, System.nanoTime() - start);
+
+        if (!dispatched && !running) {
+            // 等待执行名额期间分发器停止，任务仍为待处理，交还消息队列
+            throw new IllegalStateException("任务分发器已停止，任务重新入队: " + task.getId());
         }
     }
 
+    /**
+     * 根据智能体实例ID选择分片
+     */
+    private DispatchShard shardFor(Long agentInstanceId) {
+        if (agentInstanceId == null) {
+            return shards[0];
+        }
+        return shards[Math.floorMod(Long.hashCode(agentInstanceId), shards.length)];
+    }
+
     /**
      * 提交协作任务
      */
@@ -93,21 +313,20 @@ public class TaskDispatcher {
     }
 
     /**
-     * 分发循环
+     * 分片分发循环
      */
-    private void dispatchLoop() {
+    private void dispatchLoop(DispatchShard shard) {
         while (running) {
             try {
-                // 从队列中获取任务
-                Task task = taskQueue.poll(1, TimeUnit.SECONDS);
+                // 从分片队列中获取任务
+                Task task = shard.queue.poll(1, TimeUnit.SECONDS);
                 
                 if (task != null) {
-                    dispatchTask(task);
+                    long start = System.nanoTime();
+                    boolean dispatched = dispatchTask(task);
+                    shard.recordDispatch(dispatched, System.nanoTime() - start);
                 }
                 
-                // 检查超时任务
-                checkTimeoutTasks();
-                
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 break;
@@ -120,34 +339,63 @@ public class TaskDispatcher {
 
     /**
      * 分发单个任务
+     *
+     * @return 是否成功交给执行器
      */
-    private void dispatchTask(Task task) {
+    private boolean dispatchTask(Task task) {
         try {
             // 检查任务状态
             if (task.getStatus() != Task.TaskStatus.PENDING) {
                 System.out.println("任务状态非待处理，跳过分发: " + task.getId());
-                return;
+                return false;
             }
 
-            // 获取关联的智能体实例
-            AgentInstance agentInstance = agentInstanceService.getAgentInstanceById(task.getAgentInstance().getId())
-                    .orElseThrow(() -> new IllegalArgumentException("智能体实例不存在: " + task.getAgentInstance().getId()));
+            // 尚未轮到的顺序子任务由任务图执行器在前序子任务完成后提交
+            if (!taskGraphExecutor.isReleased(task)) {
+                System.out.println("子任务尚未轮到执行，跳过分发: " + task.getId());
+                return false;
+            }
+
+            // 从实例注册表获取关联的智能体实例
+            AgentInstance agentInstance = instanceRegistry.getInstance(task.getAgentInstanceId())
+                    .orElseThrow(() -> new IllegalArgumentException("智能体实例不存在: " + task.getAgentInstanceId()));
 
             // 检查智能体实例状态
-            if (agentInstance.getStatus() != AgentInstance.InstanceStatus.RUNNING) {
+            if (!instanceRegistry.isRunning(agentInstance.getId())) {
                 System.out.println("智能体实例未运行，无法执行任务: " + agentInstance.getId());
                 taskService.failTask(task.getId(), "智能体实例未运行");
-                return;
+                return false;
             }
 
-            // 更新任务状态为执行中
-            taskService.startTaskExecution(task.getId());
+            // 占用执行名额，名额不足时按拒绝策略处理
+            if (!reserveExecutionSlot(task)) {
+                return false;
+            }
+
+            // 更新任务状态为执行中，并登记超时
+            try {
+                taskService.startTaskExecution(task.getId());
+            } catch (IllegalStateException e) {
+                // 条件更新未命中：任务已被开始或已结束（如恢复时与新提交重复入队，或被其他节点抢先开始），跳过
+                agentTaskExecutor.releaseReservation(task);
+                System.out.println("任务已不是待处理状态，跳过分发: " + task.getId());
+                return false;
+            } catch (RuntimeException e) {
+                agentTaskExecutor.releaseReservation(task);
+                throw e;
+            }
+            timeoutTracker.register(task.getId(), resolveTimeoutMs(task));
 
             // 提交给任务执行器
             agentTaskExecutor.executeTask(task, agentInstance);
 
             System.out.println("任务已分发给智能体实例: " + task.getId() + " -> " + agentInstance.getId());
+            return true;
 
+        } catch (InterruptedException e) {
+            // 分发器停止，任务保持待处理状态
+            Thread.currentThread().interrupt();
+            return false;
         } catch (Exception e) {
             System.err.println("任务分发失败: " + task.getId() + " - " + e.getMessage());
             try {
@@ -155,52 +403,315 @@ public class TaskDispatcher {
             } catch (Exception ex) {
                 System.err.println("更新任务状态失败: " + ex.getMessage());
             }
+            return false;
         }
     }
 
     /**
-     * 检查超时任务
+     * 恢复本节点上运行中但本进程内没有执行线程的任务（进程重启前遗留）
+     * 只处理执行节点为本节点的任务，其他节点的任务由超时对账在宽限期后处理
      */
-    private void checkTimeoutTasks() {
+    private void reconcileOrphanedRunningTasks() {
+        int reconciled = 0;
+        Long afterId = 0L;
         try {
-            // 获取超时任务（超过30分钟未完成）
-            long timeoutThreshold = System.currentTimeMillis() - (30 * 60 * 1000);
-            
-            List<Task> timeoutTasks = taskService.getTasksByStatus(Task.TaskStatus.RUNNING)
-                    .stream()
-                    .filter(task -> task.getStartedAt() != null && 
-                                   task.getStartedAt().atZone(java.time.ZoneId.systemDefault()).toInstant().toEpochMilli() < timeoutThreshold)
-                    .toList();
-            
-            for (Task task : timeoutTasks) {
-                System.out.println("检测到超时任务: " + task.getId());
-                taskService.failTask(task.getId(), "任务执行超时");
-            }
-            
+            while (true) {
+                List<Task> page = taskService.getRunningTasksPage(agentNode.getNodeId(), afterId, recoveryPageSize);
+                for (Task task : page) {
+                    if (agentTaskExecutor.isTaskExecuting(task.getId())) {
+                        continue;
+                    }
+                    if ("fail".equalsIgnoreCase(orphanedRunningPolicy)) {
+                        taskService.failTask(task.getId(), "任务执行中断：执行线程已不存在");
+                    } else {
+                        taskService.requeueTask(task.getId(), agentNode.getNodeId());
+                    }
+                    reconciled++;
+                }
+                if (page.size() < recoveryPageSize) {
+                    break;
+                }
+                afterId = page.get(page.size() - 1).getId();
+            }
         } catch (Exception e) {
-            System.err.println("检查超时任务异常: " + e.getMessage());
+            System.err.println("恢复运行中任务失败: " + e.getMessage());
+        }
+        if (reconciled > 0) {
+            System.out.println("已处理无执行线程的运行中任务: " + reconciled + "，策略: " + orphanedRunningPolicy);
         }
     }
 
+    /**
+     * 按优先级分页读取数据库中的待处理任务并重新入队
+     * 使用键集分页，分发过程中任务状态变化不会导致漏读；分片队列已满时等待分发腾出空间
+     */
+    private void recoverPendingTasks() {
+        int recovered = 0;
+        int skipped = 0;
+        Integer afterPriority = null;
+        Long afterId = null;
+        try {
+            while (running) {
+                List<Task> page = taskService.getPendingTasksPage(afterPriority, afterId, recoveryPageSize);
+                for (Task task : page) {
+                    if (!running) {
+                        break;
+                    }
+                    if (requeueRecoveredTask(task)) {
+                        recovered++;
+                    } else {
+                        skipped++;
+                    }
+                }
+                if (page.size() < recoveryPageSize) {
+                    break;
+                }
+                Task last = page.get(page.size() - 1);
+                afterPriority = last.getPriority();
+                afterId = last.getId();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("恢复待处理任务失败: " + e.getMessage());
+        }
+        System.out.println("待处理任务恢复结束，重新入队: " + recovered + "，已在队列中: " + skipped);
+    }
+
+    /**
+     * 将恢复的任务放回所属分片，已在队列中的任务不重复入队
+     */
+    private boolean requeueRecoveredTask(Task task) throws InterruptedException {
+        DispatchShard shard = shardFor(task.getAgentInstanceId());
+        while (running) {
+            if (shard.queue.contains(task.getId())) {
+                return false;
+            }
+            if (shard.queue.hasCapacity(task.getAgentInstanceId()) && shard.queue.offer(task)) {
+                return true;
+            }
+            Thread.sleep(RECOVERY_BACKOFF_MS);
+        }
+        return false;
+    }
+
+    /**
+     * 为任务占用执行名额
+     * wait 策略下阻塞当前分片直到有名额，积压会回压到分片队列并最终以 {@link TaskRejectedException} 拒绝新任务；
+     * fail 策略下等待超时即将任务置为失败。
+     */
+    private boolean reserveExecutionSlot(Task task) throws InterruptedException {
+        if (agentTaskExecutor.tryReserve(task, reserveTimeoutMs)) {
+            return true;
+        }
+        agentTaskExecutor.recordRejected(task);
+
+        if ("fail".equalsIgnoreCase(rejectionPolicy)) {
+            System.out.println("任务执行器繁忙，拒绝任务: " + task.getId());
+            taskService.failTask(task.getId(), "任务执行器繁忙");
+            return false;
+        }
+
+        while (running) {
+            if (agentTaskExecutor.tryReserve(task, reserveTimeoutMs)) {
+                return true;
+            }
+        }
+        // 分发器停止，任务保持待处理状态
+        return false;
+    }
+
+    /**
+     * 获取任务超时时间
+     */
+    private long resolveTimeoutMs(Task task) {
+        Map<String, Object> parameters = task.getParameters();
+        Object timeout = parameters != null ? parameters.get("timeoutMs") : null;
+        if (timeout instanceof Number && ((Number) timeout).longValue() > 0) {
+            return ((Number) timeout).longValue();
+        }
+        return defaultTimeoutMs;
+    }
+
+    /**
+     * 时间轮回调：任务执行超时
+     */
+    private void handleTaskTimeout(Long taskId) {
+        System.out.println("检测到超时任务: " + taskId);
+        agentTaskExecutor.cancelTask(taskId);
+        taskService.timeoutTask(taskId);
+    }
+
+    /**
+     * 超时对账：通过索引查询找出超时但未被时间轮跟踪的运行中任务
+     * 时间轮只在本节点，因此只处理本节点开始执行的任务；其他节点（或未记录节点）的任务
+     * 超时后再经过宽限期仍在运行时，才视为执行节点已下线而置为超时。
+     * 查询只按开始时间筛出候选，是否超时按任务自身的超时时间判断。
+     */
+    private void reconcileTimeoutTasks() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            int count = 0;
+            for (Task task : taskService.getTimeoutTasks(agentNode.getNodeId(), now)) {
+                if (timeoutTracker.isTracked(task.getId()) || !isTimedOut(task, now, 0)) {
+                    continue;
+                }
+                taskService.timeoutTask(task.getId());
+                count++;
+            }
+            for (Task task : taskService.getTimeoutTasks(now.minus(Duration.ofMillis(orphanGraceMs)))) {
+                if (timeoutTracker.isTracked(task.getId()) || !isTimedOut(task, now, orphanGraceMs)) {
+                    continue;
+                }
+                taskService.timeoutTask(task.getId());
+                count++;
+            }
+            if (count > 0) {
+                System.out.println("超时对账处理了 " + count + " 个遗留任务");
+            }
+        } catch (Exception e) {
+            System.err.println("超时对账异常: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 任务开始时间加上自身超时时间（和宽限期）是否已过
+     */
+    private boolean isTimedOut(Task task, LocalDateTime now, long graceMs) {
+        LocalDateTime startTime = task.getStartedAt();
+        return startTime != null
+                && startTime.plus(Duration.ofMillis(resolveTimeoutMs(task) + graceMs)).isBefore(now);
+    }
+
     /**
      * 获取队列大小
      */
     public int getQueueSize() {
-        return taskQueue.size();
+        int size = 0;
+        for (DispatchShard shard : shards) {
+            size += shard.queue.size();
+        }
+        return size;
+    }
+
+    /**
+     * 获取指定智能体实例的排队任务数
+     */
+    public int getQueueSize(Long agentInstanceId) {
+        return shardFor(agentInstanceId).queue.size(agentInstanceId);
+    }
+
+    /**
+     * 获取因队列已满被拒绝的任务数
+     */
+    public long getRejectedTaskCount() {
+        long rejected = 0;
+        for (DispatchShard shard : shards) {
+            rejected += shard.queue.getRejectedCount();
+        }
+        return rejected;
     }
 
     /**
-     * 获取待处理任务
+     * 获取待处理任务（按分片依次列出，分片内按出队顺序）
      */
     public List<Task> getPendingTasks() {
-        return taskQueue.stream().toList();
+        List<Task> pending = new ArrayList<>();
+        for (DispatchShard shard : shards) {
+            pending.addAll(shard.queue.snapshot());
+        }
+        return pending;
+    }
+
+    /**
+     * 获取各分片统计
+     */
+    public List<ShardStats> getShardStats() {
+        List<ShardStats> result = new ArrayList<>(shards.length);
+        for (DispatchShard shard : shards) {
+            ShardStats stats = new ShardStats();
+            stats.setShard(shard.index);
+            stats.setQueueSize(shard.queue.size());
+            stats.setCapacity(shard.queue.getCapacity());
+            stats.setRejectedCount(shard.queue.getRejectedCount());
+            long dispatched = shard.dispatchedCount.get();
+            long failed = shard.failedCount.get();
+            stats.setDispatchedCount(dispatched);
+            stats.setFailedCount(failed);
+            long total = dispatched + failed;
+            stats.setAvgDispatchMillis(total == 0 ? 0 : shard.totalDispatchNanos.get() / 1_000_000.0 / total);
+            stats.setMaxDispatchMillis(shard.maxDispatchNanos.get() / 1_000_000.0);
+            result.add(stats);
+        }
+        return result;
     }
 
     /**
      * 清空任务队列
      */
     public void clearQueue() {
-        taskQueue.clear();
+        for (DispatchShard shard : shards) {
+            shard.queue.clear();
+        }
         System.out.println("任务队列已清空");
     }
-}
\ No newline at end of file
+
+    /**
+     * 分发分片
+     */
+    private static class DispatchShard {
+        private final int index;
+        private final TaskPriorityQueue queue;
+        private final AtomicLong dispatchedCount = new AtomicLong();
+        private final AtomicLong failedCount = new AtomicLong();
+        private final AtomicLong totalDispatchNanos = new AtomicLong();
+        private final AtomicLong maxDispatchNanos = new AtomicLong();
+
+        DispatchShard(int index, TaskPriorityQueue queue) {
+            this.index = index;
+            this.queue = queue;
+        }
+
+        void recordDispatch(boolean dispatched, long nanos) {
+            if (dispatched) {
+                dispatchedCount.incrementAndGet();
+            } else {
+                failedCount.incrementAndGet();
+            }
+            totalDispatchNanos.addAndGet(nanos);
+            maxDispatchNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    /**
+     * 分片统计信息
+     */
+    public static class ShardStats {
+        private int shard;
+        private int queueSize;
+        private int capacity;
+        private long rejectedCount;
+        private long dispatchedCount;
+        private long failedCount;
+        private double avgDispatchMillis;
+        private double maxDispatchMillis;
+
+        // Getters and Setters
+        public int getShard() { return shard; }
+        public void setShard(int shard) { this.shard = shard; }
+        public int getQueueSize() { return queueSize; }
+        public void setQueueSize(int queueSize) { this.queueSize = queueSize; }
+        public int getCapacity() { return capacity; }
+        public void setCapacity(int capacity) { this.capacity = capacity; }
+        public long getRejectedCount() { return rejectedCount; }
+        public void setRejectedCount(long rejectedCount) { this.rejectedCount = rejectedCount; }
+        public long getDispatchedCount() { return dispatchedCount; }
+        public void setDispatchedCount(long dispatchedCount) { this.dispatchedCount = dispatchedCount; }
+        public long getFailedCount() { return failedCount; }
+        public void setFailedCount(long failedCount) { this.failedCount = failedCount; }
+        public double getAvgDispatchMillis() { return avgDispatchMillis; }
+        public void setAvgDispatchMillis(double avgDispatchMillis) { this.avgDispatchMillis = avgDispatchMillis; }
+        public double getMaxDispatchMillis() { return maxDispatchMillis; }
+        public void setMaxDispatchMillis(double maxDispatchMillis) { this.maxDispatchMillis = maxDispatchMillis; }
+    }
+}
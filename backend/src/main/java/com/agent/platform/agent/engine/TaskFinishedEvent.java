@@ -0,0 +1,41 @@
+package com.agent.platform.agent.engine;
+
+import com.agent.platform.agent.entity.Task;
+
+/**
+ * 任务结束事件
+ * 任务进入完成、失败或取消状态后发布，任务图执行器据此推进父任务，重试调度器据此安排失败任务的重试
+ */
+public class TaskFinishedEvent {
+
+    private final Long taskId;
+
+    // 父任务ID，独立任务为null
+    private final Long parentTaskId;
+
+    private final Task.TaskStatus status;
+
+    private final Task.TaskSubType taskType;
+
+    // 已重试次数
+    private final int retryCount;
+
+    private final String errorMessage;
+
+    public TaskFinishedEvent(Long taskId, Long parentTaskId, Task.TaskStatus status, Task.TaskSubType taskType,
+                             int retryCount, String errorMessage) {
+        this.taskId = taskId;
+        this.parentTaskId = parentTaskId;
+        this.status = status;
+        this.taskType = taskType;
+        this.retryCount = retryCount;
+        this.errorMessage = errorMessage;
+    }
+
+    public Long getTaskId() { return taskId; }
+    public Long getParentTaskId() { return parentTaskId; }
+    public Task.TaskStatus getStatus() { return status; }
+    public Task.TaskSubType getTaskType() { return taskType; }
+    public int getRetryCount() { return retryCount; }
+    public String getErrorMessage() { return errorMessage; }
+}
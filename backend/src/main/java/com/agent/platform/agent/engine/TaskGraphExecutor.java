@@ -0,0 +1,426 @@
+package com.agent.platform.agent.engine;
+
+import com.agent.platform.agent.entity.Task;
+import com.agent.platform.agent.service.TaskService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 任务图执行器 - 按父子关系执行顺序任务和并行任务
+ * 类型为 PARALLEL 的父任务开始执行时同时提交全部子任务，SEQUENTIAL 的父任务按子任务ID顺序逐个提交，
+ * 前一个子任务完成后才提交下一个。子任务的完成计数保存在内存中，全部完成后自动完成父任务，
+ * 任一子任务失败（且不再重试）或取消时取消剩余的待处理子任务并使父任务失败。
+ * 内存中没有任务图时（如重启后或子任务在其他节点结束）从数据库重建，子任务状态以数据库为准。
+ */
+@Component
+public class TaskGraphExecutor {
+
+    // 子任务提交被拒绝（队列已满）后的重试间隔
+    private static final long RESUBMIT_DELAY_MS = 1000;
+
+    @Autowired
+    private TaskService taskService;
+
+    // 分发器依赖任务执行器，延迟获取避免循环依赖
+    @Autowired
+    private ObjectProvider<TaskDispatcher> taskDispatcherProvider;
+
+    @Autowired
+    private TaskRetryScheduler retryScheduler;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 进行中的任务图，按父任务ID索引
+    private final Map<Long, TaskGraph> graphs = new ConcurrentHashMap<>();
+
+    // 任务图的推进都在单个线程上执行，不占用事务提交线程
+    private final ScheduledExecutorService graphThread = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "task-graph");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("agent.task.graph.active", graphs, Map::size)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        graphThread.shutdownNow();
+    }
+
+    /**
+     * 是否为需要按任务图执行的父任务类型
+     */
+    public boolean isGraphType(Task.TaskType type) {
+        return type == Task.TaskType.SEQUENTIAL || type == Task.TaskType.PARALLEL;
+    }
+
+    /**
+     * 开始执行父任务的任务图，父任务没有子任务时返回false（按普通任务执行）
+     */
+    public boolean startGraph(Task parent) {
+        if (!isGraphType(parent.getType())) {
+            return false;
+        }
+        List<Task> children = taskService.getSubTasks(parent.getId());
+        if (children.isEmpty()) {
+            return false;
+        }
+
+        TaskGraph graph = buildGraph(parent.getId(), parent.getType(), children);
+        graphs.put(parent.getId(), graph);
+        System.out.println("任务图已开始: " + parent.getId() + " (" + parent.getType() + "，子任务 " + children.size() + ")");
+
+        graphThread.execute(() -> advance(graph));
+        return true;
+    }
+
+    /**
+     * 子任务是否已轮到执行；不属于任务图的任务始终可以执行
+     * 分发器据此跳过尚未轮到的顺序子任务（如启动恢复时从数据库加载的待处理子任务）
+     */
+    public boolean isReleased(Task task) {
+        Long parentId = task.getParentTask() != null ? task.getParentTask().getId() : null;
+        if (parentId == null) {
+            return true;
+        }
+
+        TaskGraph graph = graphs.get(parentId);
+        if (graph != null && graph.isReleased(task.getId())) {
+            return true;
+        }
+
+        // 本地任务图可能尚未建立或已过期，按数据库状态重新判断
+        Optional<Task> parent = taskService.getTaskById(parentId);
+        if (parent.isEmpty() || !isGraphType(parent.get().getType())) {
+            return true;
+        }
+        if (parent.get().getStatus() != Task.TaskStatus.RUNNING) {
+            // 父任务开始执行时会提交子任务
+            return false;
+        }
+        TaskGraph reloaded = buildGraph(parentId, parent.get().getType(), taskService.getSubTasks(parentId));
+        return reloaded.isReleased(task.getId());
+    }
+
+    /**
+     * 进行中的任务图数量
+     */
+    public int getActiveGraphCount() {
+        return graphs.size();
+    }
+
+    /**
+     * 任务结束后推进所属任务图（事务提交后执行）
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskFinished(TaskFinishedEvent event) {
+        if (event.getParentTaskId() == null && !graphs.containsKey(event.getTaskId())) {
+            return;
+        }
+        graphThread.execute(() -> handleTaskFinished(event));
+    }
+
+    private void handleTaskFinished(TaskFinishedEvent event) {
+        // 父任务被外部取消或判定失败，结束任务图
+        TaskGraph own = graphs.remove(event.getTaskId());
+        if (own != null) {
+            System.out.println("父任务已结束，停止任务图: " + event.getTaskId() + " (" + event.getStatus() + ")");
+            cancelPendingChildren(own);
+        }
+
+        Long parentId = event.getParentTaskId();
+        if (parentId == null) {
+            return;
+        }
+
+        TaskGraph graph = graphs.get(parentId);
+        if (graph == null) {
+            graph = loadGraph(parentId);
+            if (graph == null) {
+                return;
+            }
+            TaskGraph existing = graphs.putIfAbsent(parentId, graph);
+            if (existing != null) {
+                graph = existing;
+            }
+        }
+        Task.TaskStatus status = event.getStatus();
+        if (status == Task.TaskStatus.FAILED
+                && retryScheduler.willRetry(event.getTaskType(), event.getRetryCount(), event.getErrorMessage())) {
+            // 子任务将由重试调度器重新提交，任务图继续等待
+            status = Task.TaskStatus.PENDING;
+        }
+        graph.update(event.getTaskId(), status);
+        advance(graph);
+    }
+
+    /**
+     * 从数据库重建父任务仍在执行中的任务图
+     */
+    private TaskGraph loadGraph(Long parentId) {
+        Optional<Task> parent = taskService.getTaskById(parentId);
+        if (parent.isEmpty() || !isGraphType(parent.get().getType())
+                || parent.get().getStatus() != Task.TaskStatus.RUNNING) {
+            return null;
+        }
+        List<Task> children = taskService.getSubTasks(parentId);
+        return children.isEmpty() ? null : buildGraph(parentId, parent.get().getType(), children);
+    }
+
+    /**
+     * 构建任务图，等待重试的失败子任务视为待处理
+     */
+    private TaskGraph buildGraph(Long parentId, Task.TaskType type, List<Task> children) {
+        TaskGraph graph = new TaskGraph(parentId, type);
+        for (Task child : children) {
+            Task.TaskStatus status = child.getStatus();
+            int retryCount = child.getRetryCount() != null ? child.getRetryCount() : 0;
+            if (status == Task.TaskStatus.FAILED && child.getDeadLetteredAt() == null
+                    && retryScheduler.willRetry(child.getTaskType(), retryCount, child.getErrorMessage())) {
+                status = Task.TaskStatus.PENDING;
+            }
+            graph.addChild(child.getId(), status);
+        }
+        return graph;
+    }
+
+    /**
+     * 推进任务图：有失败则父任务失败，全部完成则父任务完成，否则提交已轮到的子任务
+     */
+    private void advance(TaskGraph graph) {
+        if (graphs.get(graph.parentId) != graph) {
+            return;
+        }
+
+        if (graph.getFailedCount() > 0) {
+            finish(graph, false);
+            return;
+        }
+        if (graph.getCompletedCount() == graph.size()) {
+            finish(graph, true);
+            return;
+        }
+
+        boolean rejected = false;
+        for (Long childId : graph.takeReadyChildren()) {
+            try {
+                Optional<Task> child = taskService.getTaskById(childId);
+                if (child.isPresent() && child.get().getStatus() == Task.TaskStatus.PENDING) {
+                    taskDispatcherProvider.getObject().submitTask(child.get());
+                }
+            } catch (TaskRejectedException e) {
+                graph.unmarkSubmitted(childId);
+                rejected = true;
+            } catch (Exception e) {
+                System.err.println("提交子任务失败: " + childId + " - " + e.getMessage());
+                graph.unmarkSubmitted(childId);
+                rejected = true;
+            }
+        }
+        if (rejected) {
+            graphThread.schedule(() -> advance(graph), RESUBMIT_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 结束任务图并更新父任务，只执行一次
+     */
+    private void finish(TaskGraph graph, boolean success) {
+        if (!graphs.remove(graph.parentId, graph)) {
+            return;
+        }
+
+        try {
+            if (success) {
+                taskService.completeTask(graph.parentId, aggregateResults(graph.parentId));
+                System.out.println("任务图已完成: " + graph.parentId);
+            } else {
+                cancelPendingChildren(graph);
+                taskService.failTask(graph.parentId, "子任务失败: " + graph.getFailedChildren());
+                System.out.println("任务图失败: " + graph.parentId + "，失败子任务: " + graph.getFailedChildren());
+            }
+        } catch (Exception e) {
+            // 父任务可能已被取消或超时
+            System.err.println("更新父任务状态失败: " + graph.parentId + " - " + e.getMessage());
+        }
+    }
+
+    /**
+     * 取消尚未开始的子任务，已在执行的子任务继续运行至结束
+     */
+    private void cancelPendingChildren(TaskGraph graph) {
+        for (Long childId : graph.getPendingChildren()) {
+            retryScheduler.cancel(childId);
+            try {
+                taskService.cancelTask(childId);
+            } catch (Exception e) {
+                // 子任务已开始或已结束
+            }
+        }
+    }
+
+    /**
+     * 按子任务顺序汇总结果
+     */
+    private String aggregateResults(Long parentId) {
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (Task child : taskService.getSubTasks(parentId)) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("taskId", child.getId());
+            result.put("name", child.getName());
+            result.put("result", child.getResult());
+            results.add(result);
+        }
+        try {
+            return objectMapper.writeValueAsString(results);
+        } catch (JsonProcessingException e) {
+            return results.toString();
+        }
+    }
+
+    /**
+     * 单个父任务的任务图状态
+     */
+    private static class TaskGraph {
+        private final Long parentId;
+        private final Task.TaskType type;
+        // 子任务ID，按执行顺序排列
+        private final List<Long> childIds = new ArrayList<>();
+        private final Map<Long, Task.TaskStatus> statuses = new LinkedHashMap<>();
+        // 已提交给分发器的子任务，避免重复提交
+        private final Set<Long> submitted = new HashSet<>();
+        private int completedCount;
+        private int failedCount;
+
+        TaskGraph(Long parentId, Task.TaskType type) {
+            this.parentId = parentId;
+            this.type = type;
+        }
+
+        synchronized void addChild(Long childId, Task.TaskStatus status) {
+            childIds.add(childId);
+            statuses.put(childId, status);
+            count(status, 1);
+        }
+
+        synchronized void update(Long childId, Task.TaskStatus status) {
+            Task.TaskStatus previous = statuses.get(childId);
+            if (previous == null || previous == status) {
+                return;
+            }
+            count(previous, -1);
+            count(status, 1);
+            statuses.put(childId, status);
+        }
+
+        /**
+         * 子任务是否已轮到执行：并行任务全部可执行，顺序任务只有前序子任务都已完成时可执行
+         */
+        synchronized boolean isReleased(Long childId) {
+            int index = childIds.indexOf(childId);
+            if (index < 0) {
+                return false;
+            }
+            return type == Task.TaskType.PARALLEL || index <= cursor();
+        }
+
+        /**
+         * 获取已轮到但尚未提交的待处理子任务，并标记为已提交
+         */
+        synchronized List<Long> takeReadyChildren() {
+            List<Long> ready = new ArrayList<>();
+            int last = type == Task.TaskType.PARALLEL ? childIds.size() - 1 : Math.min(cursor(), childIds.size() - 1);
+            for (int i = 0; i <= last; i++) {
+                Long childId = childIds.get(i);
+                if (statuses.get(childId) == Task.TaskStatus.PENDING && submitted.add(childId)) {
+                    ready.add(childId);
+                }
+            }
+            return ready;
+        }
+
+        synchronized void unmarkSubmitted(Long childId) {
+            submitted.remove(childId);
+        }
+
+        synchronized List<Long> getPendingChildren() {
+            List<Long> pending = new ArrayList<>();
+            statuses.forEach((childId, status) -> {
+                if (status == Task.TaskStatus.PENDING) {
+                    pending.add(childId);
+                }
+            });
+            return pending;
+        }
+
+        synchronized List<Long> getFailedChildren() {
+            List<Long> failed = new ArrayList<>();
+            statuses.forEach((childId, status) -> {
+                if (status == Task.TaskStatus.FAILED || status == Task.TaskStatus.CANCELLED) {
+                    failed.add(childId);
+                }
+            });
+            return failed;
+        }
+
+        synchronized int getCompletedCount() {
+            return completedCount;
+        }
+
+        synchronized int getFailedCount() {
+            return failedCount;
+        }
+
+        int size() {
+            return childIds.size();
+        }
+
+        /**
+         * 第一个未完成子任务的位置
+         */
+        private int cursor() {
+            for (int i = 0; i < childIds.size(); i++) {
+                if (statuses.get(childIds.get(i)) != Task.TaskStatus.COMPLETED) {
+                    return i;
+                }
+            }
+            return childIds.size();
+        }
+
+        private void count(Task.TaskStatus status, int delta) {
+            if (status == Task.TaskStatus.COMPLETED) {
+                completedCount += delta;
+            } else if (status == Task.TaskStatus.FAILED || status == Task.TaskStatus.CANCELLED) {
+                failedCount += delta;
+            }
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.agent.platform.agent.engine;
+
+import com.agent.platform.agent.entity.Task;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 有界任务优先级队列
+ * 按智能体实例划分子队列，出队时选择所有子队列队首中最优先的任务。
+ * 排序先按优先级（数值越小越优先）再按入队时间；任务每等待一个老化周期，
+ * 相当于优先级提升一级，因此低优先级任务不会被持续到达的高优先级任务饿死。
+ */
+public class TaskPriorityQueue {
+
+    // 未关联实例的任务使用的子队列
+    private static final Long UNASSIGNED = 0L;
+
+    private final int capacity;
+    private final int maxPerInstance;
+    private final long agingIntervalMs;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    // 实例子队列
+    private final Map<Long, InstanceQueue> instances = new HashMap<>();
+
+    // 非空子队列，按队首任务排序
+    private final TreeSet<InstanceQueue> ready = new TreeSet<>(
+            Comparator.comparing((InstanceQueue q) -> q.queue.peek(), Entry.ORDER));
+
+    // 排队中的任务ID，用于恢复时去重
+    private final Set<Long> queuedTaskIds = new HashSet<>();
+
+    private int size = 0;
+    private long sequence = 0;
+    private long rejectedCount = 0;
+
+    public TaskPriorityQueue(int capacity, int maxPerInstance, long agingIntervalMs) {
+        this.capacity = capacity;
+        this.maxPerInstance = maxPerInstance;
+        this.agingIntervalMs = agingIntervalMs;
+    }
+
+    /**
+     * 入队
+     *
+     * @return 队列或实例子队列已满时返回false
+     */
+    public boolean offer(Task task) {
+        Long instanceId = instanceKey(task);
+        lock.lock();
+        try {
+            // 先检查容量再创建子队列，被拒绝的任务不会留下空的子队列
+            InstanceQueue instanceQueue = instances.get(instanceId);
+            if (size >= capacity || (instanceQueue != null && instanceQueue.queue.size() >= maxPerInstance)) {
+                rejectedCount++;
+                return false;
+            }
+            if (instanceQueue == null) {
+                instanceQueue = new InstanceQueue(instanceId);
+                instances.put(instanceId, instanceQueue);
+            }
+
+            Entry entry = new Entry(task, sortKey(task, System.currentTimeMillis()), sequence++);
+            boolean wasEmpty = instanceQueue.queue.isEmpty();
+            if (!wasEmpty) {
+                ready.remove(instanceQueue);
+            }
+            instanceQueue.queue.offer(entry);
+            ready.add(instanceQueue);
+            if (task.getId() != null) {
+                queuedTaskIds.add(task.getId());
+            }
+            size++;
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 出队，队列为空时最多等待指定时间
+     */
+    public Task poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+
+            InstanceQueue instanceQueue = ready.pollFirst();
+            Entry entry = instanceQueue.queue.poll();
+            if (instanceQueue.queue.isEmpty()) {
+                instances.remove(instanceQueue.instanceId);
+            } else {
+                ready.add(instanceQueue);
+            }
+            size--;
+            if (entry.task.getId() != null) {
+                queuedTaskIds.remove(entry.task.getId());
+            }
+            return entry.task;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 实例子队列是否还能接收任务
+     */
+    public boolean hasCapacity(Long agentInstanceId) {
+        lock.lock();
+        try {
+            if (size >= capacity) {
+                return false;
+            }
+            InstanceQueue instanceQueue = instances.get(agentInstanceId != null ? agentInstanceId : UNASSIGNED);
+            return instanceQueue == null || instanceQueue.queue.size() < maxPerInstance;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 任务是否在排队中
+     */
+    public boolean contains(Long taskId) {
+        lock.lock();
+        try {
+            return queuedTaskIds.contains(taskId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 指定实例排队中的任务数
+     */
+    public int size(Long agentInstanceId) {
+        lock.lock();
+        try {
+            InstanceQueue instanceQueue = instances.get(agentInstanceId != null ? agentInstanceId : UNASSIGNED);
+            return instanceQueue != null ? instanceQueue.queue.size() : 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 按出队顺序返回排队中的任务快照
+     */
+    public List<Task> snapshot() {
+        lock.lock();
+        try {
+            List<Entry> entries = new ArrayList<>(size);
+            for (InstanceQueue instanceQueue : instances.values()) {
+                entries.addAll(instanceQueue.queue);
+            }
+            entries.sort(Entry.ORDER);
+            List<Task> tasks = new ArrayList<>(entries.size());
+            for (Entry entry : entries) {
+                tasks.add(entry.task);
+            }
+            return tasks;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            instances.clear();
+            ready.clear();
+            queuedTaskIds.clear();
+            size = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getRejectedCount() {
+        lock.lock();
+        try {
+            return rejectedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 排序键为“虚拟到期时间” = 入队时间 + (优先级 - 1) × 老化周期，
+     * 等价于按优先级排序并随等待时间提升优先级，且排序键不随时间变化
+     */
+    private long sortKey(Task task, long enqueuedAt) {
+        int priority = task.getPriority() != null ? Math.max(1, Math.min(10, task.getPriority())) : 5;
+        return enqueuedAt + (priority - 1) * agingIntervalMs;
+    }
+
+    private static Long instanceKey(Task task) {
+        Long instanceId = task.getAgentInstanceId();
+        return instanceId != null ? instanceId : UNASSIGNED;
+    }
+
+    /**
+     * 单个实例的子队列
+     */
+    private static class InstanceQueue {
+        private final Long instanceId;
+        private final PriorityQueue<Entry> queue = new PriorityQueue<>(Entry.ORDER);
+
+        InstanceQueue(Long instanceId) {
+            this.instanceId = instanceId;
+        }
+    }
+
+    /**
+     * 队列元素
+     */
+    private static class Entry {
+        private static final Comparator<Entry> ORDER =
+                Comparator.comparingLong((Entry e) -> e.sortKey).thenComparingLong(e -> e.sequence);
+
+        private final Task task;
+        private final long sortKey;
+        private final long sequence;
+
+        Entry(Task task, long sortKey, long sequence) {
+            this.task = task;
+            this.sortKey = sortKey;
+            this.sequence = sequence;
+        }
+    }
+}
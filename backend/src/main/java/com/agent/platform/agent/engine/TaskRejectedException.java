@@ -0,0 +1,11 @@
+package com.agent.platform.agent.engine;
+
+/**
+ * 任务被拒绝异常 - 任务队列已满时抛出，调用方应稍后重试
+ */
+public class TaskRejectedException extends IllegalStateException {
+
+    public TaskRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,365 @@
+package com.agent.platform.agent.engine;
+
+import com.agent.platform.agent.entity.Task;
+import com.agent.platform.agent.service.TaskService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 任务重试调度器
+ * 任务失败后按子类型的重试策略判断是否重试：错误可重试且未超过最大执行次数时，
+ * 按指数退避加随机抖动计算延迟，到期后将任务恢复为待处理并重新提交给分发器；
+ * 延迟在内存中调度，不轮询数据库。不可重试或次数用尽的任务进入死信，可通过接口手动重放。
+ * 启动时从数据库恢复重启前尚未执行的重试；各节点都会恢复同一批失败任务，
+ * 到期时按重试次数条件更新领取任务，只有领取成功的节点提交执行。
+ */
+@Component
+public class TaskRetryScheduler {
+
+    // 重新提交被拒绝（队列已满）后的重试间隔
+    private static final long RESUBMIT_DELAY_MS = 1000;
+
+    private static final int RECOVERY_PAGE_SIZE = 500;
+
+    @Autowired
+    private TaskService taskService;
+
+    // 分发器依赖任务执行器，延迟获取避免循环依赖
+    @Autowired
+    private ObjectProvider<TaskDispatcher> taskDispatcherProvider;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.agent.retry.enabled:true}")
+    private boolean enabled;
+
+    // 退避倍数
+    @Value("${app.agent.retry.multiplier:2.0}")
+    private double multiplier;
+
+    // 抖动比例：实际延迟在 [延迟*(1-jitter), 延迟] 之间随机，1.0 为完全随机
+    @Value("${app.agent.retry.jitter:0.5}")
+    private double jitter;
+
+    // 错误信息包含以下内容时不重试
+    @Value("${app.agent.retry.non-retryable-errors:智能体实例不存在,缺少参与者,不支持的,任务队列已满,提交任务图失败,子任务失败}")
+    private String[] nonRetryableErrors;
+
+    // 启动时恢复该时间窗口内失败的任务
+    @Value("${app.agent.retry.recovery-window-ms:3600000}")
+    private long recoveryWindowMs;
+
+    @Value("${app.agent.retry.text-processing.max-attempts:3}")
+    private int textProcessingMaxAttempts;
+
+    @Value("${app.agent.retry.text-processing.base-delay-ms:1000}")
+    private long textProcessingBaseDelayMs;
+
+    @Value("${app.agent.retry.text-processing.max-delay-ms:60000}")
+    private long textProcessingMaxDelayMs;
+
+    @Value("${app.agent.retry.data-analysis.max-attempts:3}")
+    private int dataAnalysisMaxAttempts;
+
+    @Value("${app.agent.retry.data-analysis.base-delay-ms:5000}")
+    private long dataAnalysisBaseDelayMs;
+
+    @Value("${app.agent.retry.data-analysis.max-delay-ms:300000}")
+    private long dataAnalysisMaxDelayMs;
+
+    @Value("${app.agent.retry.decision-making.max-attempts:3}")
+    private int decisionMakingMaxAttempts;
+
+    @Value("${app.agent.retry.decision-making.base-delay-ms:2000}")
+    private long decisionMakingBaseDelayMs;
+
+    @Value("${app.agent.retry.decision-making.max-delay-ms:120000}")
+    private long decisionMakingMaxDelayMs;
+
+    @Value("${app.agent.retry.collaborative.max-attempts:1}")
+    private int collaborativeMaxAttempts;
+
+    @Value("${app.agent.retry.collaborative.base-delay-ms:10000}")
+    private long collaborativeBaseDelayMs;
+
+    @Value("${app.agent.retry.collaborative.max-delay-ms:300000}")
+    private long collaborativeMaxDelayMs;
+
+    private final Map<Task.TaskSubType, RetryPolicy> policies = new EnumMap<>(Task.TaskSubType.class);
+
+    // 已安排的重试，按任务ID索引
+    private final Map<Long, ScheduledFuture<?>> scheduledRetries = new ConcurrentHashMap<>();
+
+    private final AtomicLong retriedCount = new AtomicLong();
+    private final AtomicLong deadLetteredCount = new AtomicLong();
+
+    private final ScheduledExecutorService retryThread = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "task-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init() {
+        policies.put(Task.TaskSubType.TEXT_PROCESSING,
+                new RetryPolicy(textProcessingMaxAttempts, textProcessingBaseDelayMs, textProcessingMaxDelayMs));
+        policies.put(Task.TaskSubType.DATA_ANALYSIS,
+                new RetryPolicy(dataAnalysisMaxAttempts, dataAnalysisBaseDelayMs, dataAnalysisMaxDelayMs));
+        policies.put(Task.TaskSubType.DECISION_MAKING,
+                new RetryPolicy(decisionMakingMaxAttempts, decisionMakingBaseDelayMs, decisionMakingMaxDelayMs));
+        policies.put(Task.TaskSubType.COLLABORATIVE,
+                new RetryPolicy(collaborativeMaxAttempts, collaborativeBaseDelayMs, collaborativeMaxDelayMs));
+
+        Gauge.builder("agent.task.retry.scheduled", scheduledRetries, Map::size)
+                .register(meterRegistry);
+        FunctionCounter.builder("agent.task.retry.retried", retriedCount, AtomicLong::get)
+                .register(meterRegistry);
+        FunctionCounter.builder("agent.task.retry.dead_lettered", deadLetteredCount, AtomicLong::get)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        retryThread.shutdownNow();
+    }
+
+    /**
+     * 启动后恢复重启前尚未执行的重试
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverPendingRetries() {
+        if (!enabled) {
+            return;
+        }
+        retryThread.execute(() -> {
+            int recovered = 0;
+            Long afterId = 0L;
+            LocalDateTime failedAfter = LocalDateTime.now().minus(Duration.ofMillis(recoveryWindowMs));
+            try {
+                while (true) {
+                    List<Task> page = taskService.getRetryableFailedTasksPage(failedAfter, afterId, RECOVERY_PAGE_SIZE);
+                    for (Task task : page) {
+                        int retryCount = task.getRetryCount() != null ? task.getRetryCount() : 0;
+                        if (willRetry(task.getTaskType(), retryCount, task.getErrorMessage())) {
+                            // 按失败时间计算剩余延迟，已到期的立即重试
+                            long elapsed = Duration.between(task.getUpdatedAt(), LocalDateTime.now()).toMillis();
+                            schedule(task.getId(), Math.max(0, delayFor(task.getTaskType(), retryCount) - elapsed));
+                            recovered++;
+                        } else {
+                            deadLetter(task.getId(), task.getErrorMessage());
+                        }
+                    }
+                    if (page.size() < RECOVERY_PAGE_SIZE) {
+                        break;
+                    }
+                    afterId = page.get(page.size() - 1).getId();
+                }
+                System.out.println("已恢复待重试任务: " + recovered);
+            } catch (Exception e) {
+                System.err.println("恢复待重试任务失败: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 失败任务是否会被自动重试
+     */
+    public boolean willRetry(Task.TaskSubType type, int retryCount, String errorMessage) {
+        if (!enabled || !isRetryable(errorMessage)) {
+            return false;
+        }
+        // 首次执行加已重试次数不超过最大执行次数
+        return retryCount + 1 < policyFor(type).maxAttempts;
+    }
+
+    /**
+     * 任务失败后安排重试或进入死信（事务提交后执行）
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskFinished(TaskFinishedEvent event) {
+        if (!enabled || event.getStatus() != Task.TaskStatus.FAILED) {
+            return;
+        }
+        if (willRetry(event.getTaskType(), event.getRetryCount(), event.getErrorMessage())) {
+            long delayMs = delayFor(event.getTaskType(), event.getRetryCount());
+            schedule(event.getTaskId(), delayMs);
+            System.out.println("任务将在 " + delayMs + "ms 后重试: " + event.getTaskId()
+                    + " (第 " + (event.getRetryCount() + 1) + " 次重试)");
+        } else {
+            retryThread.execute(() -> deadLetter(event.getTaskId(), event.getErrorMessage()));
+        }
+    }
+
+    /**
+     * 取消已安排的重试
+     */
+    public boolean cancel(Long taskId) {
+        ScheduledFuture<?> future = scheduledRetries.remove(taskId);
+        return future != null && future.cancel(false);
+    }
+
+    /**
+     * 立即重试失败任务（包括死信任务的手动重放）
+     */
+    public Task retryNow(Long taskId) {
+        cancel(taskId);
+        Task task = taskService.retryTask(taskId);
+        taskDispatcherProvider.getObject().submitTask(task);
+        retriedCount.incrementAndGet();
+        return task;
+    }
+
+    /**
+     * 已安排的重试数量
+     */
+    public int getScheduledRetryCount() {
+        return scheduledRetries.size();
+    }
+
+    private void schedule(Long taskId, long delayMs) {
+        ScheduledFuture<?> future = retryThread.schedule(() -> fire(taskId), delayMs, TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> previous = scheduledRetries.put(taskId, future);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    private void scheduleResubmit(Long taskId) {
+        ScheduledFuture<?> future = retryThread.schedule(() -> resubmit(taskId), RESUBMIT_DELAY_MS, TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> previous = scheduledRetries.put(taskId, future);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    /**
+     * 重试到期：领取失败任务并恢复为待处理后提交
+     */
+    private void fire(Long taskId) {
+        scheduledRetries.remove(taskId);
+        Task task;
+        try {
+            Optional<Task> existing = taskService.getTaskById(taskId);
+            if (existing.isEmpty() || existing.get().getStatus() != Task.TaskStatus.FAILED
+                    || existing.get().getDeadLetteredAt() != null) {
+                // 任务已被手动重试、取消、进入死信或由其他节点重试
+                return;
+            }
+            task = taskService.retryTask(taskId);
+            retriedCount.incrementAndGet();
+        } catch (IllegalStateException e) {
+            // 其他节点已领取该任务的本次重试
+            return;
+        } catch (Exception e) {
+            System.err.println("任务重试失败: " + taskId + " - " + e.getMessage());
+            return;
+        }
+        submit(task);
+    }
+
+    /**
+     * 重新提交本节点已恢复为待处理但因队列已满未能提交的任务
+     */
+    private void resubmit(Long taskId) {
+        scheduledRetries.remove(taskId);
+        try {
+            Optional<Task> existing = taskService.getTaskById(taskId);
+            if (existing.isPresent() && existing.get().getStatus() == Task.TaskStatus.PENDING) {
+                submit(existing.get());
+            }
+        } catch (Exception e) {
+            System.err.println("任务重试失败: " + taskId + " - " + e.getMessage());
+        }
+    }
+
+    private void submit(Task task) {
+        try {
+            taskDispatcherProvider.getObject().submitTask(task);
+            System.out.println("任务已重新提交: " + task.getId() + " (第 " + task.getRetryCount() + " 次重试)");
+        } catch (TaskRejectedException e) {
+            // 任务已恢复为待处理，稍后再次提交
+            scheduleResubmit(task.getId());
+        } catch (Exception e) {
+            System.err.println("任务重试失败: " + task.getId() + " - " + e.getMessage());
+        }
+    }
+
+    private void deadLetter(Long taskId, String errorMessage) {
+        try {
+            taskService.markTaskDeadLettered(taskId);
+            deadLetteredCount.incrementAndGet();
+            System.err.println("任务进入死信: " + taskId + " - " + errorMessage);
+        } catch (Exception e) {
+            System.err.println("标记死信任务失败: " + taskId + " - " + e.getMessage());
+        }
+    }
+
+    private boolean isRetryable(String errorMessage) {
+        if (errorMessage == null) {
+            return true;
+        }
+        for (String pattern : nonRetryableErrors) {
+            if (!pattern.isBlank() && errorMessage.contains(pattern.trim())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 指数退避加随机抖动
+     */
+    private long delayFor(Task.TaskSubType type, int retryCount) {
+        RetryPolicy policy = policyFor(type);
+        double backoff = policy.baseDelayMs * Math.pow(multiplier, retryCount);
+        long delay = (long) Math.min(policy.maxDelayMs, backoff);
+        long jitterRange = (long) (delay * Math.max(0, Math.min(1, jitter)));
+        return delay - (jitterRange > 0 ? ThreadLocalRandom.current().nextLong(jitterRange + 1) : 0);
+    }
+
+    private RetryPolicy policyFor(Task.TaskSubType type) {
+        // 未设置子类型的任务按文本处理任务的策略重试
+        return policies.get(type != null ? type : Task.TaskSubType.TEXT_PROCESSING);
+    }
+
+    /**
+     * 单个任务子类型的重试策略
+     */
+    private static class RetryPolicy {
+        // 最大执行次数（含首次执行）
+        private final int maxAttempts;
+        private final long baseDelayMs;
+        private final long maxDelayMs;
+
+        RetryPolicy(int maxAttempts, long baseDelayMs, long maxDelayMs) {
+            this.maxAttempts = Math.max(1, maxAttempts);
+            this.baseDelayMs = Math.max(0, baseDelayMs);
+            this.maxDelayMs = Math.max(this.baseDelayMs, maxDelayMs);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.agent.platform.agent.engine;
+
+import com.agent.platform.agent.entity.Task;
+
+/**
+ * 任务状态变更事件
+ * 任务创建或状态变更后发布，统计快照据此增量更新各状态的任务数量
+ */
+public class TaskStatusChangedEvent {
+
+    private final Long taskId;
+
+    // 变更前的状态，新建任务为null
+    private final Task.TaskStatus previousStatus;
+
+    private final Task.TaskStatus status;
+
+    public TaskStatusChangedEvent(Long taskId, Task.TaskStatus previousStatus, Task.TaskStatus status) {
+        this.taskId = taskId;
+        this.previousStatus = previousStatus;
+        this.status = status;
+    }
+
+    public Long getTaskId() { return taskId; }
+    public Task.TaskStatus getPreviousStatus() { return previousStatus; }
+    public Task.TaskStatus getStatus() { return status; }
+}
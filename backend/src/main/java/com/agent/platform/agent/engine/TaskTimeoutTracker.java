@@ -0,0 +1,223 @@
+package com.agent.platform.agent.engine;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 任务超时跟踪器 - 哈希时间轮
+ * 任务开始执行时登记截止时间，完成时取消，登记与取消均为 O(1)；
+ * 时间轮线程每个刻度只处理当前槽位，到期任务交给超时处理线程回调，处理耗时不影响后续刻度
+ */
+@Component
+public class TaskTimeoutTracker {
+
+    // 刻度时长（毫秒）
+    @Value("${app.agent.task-timeout.tick-ms:1000}")
+    private long tickMs;
+
+    // 时间轮槽位数
+    @Value("${app.agent.task-timeout.wheel-size:512}")
+    private int wheelSize;
+
+    // 超时处理线程数（取消执行并写入超时状态）
+    @Value("${app.agent.task-timeout.handler-threads:2}")
+    private int handlerThreads;
+
+    // 槽位（仅由时间轮线程访问）
+    private Queue<TimeoutEntry>[] wheel;
+
+    // 待加入时间轮的登记
+    private final Queue<TimeoutEntry> pendingEntries = new ConcurrentLinkedQueue<>();
+
+    // 跟踪中的任务
+    private final Map<Long, TimeoutEntry> trackedTasks = new ConcurrentHashMap<>();
+
+    private volatile Consumer<Long> timeoutHandler = taskId -> { };
+
+    private Thread wheelThread;
+
+    private ExecutorService handlerExecutor;
+
+    private volatile boolean running = false;
+
+    private long startTime;
+
+    private long tick = 0;
+
+    @PostConstruct
+    @SuppressWarnings("unchecked")
+    public void start() {
+        wheel = new Queue[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            wheel[i] = new ArrayDeque<>();
+        }
+        AtomicInteger handlerIndex = new AtomicInteger();
+        handlerExecutor = Executors.newFixedThreadPool(Math.max(1, handlerThreads), r -> {
+            Thread thread = new Thread(r, "task-timeout-handler-" + handlerIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        startTime = System.currentTimeMillis();
+        running = true;
+        wheelThread = new Thread(this::run, "task-timeout-wheel");
+        wheelThread.setDaemon(true);
+        wheelThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (wheelThread != null) {
+            wheelThread.interrupt();
+        }
+        if (handlerExecutor != null) {
+            handlerExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 设置超时处理器（在超时处理线程中调用）
+     */
+    public void setTimeoutHandler(Consumer<Long> timeoutHandler) {
+        this.timeoutHandler = timeoutHandler;
+    }
+
+    /**
+     * 登记任务截止时间，重复登记会替换之前的截止时间
+     */
+    public void register(Long taskId, long timeoutMs) {
+        TimeoutEntry entry = new TimeoutEntry(taskId, System.currentTimeMillis() + timeoutMs);
+        TimeoutEntry previous = trackedTasks.put(taskId, entry);
+        if (previous != null) {
+            previous.cancelled = true;
+        }
+        pendingEntries.offer(entry);
+    }
+
+    /**
+     * 取消任务超时跟踪
+     */
+    public void cancel(Long taskId) {
+        TimeoutEntry entry = trackedTasks.remove(taskId);
+        if (entry != null) {
+            entry.cancelled = true;
+        }
+    }
+
+    /**
+     * 任务是否在跟踪中
+     */
+    public boolean isTracked(Long taskId) {
+        return trackedTasks.containsKey(taskId);
+    }
+
+    /**
+     * 跟踪中的任务数量
+     */
+    public int getTrackedCount() {
+        return trackedTasks.size();
+    }
+
+    /**
+     * 时间轮主循环
+     */
+    private void run() {
+        while (running) {
+            long deadline = startTime + (tick + 1) * tickMs;
+            long sleepMs = deadline - System.currentTimeMillis();
+            if (sleepMs > 0) {
+                try {
+                    Thread.sleep(sleepMs);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        break;
+                    }
+                    continue;
+                }
+            }
+
+            transferPendingEntries();
+            expire(wheel[(int) (tick % wheelSize)]);
+            tick++;
+        }
+    }
+
+    /**
+     * 将新登记放入对应槽位
+     */
+    private void transferPendingEntries() {
+        TimeoutEntry entry;
+        while ((entry = pendingEntries.poll()) != null) {
+            if (entry.cancelled) {
+                continue;
+            }
+            // 至少放到下一个刻度，避免在当前刻度之前的槽位中等待整圈
+            long targetTick = Math.max(tick, (entry.deadline - startTime) / tickMs);
+            entry.remainingRounds = (targetTick - tick) / wheelSize;
+            wheel[(int) (targetTick % wheelSize)].offer(entry);
+        }
+    }
+
+    /**
+     * 处理当前槽位中到期的任务
+     */
+    private void expire(Queue<TimeoutEntry> bucket) {
+        Iterator<TimeoutEntry> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            TimeoutEntry entry = iterator.next();
+            if (entry.cancelled) {
+                iterator.remove();
+                continue;
+            }
+            if (entry.remainingRounds > 0) {
+                entry.remainingRounds--;
+                continue;
+            }
+
+            iterator.remove();
+            if (trackedTasks.remove(entry.taskId, entry)) {
+                Long taskId = entry.taskId;
+                try {
+                    handlerExecutor.execute(() -> {
+                        try {
+                            timeoutHandler.accept(taskId);
+                        } catch (Exception e) {
+                            System.err.println("处理任务超时异常: " + taskId + " - " + e.getMessage());
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    // 正在停止，未处理的超时任务由下次启动的超时对账处理
+                }
+            }
+        }
+    }
+
+    /**
+     * 超时登记
+     */
+    private static class TimeoutEntry {
+        private final Long taskId;
+        private final long deadline;
+        private long remainingRounds;
+        private volatile boolean cancelled;
+
+        TimeoutEntry(Long taskId, long deadline) {
+            this.taskId = taskId;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -13,7 +13,11 @@ import java.time.LocalDateTime;
 @Data
 @EqualsAndHashCode(callSuper = true)
 @Entity
-@Table(name = "agent_message")
+@Table(name = "agent_message", indexes = {
+    @Index(name = "idx_agent_message_conversation", columnList = "conversation_key, send_time, id"),
+    @Index(name = "idx_agent_message_receiver_send_time", columnList = "receiver_instance_id, send_time, id"),
+    @Index(name = "idx_agent_message_send_time", columnList = "send_time, id")
+})
 public class Message extends BaseEntity {
 
     /**
@@ -97,6 +101,18 @@ public class Message extends BaseEntity {
     @JoinColumn(name = "reply_to_message_id")
     private Message replyTo;
 
+    /**
+     * 会话键（较小实例ID:较大实例ID），同一对智能体之间的双向消息共用一个键，用于会话查询走单一索引
+     */
+    @Column(name = "conversation_key", length = 41)
+    private String conversationKey;
+
+    /**
+     * 启动重投领取时间，租约期内其他节点不再重复投递
+     */
+    @Column(name = "redelivery_claimed_at")
+    private LocalDateTime redeliveryClaimedAt;
+
     /**
      * 消息类型枚举
      */
@@ -168,4 +184,25 @@ public class Message extends BaseEntity {
         this.content = "Error: " + errorMessage;
         this.type = MessageType.ERROR;
     }
+
+    /**
+     * 生成两个智能体实例之间的会话键（与方向无关）
+     */
+    public static String conversationKey(Long agent1Id, Long agent2Id) {
+        long low = Math.min(agent1Id, agent2Id);
+        long high = Math.max(agent1Id, agent2Id);
+        return low + ":" + high;
+    }
+
+    /**
+     * 保存前根据发送方和接收方填充会话键
+     */
+    @PrePersist
+    public void fillConversationKey() {
+        Long senderId = getSenderId();
+        Long receiverId = getReceiverId();
+        if (senderId != null && receiverId != null) {
+            this.conversationKey = conversationKey(senderId, receiverId);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,67 @@
+package com.agent.platform.agent.entity;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import com.agent.platform.common.base.BaseEntity;
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 消息归档块实体
+ * 同一会话中一批已归档的消息，压缩后整体存储
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@Entity
+@Table(name = "agent_message_archive")
+public class MessageArchive extends BaseEntity {
+
+    /**
+     * 会话键（较小实例ID:较大实例ID）
+     */
+    @Column(name = "conversation_key", length = 41, nullable = false)
+    private String conversationKey;
+
+    /**
+     * 归档月份（块内最后一条消息所在月份的第一天，分区键）
+     */
+    @Column(name = "archive_month", nullable = false)
+    private LocalDate archiveMonth;
+
+    /**
+     * 块内最小消息ID
+     */
+    @Column(name = "first_message_id", nullable = false)
+    private Long firstMessageId;
+
+    /**
+     * 块内最大消息ID
+     */
+    @Column(name = "last_message_id", nullable = false)
+    private Long lastMessageId;
+
+    /**
+     * 块内最早发送时间
+     */
+    @Column(name = "first_send_time", nullable = false)
+    private LocalDateTime firstSendTime;
+
+    /**
+     * 块内最晚发送时间
+     */
+    @Column(name = "last_send_time", nullable = false)
+    private LocalDateTime lastSendTime;
+
+    /**
+     * 消息条数
+     */
+    @Column(name = "message_count", nullable = false)
+    private Integer messageCount;
+
+    /**
+     * GZIP 压缩的 JSON 消息数组
+     */
+    @Column(name = "payload", nullable = false)
+    private byte[] payload;
+}
@@ -4,6 +4,8 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import com.agent.platform.common.base.BaseEntity;
 import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 import java.time.LocalDateTime;
 import java.util.Map;
 import java.util.HashMap;
@@ -15,7 +17,9 @@ import java.util.HashMap;
 @Data
 @EqualsAndHashCode(callSuper = true)
 @Entity
-@Table(name = "agent_task")
+@Table(name = "agent_task", indexes = {
+    @Index(name = "idx_agent_task_status_start_time", columnList = "status, start_time")
+})
 public class Task extends BaseEntity {
 
     /**
@@ -83,6 +87,12 @@ public class Task extends BaseEntity {
      */
     private LocalDateTime startTime;
 
+    /**
+     * 执行任务的引擎节点
+     */
+    @Column(name = "executor_node", length = 64)
+    private String executorNode;
+
     /**
      * 完成时间
      */
@@ -114,6 +124,11 @@ public class Task extends BaseEntity {
     @Column(columnDefinition = "TEXT")
     private String errorMessage;
 
+    /**
+     * 进入死信的时间（重试次数用尽或错误不可重试），为空表示未进入死信
+     */
+    private LocalDateTime deadLetteredAt;
+
     /**
      * 父任务ID（用于任务链）
      */
@@ -177,17 +192,12 @@ public class Task extends BaseEntity {
         return this.outputResult;
     }
 
-    // 临时参数存储（不持久化到数据库）
-    @Transient
-    private Map<String, Object> tempParameters = new HashMap<>();
-
-    public void setParameters(Map<String, Object> parameters) {
-        this.tempParameters = parameters;
-    }
-
-    public Map<String, Object> getParameters() {
-        return this.tempParameters;
-    }
+    /**
+     * 任务参数（持久化，重试和恢复时重新加载的任务保留原始参数）
+     */
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(columnDefinition = "jsonb")
+    private Map<String, Object> parameters = new HashMap<>();
 
     /**
      * 获取关联的智能体实例ID（便捷方法）
@@ -1,13 +1,18 @@
 package com.agent.platform.agent.repository;
 
 import com.agent.platform.agent.entity.AgentInstance;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -33,6 +38,18 @@ public interface AgentInstanceRepository extends JpaRepository<AgentInstance, Lo
      */
     List<AgentInstance> findByStatus(AgentInstance.InstanceStatus status);
 
+    /**
+     * 根据ID查找实例，同时加载智能体定义（供实例注册表缓存，脱离会话后仍可访问定义）
+     */
+    @Query("SELECT ai FROM AgentInstance ai JOIN FETCH ai.agentDefinition WHERE ai.id = :id")
+    Optional<AgentInstance> findByIdWithDefinition(@Param("id") Long id);
+
+    /**
+     * 根据状态查找实例，同时加载智能体定义
+     */
+    @Query("SELECT ai FROM AgentInstance ai JOIN FETCH ai.agentDefinition WHERE ai.status IN :statuses")
+    List<AgentInstance> findByStatusInWithDefinition(@Param("statuses") List<AgentInstance.InstanceStatus> statuses);
+
     /**
      * 根据创建者查找智能体实例
      */
@@ -54,6 +71,12 @@ public interface AgentInstanceRepository extends JpaRepository<AgentInstance, Lo
      */
     boolean existsBySessionId(String sessionId);
 
+    /**
+     * 按状态分组统计实例数量，每行为 [状态, 数量]
+     */
+    @Query("SELECT ai.status, COUNT(ai) FROM AgentInstance ai GROUP BY ai.status")
+    List<Object[]> countGroupByStatus();
+
     /**
      * 根据智能体定义ID和状态查找实例
      */
@@ -66,4 +89,60 @@ public interface AgentInstanceRepository extends JpaRepository<AgentInstance, Lo
     @Query("SELECT ai FROM AgentInstance ai WHERE ai.lastActiveTime < :expireTime AND ai.status IN :statuses")
     List<AgentInstance> findExpiredInstances(@Param("expireTime") LocalDateTime expireTime, 
                                            @Param("statuses") List<AgentInstance.InstanceStatus> statuses);
-}
\ No newline at end of file
+
+    /**
+     * 查找最后活跃时间早于指定时间的实例ID
+     */
+    @Query("SELECT ai.id FROM AgentInstance ai WHERE ai.status = :status AND ai.lastActiveTime < :time")
+    List<Long> findIdsByStatusAndLastActiveTimeBefore(@Param("status") AgentInstance.InstanceStatus status,
+                                                      @Param("time") LocalDateTime time);
+
+    /**
+     * 批量更新最后活跃时间（只向后更新）
+     */
+    @Modifying
+    @Query("UPDATE AgentInstance ai SET ai.lastActiveTime = :time " +
+           "WHERE ai.id IN :ids AND (ai.lastActiveTime IS NULL OR ai.lastActiveTime < :time)")
+    int updateLastActiveTimeByIds(@Param("ids") Collection<Long> ids, @Param("time") LocalDateTime time);
+
+    /**
+     * 把仍处于指定状态且最后活跃时间早于指定时间的实例批量更新为新状态
+     */
+    @Modifying
+    @Query("UPDATE AgentInstance ai SET ai.status = :status, ai.updatedAt = :now " +
+           "WHERE ai.id IN :ids AND ai.status = :expectedStatus AND ai.lastActiveTime < :staleBefore")
+    int updateStatusOfStaleInstances(@Param("ids") Collection<Long> ids,
+                                     @Param("expectedStatus") AgentInstance.InstanceStatus expectedStatus,
+                                     @Param("status") AgentInstance.InstanceStatus status,
+                                     @Param("staleBefore") LocalDateTime staleBefore,
+                                     @Param("now") LocalDateTime now);
+
+    /**
+     * 按ID顺序查找一批过期实例ID并加行锁，删除完成前状态不会被并发修改
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT ai.id FROM AgentInstance ai WHERE ai.lastActiveTime < :expireTime AND ai.status IN :statuses ORDER BY ai.id")
+    List<Long> findExpiredInstanceIdsForUpdate(@Param("expireTime") LocalDateTime expireTime,
+                                               @Param("statuses") Collection<AgentInstance.InstanceStatus> statuses,
+                                               Pageable pageable);
+
+    /**
+     * 按ID批量删除实例
+     */
+    @Modifying
+    @Query("DELETE FROM AgentInstance ai WHERE ai.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 只查询实例的记忆状态
+     */
+    @Query("SELECT ai.memoryState FROM AgentInstance ai WHERE ai.id = :id")
+    Optional<String> findMemoryStateById(@Param("id") Long id);
+
+    /**
+     * 更新实例的记忆状态
+     */
+    @Modifying
+    @Query("UPDATE AgentInstance ai SET ai.memoryState = :memoryState WHERE ai.id = :id")
+    int updateMemoryState(@Param("id") Long id, @Param("memoryState") String memoryState);
+}
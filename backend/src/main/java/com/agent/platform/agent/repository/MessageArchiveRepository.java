@@ -0,0 +1,40 @@
+package com.agent.platform.agent.repository;
+
+import com.agent.platform.agent.entity.MessageArchive;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 消息归档数据访问接口
+ */
+@Repository
+public interface MessageArchiveRepository extends JpaRepository<MessageArchive, Long> {
+
+    /**
+     * 查找时间范围内与会话相关的归档块（按最晚发送时间倒序）
+     */
+    @Query("SELECT a FROM MessageArchive a WHERE a.conversationKey = :conversationKey " +
+           "AND a.firstSendTime <= :before AND a.lastSendTime >= :notBefore " +
+           "ORDER BY a.lastSendTime DESC, a.id DESC")
+    List<MessageArchive> findConversationChunks(@Param("conversationKey") String conversationKey,
+                                                @Param("before") LocalDateTime before,
+                                                @Param("notBefore") LocalDateTime notBefore,
+                                                Pageable pageable);
+
+    /**
+     * 按时间顺序查找会话的归档块
+     */
+    List<MessageArchive> findByConversationKeyOrderByFirstSendTimeAscIdAsc(String conversationKey, Pageable pageable);
+
+    /**
+     * 已归档消息总数
+     */
+    @Query("SELECT COALESCE(SUM(a.messageCount), 0) FROM MessageArchive a")
+    long sumMessageCount();
+}
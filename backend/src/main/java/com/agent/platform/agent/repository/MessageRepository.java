@@ -1,15 +1,23 @@
 package com.agent.platform.agent.repository;
 
 import com.agent.platform.agent.entity.Message;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 /**
  * 消息数据访问接口
@@ -45,17 +53,118 @@ public interface MessageRepository extends JpaRepository<Message, Long>, JpaSpec
      */
     List<Message> findByStatus(Message.MessageStatus status);
 
+    /**
+     * 按ID顺序分页查找可重投的已发送消息（未被领取或重投租约已过期）
+     */
+    @Query("SELECT m FROM Message m WHERE m.status = 'SENT' " +
+           "AND (m.redeliveryClaimedAt IS NULL OR m.redeliveryClaimedAt < :leaseExpiredBefore) " +
+           "AND m.id > :afterId ORDER BY m.id ASC")
+    List<Message> findRedeliverableMessages(@Param("leaseExpiredBefore") LocalDateTime leaseExpiredBefore,
+                                            @Param("afterId") Long afterId,
+                                            Pageable pageable);
+
+    /**
+     * 领取已发送消息的重投租约，未领取或租约已过期时才更新，返回更新行数
+     */
+    @Modifying
+    @Query("UPDATE Message m SET m.redeliveryClaimedAt = :now WHERE m.id = :id AND m.status = 'SENT' " +
+           "AND (m.redeliveryClaimedAt IS NULL OR m.redeliveryClaimedAt < :leaseExpiredBefore)")
+    int claimRedelivery(@Param("id") Long id,
+                        @Param("now") LocalDateTime now,
+                        @Param("leaseExpiredBefore") LocalDateTime leaseExpiredBefore);
+
+    /**
+     * 释放重投租约（投递被拒绝时），下次启动可再次领取
+     */
+    @Modifying
+    @Query("UPDATE Message m SET m.redeliveryClaimedAt = null WHERE m.id = :id")
+    int releaseRedelivery(@Param("id") Long id);
+
+    /**
+     * 批量更新消息状态，只更新处于预期状态的消息
+     */
+    @Modifying
+    @Query("UPDATE Message m SET m.status = :newStatus, m.deliverTime = :now, m.updatedAt = :now " +
+           "WHERE m.id IN :ids AND m.status = :expectedStatus")
+    int updateStatusByIds(@Param("ids") Collection<Long> ids,
+                          @Param("expectedStatus") Message.MessageStatus expectedStatus,
+                          @Param("newStatus") Message.MessageStatus newStatus,
+                          @Param("now") LocalDateTime now);
+
     /**
      * 根据消息状态统计消息数量
      */
     long countByStatus(Message.MessageStatus status);
 
     /**
-     * 查找两个智能体实例之间的消息
+     * 按会话键查找两个智能体实例之间的消息（按发送时间顺序）
+     */
+    List<Message> findByConversationKeyOrderBySendTimeAscIdAsc(String conversationKey);
+
+    /**
+     * 会话消息首页（按发送时间倒序）
+     */
+    @Query("SELECT m FROM Message m WHERE m.conversationKey = :conversationKey ORDER BY m.sendTime DESC, m.id DESC")
+    List<Message> findConversationPage(@Param("conversationKey") String conversationKey, Pageable pageable);
+
+    /**
+     * 会话消息键集分页：游标 (sendTime, id) 之前的消息
+     */
+    @Query("SELECT m FROM Message m WHERE m.conversationKey = :conversationKey " +
+           "AND (m.sendTime < :sendTime OR (m.sendTime = :sendTime AND m.id < :id)) " +
+           "ORDER BY m.sendTime DESC, m.id DESC")
+    List<Message> findConversationPageBefore(@Param("conversationKey") String conversationKey,
+                                             @Param("sendTime") LocalDateTime sendTime,
+                                             @Param("id") Long id,
+                                             Pageable pageable);
+
+    /**
+     * 收件箱首页（按发送时间倒序）
+     */
+    @Query("SELECT m FROM Message m WHERE m.receiver.id = :receiverId ORDER BY m.sendTime DESC, m.id DESC")
+    List<Message> findInboxPage(@Param("receiverId") Long receiverId, Pageable pageable);
+
+    /**
+     * 收件箱键集分页：游标 (sendTime, id) 之前的消息
+     */
+    @Query("SELECT m FROM Message m WHERE m.receiver.id = :receiverId " +
+           "AND (m.sendTime < :sendTime OR (m.sendTime = :sendTime AND m.id < :id)) " +
+           "ORDER BY m.sendTime DESC, m.id DESC")
+    List<Message> findInboxPageBefore(@Param("receiverId") Long receiverId,
+                                      @Param("sendTime") LocalDateTime sendTime,
+                                      @Param("id") Long id,
+                                      Pageable pageable);
+
+    /**
+     * 流式读取会话消息（按发送时间顺序），须在事务内消费并关闭
      */
-    @Query("SELECT m FROM Message m WHERE (m.sender.id = :agent1Id AND m.receiver.id = :agent2Id) OR (m.sender.id = :agent2Id AND m.receiver.id = :agent1Id) ORDER BY m.sendTime ASC")
-    List<Message> findConversationBetweenAgents(@Param("agent1Id") Long agent1Id, 
-                                              @Param("agent2Id") Long agent2Id);
+    @Query("SELECT m FROM Message m WHERE m.conversationKey = :conversationKey ORDER BY m.sendTime ASC, m.id ASC")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    Stream<Message> streamConversation(@Param("conversationKey") String conversationKey);
+
+    /**
+     * 为缺少会话键的历史消息回填会话键（按ID范围分批执行）
+     */
+    @Modifying
+    @Query("UPDATE Message m SET m.conversationKey = CASE WHEN m.sender.id < m.receiver.id " +
+           "THEN CONCAT(CAST(m.sender.id AS String), ':', CAST(m.receiver.id AS String)) " +
+           "ELSE CONCAT(CAST(m.receiver.id AS String), ':', CAST(m.sender.id AS String)) END " +
+           "WHERE m.conversationKey IS NULL AND m.sender IS NOT NULL AND m.receiver IS NOT NULL " +
+           "AND m.id BETWEEN :fromId AND :toId")
+    int backfillConversationKeys(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    /**
+     * 最大消息ID
+     */
+    @Query("SELECT MAX(m.id) FROM Message m")
+    Long findMaxId();
+
+    /**
+     * 需要回填会话键的最小消息ID
+     */
+    @Query("SELECT MIN(m.id) FROM Message m " +
+           "WHERE m.conversationKey IS NULL AND m.sender IS NOT NULL AND m.receiver IS NOT NULL")
+    Long findMinIdWithoutConversationKey();
 
     /**
      * 查找未送达的消息
@@ -79,10 +188,10 @@ public interface MessageRepository extends JpaRepository<Message, Long>, JpaSpec
     long countUnreadMessages(@Param("receiverId") Long receiverId);
 
     /**
-     * 查找最新的消息（按发送时间倒序）
+     * 查找最新的消息（按发送时间倒序，条数由分页参数限制）
      */
-    @Query("SELECT m FROM Message m ORDER BY m.sendTime DESC")
-    List<Message> findLatestMessages(@Param("limit") int limit);
+    @Query("SELECT m FROM Message m ORDER BY m.sendTime DESC, m.id DESC")
+    List<Message> findLatestMessages(Pageable pageable);
 
     /**
      * 根据优先级查找高优先级消息
@@ -94,4 +203,50 @@ public interface MessageRepository extends JpaRepository<Message, Long>, JpaSpec
      */
     @Query("SELECT m FROM Message m WHERE m.sendTime < :expireTime AND m.status IN ('SENT', 'DELIVERED')")
     List<Message> findExpiredMessages(@Param("expireTime") LocalDateTime expireTime);
-}
\ No newline at end of file
+
+    /**
+     * 按ID顺序查找可归档的消息（指定状态、早于保留期且已有会话键）
+     */
+    @Query("SELECT m FROM Message m WHERE m.status IN :statuses AND m.sendTime < :before " +
+           "AND m.conversationKey IS NOT NULL ORDER BY m.id ASC")
+    List<Message> findArchivableMessages(@Param("statuses") Collection<Message.MessageStatus> statuses,
+                                         @Param("before") LocalDateTime before,
+                                         Pageable pageable);
+
+    /**
+     * 解除其他消息对指定消息的回复引用（归档删除前执行）
+     */
+    @Modifying
+    @Query("UPDATE Message m SET m.replyTo = null WHERE m.replyTo.id IN :ids")
+    int clearReplyToByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 按ID批量删除消息
+     */
+    @Modifying
+    @Query("DELETE FROM Message m WHERE m.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 解除对指定实例收发消息的回复引用（批量删除实例前执行）
+     */
+    @Modifying
+    @Query("UPDATE Message m SET m.replyTo = null WHERE m.replyTo.id IN " +
+           "(SELECT r.id FROM Message r WHERE r.sender.id IN :instanceIds OR r.receiver.id IN :instanceIds)")
+    int clearReplyToForInstances(@Param("instanceIds") Collection<Long> instanceIds);
+
+    /**
+     * 解除消息对指定实例任务的引用（批量删除实例前执行）
+     */
+    @Modifying
+    @Query("UPDATE Message m SET m.task = null WHERE m.task.id IN " +
+           "(SELECT t.id FROM Task t WHERE t.agentInstance.id IN :instanceIds)")
+    int clearTaskForInstances(@Param("instanceIds") Collection<Long> instanceIds);
+
+    /**
+     * 批量删除指定实例发送或接收的消息
+     */
+    @Modifying
+    @Query("DELETE FROM Message m WHERE m.sender.id IN :instanceIds OR m.receiver.id IN :instanceIds")
+    int deleteByInstanceIds(@Param("instanceIds") Collection<Long> instanceIds);
+}
@@ -1,13 +1,17 @@
 package com.agent.platform.agent.repository;
 
 import com.agent.platform.agent.entity.Task;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -33,6 +37,11 @@ public interface TaskRepository extends JpaRepository<Task, Long>, JpaSpecificat
      */
     List<Task> findByParentTaskId(Long parentTaskId);
 
+    /**
+     * 根据父任务ID查找子任务（按ID顺序，即创建顺序）
+     */
+    List<Task> findByParentTaskIdOrderByIdAsc(Long parentTaskId);
+
     /**
      * 根据智能体实例ID和状态查找任务
      */
@@ -45,6 +54,38 @@ public interface TaskRepository extends JpaRepository<Task, Long>, JpaSpecificat
     @Query("SELECT t FROM Task t WHERE t.status = 'PENDING' ORDER BY t.priority ASC, t.createdAt ASC")
     List<Task> findPendingTasksOrderByPriority();
 
+    /**
+     * 分页查找待处理任务（按优先级、ID排序，用于键集分页的首页）
+     */
+    @Query("SELECT t FROM Task t WHERE t.status = 'PENDING' ORDER BY t.priority ASC, t.id ASC")
+    List<Task> findPendingTasksOrderByPriority(Pageable pageable);
+
+    /**
+     * 查找排序位置在 (priority, id) 之后的待处理任务（键集分页，翻页期间状态变化不会导致漏读）
+     */
+    @Query("SELECT t FROM Task t WHERE t.status = 'PENDING' " +
+           "AND (t.priority > :priority OR (t.priority = :priority AND t.id > :afterId)) " +
+           "ORDER BY t.priority ASC, t.id ASC")
+    List<Task> findPendingTasksOrderByPriorityAfter(@Param("priority") Integer priority,
+                                                    @Param("afterId") Long afterId,
+                                                    Pageable pageable);
+
+    /**
+     * 按ID顺序分页查找指定节点上指定状态的任务
+     */
+    List<Task> findByStatusAndExecutorNodeAndIdGreaterThanOrderByIdAsc(Task.TaskStatus status, String executorNode,
+                                                                      Long afterId, Pageable pageable);
+
+    /**
+     * 将指定节点上运行中的任务原子地恢复为待处理，返回更新行数（0 表示任务已结束或不属于该节点）
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Task t SET t.status = 'PENDING', t.startTime = null, t.executorNode = null, t.updatedAt = :now " +
+           "WHERE t.id = :id AND t.status = 'RUNNING' AND t.executorNode = :executorNode")
+    int requeueRunningTask(@Param("id") Long id,
+                           @Param("executorNode") String executorNode,
+                           @Param("now") LocalDateTime now);
+
     /**
      * 统计指定智能体实例的任务数量
      */
@@ -56,17 +97,54 @@ public interface TaskRepository extends JpaRepository<Task, Long>, JpaSpecificat
      */
     long countByStatus(Task.TaskStatus status);
 
+    /**
+     * 按状态分组统计任务数量，每行为 [状态, 数量]
+     */
+    @Query("SELECT t.status, COUNT(t) FROM Task t GROUP BY t.status")
+    List<Object[]> countGroupByStatus();
+
     /**
      * 查找指定时间范围内创建的任务
      */
     List<Task> findByCreatedAtBetween(LocalDateTime startTime, LocalDateTime endTime);
 
     /**
-     * 查找超时的任务（创建时间早于指定时间且状态为运行中）
+     * 查找超时的任务（开始执行时间早于指定时间且状态为运行中）
+     * 顺序/并行父任务由子任务推进，不按自身运行时长超时
      */
-    @Query("SELECT t FROM Task t WHERE t.status = 'RUNNING' AND t.createdAt < :timeoutTime")
+    @Query("SELECT t FROM Task t WHERE t.status = 'RUNNING' AND t.startTime < :timeoutTime " +
+           "AND t.type NOT IN ('SEQUENTIAL', 'PARALLEL')")
     List<Task> findTimeoutTasks(@Param("timeoutTime") LocalDateTime timeoutTime);
 
+    /**
+     * 查找指定节点上超时的任务
+     */
+    @Query("SELECT t FROM Task t WHERE t.status = 'RUNNING' AND t.startTime < :timeoutTime " +
+           "AND t.executorNode = :executorNode AND t.type NOT IN ('SEQUENTIAL', 'PARALLEL')")
+    List<Task> findTimeoutTasksByExecutorNode(@Param("executorNode") String executorNode,
+                                              @Param("timeoutTime") LocalDateTime timeoutTime);
+
+    /**
+     * 将待处理任务原子地置为运行中，返回更新行数（0 表示任务已被开始或已结束）
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Task t SET t.status = 'RUNNING', t.startTime = :now, t.updatedAt = :now, " +
+           "t.executorNode = :executorNode WHERE t.id = :id AND t.status = 'PENDING'")
+    int claimPendingTask(@Param("id") Long id,
+                         @Param("executorNode") String executorNode,
+                         @Param("now") LocalDateTime now);
+
+    /**
+     * 将失败任务原子地恢复为待处理并增加重试次数，返回更新行数（0 表示任务已被其他节点重试或状态已变化）
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Task t SET t.status = 'PENDING', t.retryCount = t.retryCount + 1, t.errorMessage = null, " +
+           "t.deadLetteredAt = null, t.updatedAt = :now " +
+           "WHERE t.id = :id AND t.status = 'FAILED' AND t.retryCount = :retryCount")
+    int claimFailedTaskForRetry(@Param("id") Long id,
+                                @Param("retryCount") Integer retryCount,
+                                @Param("now") LocalDateTime now);
+
     /**
      * 根据任务类型查找任务
      */
@@ -77,4 +155,33 @@ public interface TaskRepository extends JpaRepository<Task, Long>, JpaSpecificat
      */
     @Query("SELECT t FROM Task t WHERE t.status = 'FAILED' AND t.updatedAt > :retryAfterTime")
     List<Task> findRetryableFailedTasks(@Param("retryAfterTime") LocalDateTime retryAfterTime);
-}
\ No newline at end of file
+
+    /**
+     * 按ID顺序分页查找需要重试的失败任务（不含已进入死信的任务）
+     */
+    @Query("SELECT t FROM Task t WHERE t.status = 'FAILED' AND t.deadLetteredAt IS NULL " +
+           "AND t.updatedAt > :retryAfterTime AND t.id > :afterId ORDER BY t.id ASC")
+    List<Task> findRetryableFailedTasks(@Param("retryAfterTime") LocalDateTime retryAfterTime,
+                                        @Param("afterId") Long afterId,
+                                        Pageable pageable);
+
+    /**
+     * 分页查找死信任务
+     */
+    Page<Task> findByDeadLetteredAtIsNotNull(Pageable pageable);
+
+    /**
+     * 解除以指定实例的任务为父任务的引用（批量删除实例前执行）
+     */
+    @Modifying
+    @Query("UPDATE Task t SET t.parentTask = null WHERE t.parentTask.id IN " +
+           "(SELECT p.id FROM Task p WHERE p.agentInstance.id IN :instanceIds)")
+    int clearParentTaskForInstances(@Param("instanceIds") Collection<Long> instanceIds);
+
+    /**
+     * 批量删除指定实例的任务
+     */
+    @Modifying
+    @Query("DELETE FROM Task t WHERE t.agentInstance.id IN :instanceIds")
+    int deleteByAgentInstanceIds(@Param("instanceIds") Collection<Long> instanceIds);
+}
@@ -37,6 +37,11 @@ public interface AgentDefinitionService {
      */
     List<AgentDefinition> getAllAgentDefinitions();
 
+    /**
+     * 统计智能体定义数量
+     */
+    long countAgentDefinitions();
+
     /**
      * 分页查询智能体定义
      */
@@ -5,7 +5,9 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -79,25 +81,55 @@ public interface AgentInstanceService {
     AgentInstance updateAgentInstanceStatus(Long instanceId, AgentInstance.InstanceStatus status);
 
     /**
-     * 更新智能体实例最后活跃时间
+     * 记录智能体实例心跳（只记录在内存中，由心跳跟踪器批量写入最后活跃时间）
      */
-    AgentInstance updateLastActiveTime(Long instanceId);
+    void updateLastActiveTime(Long instanceId);
 
     /**
-     * 清理过期实例
+     * 批量更新实例最后活跃时间，返回实际更新的条数
      */
-    int cleanupExpiredInstances(LocalDateTime expireTime);
+    int updateLastActiveTimes(Collection<Long> instanceIds, LocalDateTime time);
+
+    /**
+     * 获取最后活跃时间早于指定时间的运行中实例ID
+     */
+    List<Long> getStaleInstanceIds(LocalDateTime staleBefore);
+
+    /**
+     * 把仍未活跃的运行中实例批量标记为错误，返回实际更新的条数
+     */
+    int markStaleInstancesAsError(Collection<Long> instanceIds, LocalDateTime staleBefore);
+
+    /**
+     * 清理一批过期实例（连同其任务和消息，均为批量删除语句），每次调用一个事务，没有过期实例时返回空结果
+     */
+    CleanupResult cleanupExpiredInstances(LocalDateTime expireTime, int batchSize);
 
     /**
      * 检查实例是否活跃
      */
     boolean isInstanceActive(Long instanceId);
 
+    /**
+     * 获取实例的记忆状态（JSON），不存在时返回 null
+     */
+    String getMemoryState(Long instanceId);
+
+    /**
+     * 批量写回实例的记忆状态，返回实际更新的条数
+     */
+    int updateMemoryStates(Map<Long, String> memoryStates);
+
     /**
      * 获取实例统计信息
      */
     InstanceStats getInstanceStats();
 
+    /**
+     * 按状态统计实例数量（单次分组查询）
+     */
+    Map<AgentInstance.InstanceStatus, Long> countInstancesByStatus();
+
     /**
      * 实例统计信息类
      */
@@ -130,4 +162,52 @@ public interface AgentInstanceService {
         public long getErrorInstances() { return errorInstances; }
         public void setErrorInstances(long errorInstances) { this.errorInstances = errorInstances; }
     }
-}
\ No newline at end of file
+
+    /**
+     * 过期实例清理结果类
+     */
+    class CleanupResult {
+        private long instances;
+        private long tasks;
+        private long messages;
+        private long elapsedMs;
+
+        public CleanupResult() {}
+
+        public CleanupResult(long instances, long tasks, long messages) {
+            this.instances = instances;
+            this.tasks = tasks;
+            this.messages = messages;
+        }
+
+        /**
+         * 累加另一批的结果
+         */
+        public void add(CleanupResult other) {
+            this.instances += other.instances;
+            this.tasks += other.tasks;
+            this.messages += other.messages;
+        }
+
+        public long getTotalRows() {
+            return instances + tasks + messages;
+        }
+
+        public double getRowsPerSecond() {
+            return elapsedMs > 0 ? getTotalRows() * 1000.0 / elapsedMs : 0;
+        }
+
+        // getter和setter方法
+        public long getInstances() { return instances; }
+        public void setInstances(long instances) { this.instances = instances; }
+
+        public long getTasks() { return tasks; }
+        public void setTasks(long tasks) { this.tasks = tasks; }
+
+        public long getMessages() { return messages; }
+        public void setMessages(long messages) { this.messages = messages; }
+
+        public long getElapsedMs() { return elapsedMs; }
+        public void setElapsedMs(long elapsedMs) { this.elapsedMs = elapsedMs; }
+    }
+}
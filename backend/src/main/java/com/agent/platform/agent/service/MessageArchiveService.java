@@ -0,0 +1,36 @@
+package com.agent.platform.agent.service;
+
+import com.agent.platform.agent.entity.Message;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 消息归档服务接口
+ */
+public interface MessageArchiveService {
+
+    /**
+     * 归档一批早于指定时间的消息：按会话压缩写入归档表后从消息表删除，返回归档条数
+     */
+    int archiveMessages(Collection<Message.MessageStatus> statuses, LocalDateTime before, int batchSize);
+
+    /**
+     * 回读会话中游标 (sendTime, id) 之前、不早于 notBefore 的归档消息（按发送时间倒序），
+     * 游标为 null 表示从最新开始，notBefore 为 null 表示不限
+     */
+    List<Message> getArchivedConversationPage(String conversationKey, LocalDateTime beforeSendTime, Long beforeId,
+                                              LocalDateTime notBefore, int limit);
+
+    /**
+     * 按时间顺序逐条回读会话的全部归档消息
+     */
+    void forEachArchivedMessage(String conversationKey, Consumer<Message> consumer);
+
+    /**
+     * 已归档消息总数
+     */
+    long countArchivedMessages();
+}
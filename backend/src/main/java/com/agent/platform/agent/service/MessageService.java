@@ -4,9 +4,12 @@ import com.agent.platform.agent.entity.Message;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * 消息服务接口
@@ -38,6 +41,41 @@ public interface MessageService {
      */
     List<Message> getConversationBetweenAgents(Long agent1Id, Long agent2Id);
 
+    /**
+     * 键集分页获取两个智能体之间的对话（按发送时间倒序），cursor 为上一页返回的游标，首页传 null
+     */
+    MessagePage getConversationPage(Long agent1Id, Long agent2Id, String cursor, int size);
+
+    /**
+     * 键集分页获取接收方的收件箱（按发送时间倒序）
+     */
+    MessagePage getInboxPage(Long receiverId, String cursor, int size);
+
+    /**
+     * 获取最新的消息
+     */
+    List<Message> getLatestMessages(int limit);
+
+    /**
+     * 流式导出两个智能体之间的完整对话（按发送时间顺序），每条消息回调后即从持久化上下文中移除
+     */
+    void exportConversation(Long agent1Id, Long agent2Id, Consumer<Message> consumer);
+
+    /**
+     * 为ID范围内缺少会话键的历史消息回填会话键，返回更新条数
+     */
+    int backfillConversationKeys(Long fromId, Long toId);
+
+    /**
+     * 最大消息ID，没有消息时返回 0
+     */
+    long getMaxMessageId();
+
+    /**
+     * 需要回填会话键的最小消息ID，没有需要回填的消息时返回 null
+     */
+    Long getMinMessageIdWithoutConversationKey();
+
     /**
      * 标记消息为已读
      */
@@ -48,6 +86,31 @@ public interface MessageService {
      */
     Message markMessageAsDelivered(Long messageId);
 
+    /**
+     * 批量标记已发送的消息为已送达，返回实际更新的条数
+     */
+    int markMessagesAsDelivered(Collection<Long> messageIds);
+
+    /**
+     * 按ID顺序分页获取可重投的已发送消息（未被领取或重投租约已过期）
+     */
+    List<Message> getRedeliverableMessagesPage(Duration lease, Long afterId, int size);
+
+    /**
+     * 领取已发送消息的重投，同一租约期内只有一个节点领取成功
+     */
+    boolean claimRedelivery(Long messageId, Duration lease);
+
+    /**
+     * 释放已领取的重投租约
+     */
+    void releaseRedelivery(Long messageId);
+
+    /**
+     * 标记消息为发送失败（如接收者邮箱溢出被丢弃）
+     */
+    Message markMessageAsFailed(Long messageId);
+
     /**
      * 获取未读消息数量
      */
@@ -124,4 +187,32 @@ public interface MessageService {
         public long getFailedMessages() { return failedMessages; }
         public void setFailedMessages(long failedMessages) { this.failedMessages = failedMessages; }
     }
-}
\ No newline at end of file
+
+    /**
+     * 键集分页结果类
+     */
+    class MessagePage {
+        private List<Message> messages;
+        // 下一页游标，没有更多数据时为 null
+        private String nextCursor;
+        private boolean hasMore;
+
+        public MessagePage() {}
+
+        public MessagePage(List<Message> messages, String nextCursor, boolean hasMore) {
+            this.messages = messages;
+            this.nextCursor = nextCursor;
+            this.hasMore = hasMore;
+        }
+
+        // getter和setter方法
+        public List<Message> getMessages() { return messages; }
+        public void setMessages(List<Message> messages) { this.messages = messages; }
+
+        public String getNextCursor() { return nextCursor; }
+        public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+        public boolean isHasMore() { return hasMore; }
+        public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+    }
+}
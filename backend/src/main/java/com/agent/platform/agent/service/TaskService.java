@@ -6,6 +6,7 @@ import org.springframework.data.domain.Pageable;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -69,7 +70,7 @@ public interface TaskService {
     Task retryTask(Long taskId);
 
     /**
-     * 获取子任务
+     * 获取子任务（按创建顺序）
      */
     List<Task> getSubTasks(Long parentTaskId);
 
@@ -83,11 +84,61 @@ public interface TaskService {
      */
     int handleTimeoutTasks(LocalDateTime timeoutTime);
 
+    /**
+     * 获取超时的运行中任务
+     */
+    List<Task> getTimeoutTasks(LocalDateTime timeoutTime);
+
+    /**
+     * 获取指定节点上超时的运行中任务
+     */
+    List<Task> getTimeoutTasks(String executorNode, LocalDateTime timeoutTime);
+
+    /**
+     * 将运行中的任务标记为超时失败，任务已结束时不做修改
+     */
+    Task timeoutTask(Long taskId);
+
+    /**
+     * 按优先级键集分页获取待处理任务，首页时 afterPriority 和 afterId 传null
+     */
+    List<Task> getPendingTasksPage(Integer afterPriority, Long afterId, int size);
+
+    /**
+     * 按ID顺序分页获取指定节点上运行中的任务
+     */
+    List<Task> getRunningTasksPage(String executorNode, Long afterId, int size);
+
+    /**
+     * 将指定节点上运行中的任务恢复为待处理（执行线程已不存在时使用），任务已结束或不属于该节点时不做修改
+     */
+    Task requeueTask(Long taskId, String executorNode);
+
+    /**
+     * 按ID顺序分页获取指定时间后失败、尚未进入死信的任务
+     */
+    List<Task> getRetryableFailedTasksPage(LocalDateTime failedAfter, Long afterId, int size);
+
+    /**
+     * 将失败任务标记为死信，任务不是失败状态时不做修改
+     */
+    Task markTaskDeadLettered(Long taskId);
+
+    /**
+     * 分页获取死信任务
+     */
+    Page<Task> getDeadLetterTasks(Pageable pageable);
+
     /**
      * 获取任务统计信息
      */
     TaskStats getTaskStats();
 
+    /**
+     * 按状态统计任务数量（单次分组查询）
+     */
+    Map<Task.TaskStatus, Long> countTasksByStatus();
+
     /**
      * 任务统计信息类
      */
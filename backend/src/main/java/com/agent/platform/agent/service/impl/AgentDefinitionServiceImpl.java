@@ -109,6 +109,12 @@ public class AgentDefinitionServiceImpl implements AgentDefinitionService {
         return agentDefinitionRepository.findAll();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public long countAgentDefinitions() {
+        return agentDefinitionRepository.count();
+    }
+
     @Override
     @Transactional(readOnly = true)
     public Page<AgentDefinition> getAgentDefinitions(Pageable pageable) {
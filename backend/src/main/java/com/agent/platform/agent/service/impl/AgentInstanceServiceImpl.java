@@ -1,19 +1,29 @@
 package com.agent.platform.agent.service.impl;
 
+import com.agent.platform.agent.engine.AgentHeartbeatTracker;
+import com.agent.platform.agent.engine.AgentInstanceRegistry;
+import com.agent.platform.agent.engine.AgentMemoryStore;
 import com.agent.platform.agent.entity.AgentDefinition;
 import com.agent.platform.agent.entity.AgentInstance;
 import com.agent.platform.agent.repository.AgentDefinitionRepository;
 import com.agent.platform.agent.repository.AgentInstanceRepository;
+import com.agent.platform.agent.repository.MessageRepository;
+import com.agent.platform.agent.repository.TaskRepository;
 import com.agent.platform.agent.service.AgentInstanceService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -30,6 +40,21 @@ public class AgentInstanceServiceImpl implements AgentInstanceService {
     @Autowired
     private AgentDefinitionRepository agentDefinitionRepository;
 
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private AgentInstanceRegistry instanceRegistry;
+
+    @Autowired
+    private AgentHeartbeatTracker heartbeatTracker;
+
+    @Autowired
+    private AgentMemoryStore memoryStore;
+
     @Override
     public AgentInstance createAgentInstance(Long agentDefinitionId, Long createdBy, String sessionId) {
         // 验证智能体定义存在
@@ -55,6 +80,7 @@ public class AgentInstanceServiceImpl implements AgentInstanceService {
 
         AgentInstance instance = new AgentInstance();
         instance.setAgentDefinition(agentDefinition.get());
+        instance.setInstanceName(agentDefinition.get().getName() + "-" + sessionId);
         instance.setSessionId(sessionId);
         instance.setCreatedBy(createdBy);
         instance.setStatus(AgentInstance.InstanceStatus.CREATED);
@@ -73,8 +99,10 @@ public class AgentInstanceServiceImpl implements AgentInstanceService {
         }
 
         AgentInstance instance = existing.get();
+        // 错误状态（如心跳失活）的实例可以重新启动
         if (instance.getStatus() != AgentInstance.InstanceStatus.CREATED && 
-            instance.getStatus() != AgentInstance.InstanceStatus.STOPPED) {
+            instance.getStatus() != AgentInstance.InstanceStatus.STOPPED &&
+            instance.getStatus() != AgentInstance.InstanceStatus.ERROR) {
             throw new IllegalStateException("智能体实例状态不允许启动: " + instance.getStatus());
         }
 
@@ -82,7 +110,10 @@ public class AgentInstanceServiceImpl implements AgentInstanceService {
         instance.setUpdatedAt(LocalDateTime.now());
         instance.setLastActiveTime(LocalDateTime.now());
 
-        return agentInstanceRepository.save(instance);
+        AgentInstance saved = agentInstanceRepository.save(instance);
+        instanceRegistry.onStatusChanged(instanceId, AgentInstance.InstanceStatus.RUNNING);
+        heartbeatTracker.recordHeartbeat(instanceId);
+        return saved;
     }
 
     @Override
@@ -97,7 +128,10 @@ public class AgentInstanceServiceImpl implements AgentInstanceService {
         instance.setUpdatedAt(LocalDateTime.now());
         instance.setLastActiveTime(LocalDateTime.now());
 
-        return agentInstanceRepository.save(instance);
+        AgentInstance saved = agentInstanceRepository.save(instance);
+        instanceRegistry.onStatusChanged(instanceId, AgentInstance.InstanceStatus.STOPPED);
+        heartbeatTracker.forget(instanceId);
+        return saved;
     }
 
     @Override
@@ -115,7 +149,9 @@ public class AgentInstanceServiceImpl implements AgentInstanceService {
         instance.setStatus(AgentInstance.InstanceStatus.PAUSED);
         instance.setUpdatedAt(LocalDateTime.now());
 
-        return agentInstanceRepository.save(instance);
+        AgentInstance saved = agentInstanceRepository.save(instance);
+        instanceRegistry.onStatusChanged(instanceId, AgentInstance.InstanceStatus.PAUSED);
+        return saved;
     }
 
     @Override
@@ -134,7 +170,10 @@ public class AgentInstanceServiceImpl implements AgentInstanceService {
         instance.setUpdatedAt(LocalDateTime.now());
         instance.setLastActiveTime(LocalDateTime.now());
 
-        return agentInstanceRepository.save(instance);
+        AgentInstance saved = agentInstanceRepository.save(instance);
+        instanceRegistry.onStatusChanged(instanceId, AgentInstance.InstanceStatus.RUNNING);
+        heartbeatTracker.recordHeartbeat(instanceId);
+        return saved;
     }
 
     @Override
@@ -150,6 +189,9 @@ public class AgentInstanceServiceImpl implements AgentInstanceService {
         }
 
         agentInstanceRepository.deleteById(instanceId);
+        instanceRegistry.onRemoved(instanceId);
+        heartbeatTracker.forget(instanceId);
+        memoryStore.forget(instanceId);
     }
 
     @Override
@@ -203,61 +245,119 @@ public class AgentInstanceServiceImpl implements AgentInstanceService {
             instance.setLastActiveTime(LocalDateTime.now());
         }
 
-        return agentInstanceRepository.save(instance);
+        AgentInstance saved = agentInstanceRepository.save(instance);
+        instanceRegistry.onStatusChanged(instanceId, status);
+        return saved;
     }
 
     @Override
-    public AgentInstance updateLastActiveTime(Long instanceId) {
-        Optional<AgentInstance> existing = agentInstanceRepository.findById(instanceId);
-        if (existing.isEmpty()) {
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void updateLastActiveTime(Long instanceId) {
+        if (instanceRegistry.getStatus(instanceId) == null) {
             throw new IllegalArgumentException("智能体实例不存在: " + instanceId);
         }
+        heartbeatTracker.recordHeartbeat(instanceId);
+    }
 
-        AgentInstance instance = existing.get();
-        instance.setLastActiveTime(LocalDateTime.now());
-        return agentInstanceRepository.save(instance);
+    @Override
+    public int updateLastActiveTimes(Collection<Long> instanceIds, LocalDateTime time) {
+        if (instanceIds.isEmpty()) {
+            return 0;
+        }
+        return agentInstanceRepository.updateLastActiveTimeByIds(instanceIds, time);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Long> getStaleInstanceIds(LocalDateTime staleBefore) {
+        return agentInstanceRepository.findIdsByStatusAndLastActiveTimeBefore(AgentInstance.InstanceStatus.RUNNING, staleBefore);
     }
 
     @Override
-    public int cleanupExpiredInstances(LocalDateTime expireTime) {
+    public int markStaleInstancesAsError(Collection<Long> instanceIds, LocalDateTime staleBefore) {
+        if (instanceIds.isEmpty()) {
+            return 0;
+        }
+        int updated = agentInstanceRepository.updateStatusOfStaleInstances(instanceIds,
+                AgentInstance.InstanceStatus.RUNNING, AgentInstance.InstanceStatus.ERROR, staleBefore, LocalDateTime.now());
+        // 批量更新可能跳过了并发变更的实例，注册表重新加载实际状态
+        instanceIds.forEach(instanceRegistry::onChanged);
+        return updated;
+    }
+
+    @Override
+    public CleanupResult cleanupExpiredInstances(LocalDateTime expireTime, int batchSize) {
         List<AgentInstance.InstanceStatus> cleanupStatuses = Arrays.asList(
             AgentInstance.InstanceStatus.STOPPED,
             AgentInstance.InstanceStatus.ERROR
         );
-        
-        List<AgentInstance> expiredInstances = agentInstanceRepository.findExpiredInstances(expireTime, cleanupStatuses);
-        
-        for (AgentInstance instance : expiredInstances) {
-            agentInstanceRepository.delete(instance);
+
+        List<Long> instanceIds = agentInstanceRepository.findExpiredInstanceIdsForUpdate(expireTime, cleanupStatuses,
+                PageRequest.of(0, batchSize));
+        if (instanceIds.isEmpty()) {
+            return new CleanupResult();
         }
-        
-        return expiredInstances.size();
+
+        // 先解除指向待删除行的外键引用，再按消息、任务、实例的顺序删除
+        messageRepository.clearReplyToForInstances(instanceIds);
+        messageRepository.clearTaskForInstances(instanceIds);
+        long messages = messageRepository.deleteByInstanceIds(instanceIds);
+        taskRepository.clearParentTaskForInstances(instanceIds);
+        long tasks = taskRepository.deleteByAgentInstanceIds(instanceIds);
+        long instances = agentInstanceRepository.deleteByIds(instanceIds);
+
+        for (Long instanceId : instanceIds) {
+            instanceRegistry.onRemoved(instanceId);
+            heartbeatTracker.forget(instanceId);
+            memoryStore.forget(instanceId);
+        }
+        return new CleanupResult(instances, tasks, messages);
     }
 
     @Override
     @Transactional(readOnly = true)
     public boolean isInstanceActive(Long instanceId) {
-        Optional<AgentInstance> instance = agentInstanceRepository.findById(instanceId);
-        if (instance.isEmpty()) {
-            return false;
+        // 状态和心跳都从内存读取
+        return instanceRegistry.isRunning(instanceId) && heartbeatTracker.isAlive(instanceId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public String getMemoryState(Long instanceId) {
+        return agentInstanceRepository.findMemoryStateById(instanceId).orElse(null);
+    }
+
+    @Override
+    public int updateMemoryStates(Map<Long, String> memoryStates) {
+        int updated = 0;
+        for (Map.Entry<Long, String> entry : memoryStates.entrySet()) {
+            updated += agentInstanceRepository.updateMemoryState(entry.getKey(), entry.getValue());
         }
-        
-        AgentInstance agentInstance = instance.get();
-        return agentInstance.getStatus() == AgentInstance.InstanceStatus.RUNNING && 
-               agentInstance.getLastActiveTime().isAfter(LocalDateTime.now().minusMinutes(5));
+        return updated;
     }
 
     @Override
     @Transactional(readOnly = true)
     public InstanceStats getInstanceStats() {
-        long totalInstances = agentInstanceRepository.count();
-        long runningInstances = agentInstanceRepository.findByStatus(AgentInstance.InstanceStatus.RUNNING).size();
-        long stoppedInstances = agentInstanceRepository.findByStatus(AgentInstance.InstanceStatus.STOPPED).size();
-        long errorInstances = agentInstanceRepository.findByStatus(AgentInstance.InstanceStatus.ERROR).size();
+        Map<AgentInstance.InstanceStatus, Long> counts = countInstancesByStatus();
+        long totalInstances = counts.values().stream().mapToLong(Long::longValue).sum();
+        long runningInstances = counts.getOrDefault(AgentInstance.InstanceStatus.RUNNING, 0L);
+        long stoppedInstances = counts.getOrDefault(AgentInstance.InstanceStatus.STOPPED, 0L);
+        long errorInstances = counts.getOrDefault(AgentInstance.InstanceStatus.ERROR, 0L);
         
         return new InstanceStats(totalInstances, runningInstances, stoppedInstances, errorInstances);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Map<AgentInstance.InstanceStatus, Long> countInstancesByStatus() {
+        Map<AgentInstance.InstanceStatus, Long> counts = new EnumMap<>(AgentInstance.InstanceStatus.class);
+        for (Object[] row : agentInstanceRepository.countGroupByStatus()) {
+            counts.put((AgentInstance.InstanceStatus) row[0], ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+
     private String generateSessionId() {
         return "session_" + UUID.randomUUID().toString().replace("-", "").substring(0, 16);
     }
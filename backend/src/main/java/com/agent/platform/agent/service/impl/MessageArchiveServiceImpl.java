@@ -0,0 +1,265 @@
+package com.agent.platform.agent.service.impl;
+
+import com.agent.platform.agent.entity.Message;
+import com.agent.platform.agent.entity.MessageArchive;
+import com.agent.platform.agent.entity.Task;
+import com.agent.platform.agent.repository.MessageArchiveRepository;
+import com.agent.platform.agent.repository.MessageRepository;
+import com.agent.platform.agent.service.MessageArchiveService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 消息归档服务实现类
+ * 归档块内保存消息的标量字段，回读时还原为不受持久化上下文管理的消息对象
+ */
+@Service
+@Transactional
+public class MessageArchiveServiceImpl implements MessageArchiveService {
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private MessageArchiveRepository messageArchiveRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // 回读时每次加载的归档块数
+    private static final int CHUNK_PAGE_SIZE = 8;
+
+    // 查询无上下界时使用的时间边界
+    private static final LocalDateTime MIN_TIME = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_TIME = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    // 按 (发送时间, ID) 倒序
+    private static final Comparator<Message> NEWEST_FIRST = Comparator
+            .comparing(Message::getSendTime).thenComparing(Message::getId).reversed();
+
+    private static final TypeReference<List<Map<String, Object>>> ROWS_TYPE = new TypeReference<>() {};
+
+    @Override
+    public int archiveMessages(Collection<Message.MessageStatus> statuses, LocalDateTime before, int batchSize) {
+        List<Message> messages = messageRepository.findArchivableMessages(statuses, before, PageRequest.of(0, batchSize));
+        if (messages.isEmpty()) {
+            return 0;
+        }
+
+        // 按会话分组，每个会话写一个归档块
+        Map<String, List<Message>> byConversation = new LinkedHashMap<>();
+        for (Message message : messages) {
+            byConversation.computeIfAbsent(message.getConversationKey(), key -> new ArrayList<>()).add(message);
+        }
+        List<MessageArchive> chunks = new ArrayList<>(byConversation.size());
+        byConversation.forEach((conversationKey, group) -> chunks.add(toChunk(conversationKey, group)));
+        messageArchiveRepository.saveAll(chunks);
+
+        List<Long> ids = messages.stream().map(Message::getId).toList();
+        messageRepository.clearReplyToByIds(ids);
+        messageRepository.deleteByIds(ids);
+        return ids.size();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Message> getArchivedConversationPage(String conversationKey, LocalDateTime beforeSendTime, Long beforeId,
+                                                     LocalDateTime notBefore, int limit) {
+        LocalDateTime upper = beforeSendTime != null ? beforeSendTime : MAX_TIME;
+        LocalDateTime lower = notBefore != null ? notBefore : MIN_TIME;
+
+        List<Message> result = new ArrayList<>();
+        for (int page = 0; ; page++) {
+            List<MessageArchive> chunks = messageArchiveRepository.findConversationChunks(conversationKey, upper, lower,
+                    PageRequest.of(page, CHUNK_PAGE_SIZE));
+            for (MessageArchive chunk : chunks) {
+                // 块按最晚发送时间倒序，已凑满且后续块都更早时停止
+                if (result.size() >= limit && chunk.getLastSendTime().isBefore(result.get(limit - 1).getSendTime())) {
+                    return result.subList(0, limit);
+                }
+                for (Message message : decode(chunk)) {
+                    if (isBefore(message, beforeSendTime, beforeId) && !message.getSendTime().isBefore(lower)) {
+                        result.add(message);
+                    }
+                }
+                result.sort(NEWEST_FIRST);
+            }
+            if (chunks.size() < CHUNK_PAGE_SIZE) {
+                break;
+            }
+        }
+        return result.size() > limit ? result.subList(0, limit) : result;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachArchivedMessage(String conversationKey, Consumer<Message> consumer) {
+        for (int page = 0; ; page++) {
+            List<MessageArchive> chunks = messageArchiveRepository.findByConversationKeyOrderByFirstSendTimeAscIdAsc(
+                    conversationKey, PageRequest.of(page, CHUNK_PAGE_SIZE));
+            for (MessageArchive chunk : chunks) {
+                decode(chunk).forEach(consumer);
+            }
+            if (chunks.size() < CHUNK_PAGE_SIZE) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long countArchivedMessages() {
+        return messageArchiveRepository.sumMessageCount();
+    }
+
+    private MessageArchive toChunk(String conversationKey, List<Message> group) {
+        List<Map<String, Object>> rows = new ArrayList<>(group.size());
+        LocalDateTime firstSendTime = null;
+        LocalDateTime lastSendTime = null;
+        for (Message message : group) {
+            rows.add(toRow(message));
+            if (firstSendTime == null || message.getSendTime().isBefore(firstSendTime)) {
+                firstSendTime = message.getSendTime();
+            }
+            if (lastSendTime == null || message.getSendTime().isAfter(lastSendTime)) {
+                lastSendTime = message.getSendTime();
+            }
+        }
+
+        MessageArchive chunk = new MessageArchive();
+        chunk.setConversationKey(conversationKey);
+        chunk.setArchiveMonth(lastSendTime.toLocalDate().withDayOfMonth(1));
+        chunk.setFirstMessageId(group.get(0).getId());
+        chunk.setLastMessageId(group.get(group.size() - 1).getId());
+        chunk.setFirstSendTime(firstSendTime);
+        chunk.setLastSendTime(lastSendTime);
+        chunk.setMessageCount(group.size());
+        chunk.setPayload(compress(rows));
+        chunk.setCreatedAt(LocalDateTime.now());
+        chunk.setUpdatedAt(LocalDateTime.now());
+        return chunk;
+    }
+
+    /**
+     * 只保存标量字段和关联ID，避免序列化延迟加载的关联对象
+     */
+    private static Map<String, Object> toRow(Message message) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", message.getId());
+        row.put("senderId", message.getSenderId());
+        row.put("receiverId", message.getReceiverId());
+        row.put("taskId", message.getTask() != null ? message.getTask().getId() : null);
+        row.put("replyToId", message.getReplyTo() != null ? message.getReplyTo().getId() : null);
+        row.put("type", message.getMessageType());
+        row.put("status", message.getStatus() != null ? message.getStatus().name() : null);
+        row.put("content", message.getContent());
+        row.put("priority", message.getPriority());
+        row.put("requiresReply", message.getRequiresReply());
+        row.put("sendTime", format(message.getSendTime()));
+        row.put("deliverTime", format(message.getDeliverTime()));
+        row.put("readTime", format(message.getReadTime()));
+        row.put("processedTime", format(message.getProcessedTime()));
+        row.put("createdAt", format(message.getCreatedAt()));
+        return row;
+    }
+
+    private static Message fromRow(Map<String, Object> row) {
+        Message message = new Message();
+        message.setId(longValue(row.get("id")));
+        message.setSenderId(longValue(row.get("senderId")));
+        message.setReceiverId(longValue(row.get("receiverId")));
+        Long taskId = longValue(row.get("taskId"));
+        if (taskId != null) {
+            Task task = new Task();
+            task.setId(taskId);
+            message.setTask(task);
+        }
+        Long replyToId = longValue(row.get("replyToId"));
+        if (replyToId != null) {
+            Message replyTo = new Message();
+            replyTo.setId(replyToId);
+            message.setReplyTo(replyTo);
+        }
+        message.setMessageType((String) row.get("type"));
+        if (row.get("status") != null) {
+            message.setStatus(Message.MessageStatus.valueOf((String) row.get("status")));
+        }
+        message.setContent((String) row.get("content"));
+        Long priority = longValue(row.get("priority"));
+        message.setPriority(priority != null ? priority.intValue() : null);
+        message.setRequiresReply((Boolean) row.get("requiresReply"));
+        message.setSendTime(parse(row.get("sendTime")));
+        message.setDeliverTime(parse(row.get("deliverTime")));
+        message.setReadTime(parse(row.get("readTime")));
+        message.setProcessedTime(parse(row.get("processedTime")));
+        message.setCreatedAt(parse(row.get("createdAt")));
+        message.setConversationKey(Message.conversationKey(message.getSenderId(), message.getReceiverId()));
+        return message;
+    }
+
+    private byte[] compress(List<Map<String, Object>> rows) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(buffer)) {
+            objectMapper.writeValue(out, rows);
+        } catch (IOException e) {
+            throw new UncheckedIOException("压缩归档消息失败", e);
+        }
+        return buffer.toByteArray();
+    }
+
+    private List<Message> decode(MessageArchive chunk) {
+        List<Map<String, Object>> rows;
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(chunk.getPayload()))) {
+            rows = objectMapper.readValue(in, ROWS_TYPE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("解压归档消息失败: " + chunk.getId(), e);
+        }
+        List<Message> messages = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            messages.add(fromRow(row));
+        }
+        messages.sort(Comparator.comparing(Message::getSendTime).thenComparing(Message::getId));
+        return messages;
+    }
+
+    private static boolean isBefore(Message message, LocalDateTime sendTime, Long id) {
+        if (sendTime == null) {
+            return true;
+        }
+        int compare = message.getSendTime().compareTo(sendTime);
+        return compare < 0 || (compare == 0 && message.getId() < id);
+    }
+
+    private static String format(LocalDateTime time) {
+        return time != null ? time.toString() : null;
+    }
+
+    private static LocalDateTime parse(Object value) {
+        return value != null ? LocalDateTime.parse(value.toString()) : null;
+    }
+
+    private static Long longValue(Object value) {
+        return value instanceof Number number ? number.longValue() : null;
+    }
+}
@@ -4,17 +4,29 @@ import com.agent.platform.agent.entity.AgentInstance;
 import com.agent.platform.agent.entity.Message;
 import com.agent.platform.agent.repository.AgentInstanceRepository;
 import com.agent.platform.agent.repository.MessageRepository;
+import com.agent.platform.agent.service.MessageArchiveService;
 import com.agent.platform.agent.service.MessageService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * 消息服务实现类
@@ -29,6 +41,19 @@ public class MessageServiceImpl implements MessageService {
     @Autowired
     private AgentInstanceRepository agentInstanceRepository;
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private MessageArchiveService messageArchiveService;
+
+    // 单页最大条数
+    private static final int MAX_PAGE_SIZE = 500;
+
+    // 按 (发送时间, ID) 顺序
+    private static final Comparator<Message> OLDEST_FIRST = Comparator
+            .comparing(Message::getSendTime).thenComparing(Message::getId);
+
     @Override
     public Message sendMessage(Message message) {
         // 验证发送方和接收方存在
@@ -93,7 +118,92 @@ public class MessageServiceImpl implements MessageService {
     @Override
     @Transactional(readOnly = true)
     public List<Message> getConversationBetweenAgents(Long agent1Id, Long agent2Id) {
-        return messageRepository.findConversationBetweenAgents(agent1Id, agent2Id);
+        String conversationKey = Message.conversationKey(agent1Id, agent2Id);
+        List<Message> messages = new ArrayList<>();
+        messageArchiveService.forEachArchivedMessage(conversationKey, messages::add);
+        if (messages.isEmpty()) {
+            return messageRepository.findByConversationKeyOrderBySendTimeAscIdAsc(conversationKey);
+        }
+        messages.addAll(messageRepository.findByConversationKeyOrderBySendTimeAscIdAsc(conversationKey));
+        messages.sort(OLDEST_FIRST);
+        return messages;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public MessagePage getConversationPage(Long agent1Id, Long agent2Id, String cursor, int size) {
+        String conversationKey = Message.conversationKey(agent1Id, agent2Id);
+        Pageable pageable = keysetPageable(size);
+        Cursor position = decodeCursor(cursor);
+        List<Message> messages = position == null
+                ? messageRepository.findConversationPage(conversationKey, pageable)
+                : messageRepository.findConversationPageBefore(conversationKey, position.sendTime, position.id, pageable);
+
+        // 回读归档：本页已满时只需要不早于本页最后一条的归档消息
+        int limit = pageable.getPageSize();
+        LocalDateTime notBefore = messages.size() >= limit ? messages.get(limit - 1).getSendTime() : null;
+        List<Message> archived = messageArchiveService.getArchivedConversationPage(conversationKey,
+                position != null ? position.sendTime : null, position != null ? position.id : null, notBefore, limit);
+        if (!archived.isEmpty()) {
+            List<Message> merged = new ArrayList<>(messages);
+            merged.addAll(archived);
+            merged.sort(OLDEST_FIRST.reversed());
+            messages = merged.size() > limit ? merged.subList(0, limit) : merged;
+        }
+        return toPage(messages, size);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public MessagePage getInboxPage(Long receiverId, String cursor, int size) {
+        Pageable pageable = keysetPageable(size);
+        Cursor position = decodeCursor(cursor);
+        List<Message> messages = position == null
+                ? messageRepository.findInboxPage(receiverId, pageable)
+                : messageRepository.findInboxPageBefore(receiverId, position.sendTime, position.id, pageable);
+        return toPage(messages, size);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Message> getLatestMessages(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("条数必须大于0: " + limit);
+        }
+        return messageRepository.findLatestMessages(PageRequest.of(0, Math.min(limit, MAX_PAGE_SIZE)));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportConversation(Long agent1Id, Long agent2Id, Consumer<Message> consumer) {
+        String conversationKey = Message.conversationKey(agent1Id, agent2Id);
+        // 归档消息早于保留期，先按块导出，再导出消息表中的消息
+        messageArchiveService.forEachArchivedMessage(conversationKey, consumer);
+        try (Stream<Message> messages = messageRepository.streamConversation(conversationKey)) {
+            messages.forEach(message -> {
+                consumer.accept(message);
+                // 逐条移出持久化上下文，导出大会话时内存占用保持稳定
+                entityManager.detach(message);
+            });
+        }
+    }
+
+    @Override
+    public int backfillConversationKeys(Long fromId, Long toId) {
+        return messageRepository.backfillConversationKeys(fromId, toId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long getMaxMessageId() {
+        Long maxId = messageRepository.findMaxId();
+        return maxId != null ? maxId : 0L;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Long getMinMessageIdWithoutConversationKey() {
+        return messageRepository.findMinIdWithoutConversationKey();
     }
 
     @Override
@@ -134,6 +244,51 @@ public class MessageServiceImpl implements MessageService {
         return messageRepository.save(message);
     }
 
+    @Override
+    public int markMessagesAsDelivered(Collection<Long> messageIds) {
+        if (messageIds.isEmpty()) {
+            return 0;
+        }
+        return messageRepository.updateStatusByIds(messageIds, Message.MessageStatus.SENT,
+                Message.MessageStatus.DELIVERED, LocalDateTime.now());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Message> getRedeliverableMessagesPage(Duration lease, Long afterId, int size) {
+        return messageRepository.findRedeliverableMessages(LocalDateTime.now().minus(lease),
+                afterId != null ? afterId : 0L, PageRequest.of(0, size));
+    }
+
+    @Override
+    public boolean claimRedelivery(Long messageId, Duration lease) {
+        LocalDateTime now = LocalDateTime.now();
+        return messageRepository.claimRedelivery(messageId, now, now.minus(lease)) > 0;
+    }
+
+    @Override
+    public void releaseRedelivery(Long messageId) {
+        messageRepository.releaseRedelivery(messageId);
+    }
+
+    @Override
+    public Message markMessageAsFailed(Long messageId) {
+        Optional<Message> existing = messageRepository.findById(messageId);
+        if (existing.isEmpty()) {
+            throw new IllegalArgumentException("消息不存在: " + messageId);
+        }
+
+        Message message = existing.get();
+        if (message.getStatus() != Message.MessageStatus.SENT) {
+            return message;
+        }
+
+        message.setStatus(Message.MessageStatus.FAILED);
+        message.setUpdatedAt(LocalDateTime.now());
+
+        return messageRepository.save(message);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public long getUnreadMessageCount(Long receiverId) {
@@ -232,4 +387,55 @@ public class MessageServiceImpl implements MessageService {
         
         return new MessageStats(totalMessages, sentMessages, deliveredMessages, readMessages, failedMessages);
     }
-}
\ No newline at end of file
+
+    /**
+     * 多取一条用于判断是否还有下一页
+     */
+    private Pageable keysetPageable(int size) {
+        if (size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("分页大小必须在 1-" + MAX_PAGE_SIZE + " 之间: " + size);
+        }
+        return PageRequest.of(0, size + 1);
+    }
+
+    private MessagePage toPage(List<Message> messages, int size) {
+        boolean hasMore = messages.size() > size;
+        List<Message> page = hasMore ? messages.subList(0, size) : messages;
+        String nextCursor = hasMore ? encodeCursor(page.get(page.size() - 1)) : null;
+        return new MessagePage(new ArrayList<>(page), nextCursor, hasMore);
+    }
+
+    /**
+     * 游标为 "发送时间|消息ID" 的 URL 安全 Base64 编码
+     */
+    private static String encodeCursor(Message message) {
+        String raw = message.getSendTime() + "|" + message.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Cursor decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new Cursor(LocalDateTime.parse(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("无效的分页游标: " + cursor);
+        }
+    }
+
+    /**
+     * 解码后的分页游标
+     */
+    private static class Cursor {
+        private final LocalDateTime sendTime;
+        private final Long id;
+
+        Cursor(LocalDateTime sendTime, Long id) {
+            this.sendTime = sendTime;
+            this.id = id;
+        }
+    }
+}
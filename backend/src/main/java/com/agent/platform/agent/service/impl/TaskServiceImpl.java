@@ -1,18 +1,25 @@
 package com.agent.platform.agent.service.impl;
 
+import com.agent.platform.agent.engine.AgentNode;
+import com.agent.platform.agent.engine.TaskFinishedEvent;
+import com.agent.platform.agent.engine.TaskStatusChangedEvent;
 import com.agent.platform.agent.entity.AgentInstance;
 import com.agent.platform.agent.entity.Task;
 import com.agent.platform.agent.repository.AgentInstanceRepository;
 import com.agent.platform.agent.repository.TaskRepository;
 import com.agent.platform.agent.service.TaskService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -28,6 +35,12 @@ public class TaskServiceImpl implements TaskService {
     @Autowired
     private AgentInstanceRepository agentInstanceRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private AgentNode agentNode;
+
     @Override
     public Task createTask(Task task) {
         // 验证智能体实例存在
@@ -54,7 +67,9 @@ public class TaskServiceImpl implements TaskService {
             task.setUpdatedAt(LocalDateTime.now());
         }
 
-        return taskRepository.save(task);
+        Task saved = taskRepository.save(task);
+        publishStatusChanged(saved, null);
+        return saved;
     }
 
     @Override
@@ -89,29 +104,30 @@ public class TaskServiceImpl implements TaskService {
         }
 
         Task task = existing.get();
+        Task.TaskStatus previousStatus = task.getStatus();
         task.setStatus(status);
         task.setUpdatedAt(LocalDateTime.now());
 
-        return taskRepository.save(task);
+        Task saved = taskRepository.save(task);
+        publishStatusChanged(saved, previousStatus);
+        return saved;
     }
 
     @Override
     public Task startTaskExecution(Long taskId) {
-        Optional<Task> existing = taskRepository.findById(taskId);
-        if (existing.isEmpty()) {
-            throw new IllegalArgumentException("任务不存在: " + taskId);
-        }
-
-        Task task = existing.get();
-        if (task.getStatus() != Task.TaskStatus.PENDING) {
+        // 条件更新抢占任务，多个分发线程或节点同时开始同一任务时只有一个成功
+        int claimed = taskRepository.claimPendingTask(taskId, agentNode.getNodeId(), LocalDateTime.now());
+        if (claimed == 0) {
+            if (!taskRepository.existsById(taskId)) {
+                throw new IllegalArgumentException("任务不存在: " + taskId);
+            }
             throw new IllegalStateException("只有待处理的任务可以开始执行");
         }
 
-        task.setStatus(Task.TaskStatus.RUNNING);
-        task.setStartedAt(LocalDateTime.now());
-        task.setUpdatedAt(LocalDateTime.now());
-
-        return taskRepository.save(task);
+        Task task = taskRepository.findById(taskId)
+                .orElseThrow(() -> new IllegalArgumentException("任务不存在: " + taskId));
+        publishStatusChanged(task, Task.TaskStatus.PENDING);
+        return task;
     }
 
     @Override
@@ -122,6 +138,7 @@ public class TaskServiceImpl implements TaskService {
         }
 
         Task task = existing.get();
+        Task.TaskStatus previousStatus = task.getStatus();
         if (task.getStatus() != Task.TaskStatus.RUNNING) {
             throw new IllegalStateException("只有运行中的任务可以完成");
         }
@@ -131,7 +148,9 @@ public class TaskServiceImpl implements TaskService {
         task.setCompletedAt(LocalDateTime.now());
         task.setUpdatedAt(LocalDateTime.now());
 
-        return taskRepository.save(task);
+        Task saved = taskRepository.save(task);
+        publishFinished(saved, previousStatus);
+        return saved;
     }
 
     @Override
@@ -142,12 +161,15 @@ public class TaskServiceImpl implements TaskService {
         }
 
         Task task = existing.get();
+        Task.TaskStatus previousStatus = task.getStatus();
         task.setStatus(Task.TaskStatus.FAILED);
         task.setErrorMessage(errorMessage);
         task.setCompletedAt(LocalDateTime.now());
         task.setUpdatedAt(LocalDateTime.now());
 
-        return taskRepository.save(task);
+        Task saved = taskRepository.save(task);
+        publishFinished(saved, previousStatus);
+        return saved;
     }
 
     @Override
@@ -158,6 +180,7 @@ public class TaskServiceImpl implements TaskService {
         }
 
         Task task = existing.get();
+        Task.TaskStatus previousStatus = task.getStatus();
         if (task.getStatus() != Task.TaskStatus.PENDING && task.getStatus() != Task.TaskStatus.RUNNING) {
             throw new IllegalStateException("只有待处理或运行中的任务可以取消");
         }
@@ -165,7 +188,9 @@ public class TaskServiceImpl implements TaskService {
         task.setStatus(Task.TaskStatus.CANCELLED);
         task.setUpdatedAt(LocalDateTime.now());
 
-        return taskRepository.save(task);
+        Task saved = taskRepository.save(task);
+        publishFinished(saved, previousStatus);
+        return saved;
     }
 
     @Override
@@ -176,22 +201,27 @@ public class TaskServiceImpl implements TaskService {
         }
 
         Task task = existing.get();
+        Task.TaskStatus previousStatus = task.getStatus();
         if (task.getStatus() != Task.TaskStatus.FAILED) {
             throw new IllegalStateException("只有失败的任务可以重试");
         }
 
-        task.setStatus(Task.TaskStatus.PENDING);
-        task.setErrorMessage(null);
-        task.setRetryCount(task.getRetryCount() + 1);
-        task.setUpdatedAt(LocalDateTime.now());
+        // 按读取到的重试次数条件更新，多个节点同时重试同一任务时只有一个成功
+        int claimed = taskRepository.claimFailedTaskForRetry(taskId, task.getRetryCount(), LocalDateTime.now());
+        if (claimed == 0) {
+            throw new IllegalStateException("任务已被重试或状态已变化: " + taskId);
+        }
 
-        return taskRepository.save(task);
+        Task saved = taskRepository.findById(taskId)
+                .orElseThrow(() -> new IllegalArgumentException("任务不存在: " + taskId));
+        publishStatusChanged(saved, previousStatus);
+        return saved;
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<Task> getSubTasks(Long parentTaskId) {
-        return taskRepository.findByParentTaskId(parentTaskId);
+        return taskRepository.findByParentTaskIdOrderByIdAsc(parentTaskId);
     }
 
     @Override
@@ -210,20 +240,144 @@ public class TaskServiceImpl implements TaskService {
             task.setCompletedAt(LocalDateTime.now());
             task.setUpdatedAt(LocalDateTime.now());
             taskRepository.save(task);
+            publishFinished(task, Task.TaskStatus.RUNNING);
         }
         
         return timeoutTasks.size();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<Task> getTimeoutTasks(LocalDateTime timeoutTime) {
+        return taskRepository.findTimeoutTasks(timeoutTime);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Task> getTimeoutTasks(String executorNode, LocalDateTime timeoutTime) {
+        return taskRepository.findTimeoutTasksByExecutorNode(executorNode, timeoutTime);
+    }
+
+    @Override
+    public Task timeoutTask(Long taskId) {
+        Optional<Task> existing = taskRepository.findById(taskId);
+        if (existing.isEmpty()) {
+            throw new IllegalArgumentException("任务不存在: " + taskId);
+        }
+
+        Task task = existing.get();
+        Task.TaskStatus previousStatus = task.getStatus();
+        if (task.getStatus() != Task.TaskStatus.RUNNING) {
+            return task;
+        }
+
+        task.setStatus(Task.TaskStatus.FAILED);
+        task.setErrorMessage("任务执行超时");
+        task.setCompletedAt(LocalDateTime.now());
+        task.setUpdatedAt(LocalDateTime.now());
+
+        Task saved = taskRepository.save(task);
+        publishFinished(saved, previousStatus);
+        return saved;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Task> getPendingTasksPage(Integer afterPriority, Long afterId, int size) {
+        if (afterPriority == null || afterId == null) {
+            return taskRepository.findPendingTasksOrderByPriority(PageRequest.of(0, size));
+        }
+        return taskRepository.findPendingTasksOrderByPriorityAfter(afterPriority, afterId, PageRequest.of(0, size));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Task> getRunningTasksPage(String executorNode, Long afterId, int size) {
+        return taskRepository.findByStatusAndExecutorNodeAndIdGreaterThanOrderByIdAsc(Task.TaskStatus.RUNNING,
+                executorNode, afterId != null ? afterId : 0L, PageRequest.of(0, size));
+    }
+
+    @Override
+    public Task requeueTask(Long taskId, String executorNode) {
+        // 条件更新，只恢复仍在该节点上运行的任务，不影响其他节点正在执行的任务
+        int requeued = taskRepository.requeueRunningTask(taskId, executorNode, LocalDateTime.now());
+        Task task = taskRepository.findById(taskId)
+                .orElseThrow(() -> new IllegalArgumentException("任务不存在: " + taskId));
+        if (requeued > 0) {
+            publishStatusChanged(task, Task.TaskStatus.RUNNING);
+        }
+        return task;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Task> getRetryableFailedTasksPage(LocalDateTime failedAfter, Long afterId, int size) {
+        return taskRepository.findRetryableFailedTasks(failedAfter, afterId != null ? afterId : 0L, PageRequest.of(0, size));
+    }
+
+    @Override
+    public Task markTaskDeadLettered(Long taskId) {
+        Optional<Task> existing = taskRepository.findById(taskId);
+        if (existing.isEmpty()) {
+            throw new IllegalArgumentException("任务不存在: " + taskId);
+        }
+
+        Task task = existing.get();
+        if (task.getStatus() != Task.TaskStatus.FAILED) {
+            return task;
+        }
+
+        task.setDeadLetteredAt(LocalDateTime.now());
+        task.setUpdatedAt(LocalDateTime.now());
+
+        return taskRepository.save(task);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<Task> getDeadLetterTasks(Pageable pageable) {
+        return taskRepository.findByDeadLetteredAtIsNotNull(pageable);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public TaskStats getTaskStats() {
-        long totalTasks = taskRepository.count();
-        long pendingTasks = taskRepository.countByStatus(Task.TaskStatus.PENDING);
-        long runningTasks = taskRepository.countByStatus(Task.TaskStatus.RUNNING);
-        long completedTasks = taskRepository.countByStatus(Task.TaskStatus.COMPLETED);
-        long failedTasks = taskRepository.countByStatus(Task.TaskStatus.FAILED);
+        Map<Task.TaskStatus, Long> counts = countTasksByStatus();
+        long totalTasks = counts.values().stream().mapToLong(Long::longValue).sum();
+        long pendingTasks = counts.getOrDefault(Task.TaskStatus.PENDING, 0L);
+        long runningTasks = counts.getOrDefault(Task.TaskStatus.RUNNING, 0L);
+        long completedTasks = counts.getOrDefault(Task.TaskStatus.COMPLETED, 0L);
+        long failedTasks = counts.getOrDefault(Task.TaskStatus.FAILED, 0L);
         
         return new TaskStats(totalTasks, pendingTasks, runningTasks, completedTasks, failedTasks);
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Task.TaskStatus, Long> countTasksByStatus() {
+        Map<Task.TaskStatus, Long> counts = new EnumMap<>(Task.TaskStatus.class);
+        for (Object[] row : taskRepository.countGroupByStatus()) {
+            counts.put((Task.TaskStatus) row[0], ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+
+    /**
+     * 发布任务状态变更事件（事务提交后用于增量维护统计快照）
+     */
+    private void publishStatusChanged(Task task, Task.TaskStatus previousStatus) {
+        if (previousStatus != task.getStatus()) {
+            eventPublisher.publishEvent(new TaskStatusChangedEvent(task.getId(), previousStatus, task.getStatus()));
+        }
+    }
+
+    /**
+     * 发布任务结束事件（事务提交后由任务图执行器和重试调度器处理）
+     */
+    private void publishFinished(Task task, Task.TaskStatus previousStatus) {
+        publishStatusChanged(task, previousStatus);
+        Long parentTaskId = task.getParentTask() != null ? task.getParentTask().getId() : null;
+        eventPublisher.publishEvent(new TaskFinishedEvent(task.getId(), parentTaskId, task.getStatus(), task.getTaskType(),
+                task.getRetryCount() != null ? task.getRetryCount() : 0, task.getErrorMessage()));
+    }
 }
\ No newline at end of file
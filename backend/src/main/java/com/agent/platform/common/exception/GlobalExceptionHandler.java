@@ -1,5 +1,7 @@
 package com.agent.platform.common.exception;
 
+import com.agent.platform.agent.engine.MessageRejectedException;
+import com.agent.platform.agent.engine.TaskRejectedException;
 import com.agent.platform.common.base.ApiResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -51,6 +53,18 @@ public class GlobalExceptionHandler {
                 .body(ApiResponse.error(401, "用户名或密码错误"));
     }
     
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<ApiResponse<Object>> handleTaskRejectedException(TaskRejectedException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .body(ApiResponse.error(429, ex.getMessage()));
+    }
+    
+    @ExceptionHandler(MessageRejectedException.class)
+    public ResponseEntity<ApiResponse<Object>> handleMessageRejectedException(MessageRejectedException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .body(ApiResponse.error(429, ex.getMessage()));
+    }
+    
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<ApiResponse<Object>> handleRuntimeException(RuntimeException ex) {
         log.error("Runtime exception: ", ex);
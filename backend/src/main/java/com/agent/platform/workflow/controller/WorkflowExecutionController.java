@@ -4,9 +4,12 @@ import com.agent.platform.common.base.ApiResponse;
 import com.agent.platform.security.UserDetailsImpl;
 import com.agent.platform.workflow.dto.WorkflowExecutionRequest;
 import com.agent.platform.workflow.dto.WorkflowExecutionResponse;
+import com.agent.platform.workflow.dto.WorkflowProfileReport;
 import com.agent.platform.workflow.engine.WorkflowEngine;
+import com.agent.platform.workflow.engine.WorkflowExecutionScheduler;
 import com.agent.platform.workflow.entity.WorkflowExecution;
 import com.agent.platform.workflow.repository.WorkflowExecutionRepository;
+import com.agent.platform.workflow.service.WorkflowProfileService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -25,6 +28,8 @@ public class WorkflowExecutionController {
     
     private final WorkflowEngine workflowEngine;
     private final WorkflowExecutionRepository executionRepository;
+    private final WorkflowExecutionScheduler executionScheduler;
+    private final WorkflowProfileService profileService;
     
     /**
      * 执行工作流
@@ -37,12 +42,39 @@ public class WorkflowExecutionController {
         WorkflowExecution execution = workflowEngine.executeWorkflow(
                 request.getWorkflowId(), 
                 request.getInputData(), 
-                userDetails.getUser().getId()
+                userDetails.getUser().getId(),
+                WorkflowExecutionScheduler.PriorityClass.of(request.getPriority())
         );
         
         return ApiResponse.success(WorkflowExecutionResponse.from(execution));
     }
     
+    /**
+     * 获取调度器队列统计（按用户）
+     */
+    @GetMapping("/scheduler/stats")
+    public ApiResponse<WorkflowExecutionScheduler.SchedulerStats> getSchedulerStats() {
+        return ApiResponse.success(executionScheduler.getStats());
+    }
+    
+    /**
+     * 设置用户调度权重（权重越大，公平调度中分得的执行份额越多）
+     */
+    @PutMapping("/scheduler/weights/{userId}")
+    public ApiResponse<Void> setTenantWeight(@PathVariable Long userId, @RequestParam int weight) {
+        executionScheduler.setTenantWeight(userId, weight);
+        return ApiResponse.success();
+    }
+    
+    /**
+     * 清除用户调度权重，恢复默认权重
+     */
+    @DeleteMapping("/scheduler/weights/{userId}")
+    public ApiResponse<Void> removeTenantWeight(@PathVariable Long userId) {
+        executionScheduler.removeTenantWeight(userId);
+        return ApiResponse.success();
+    }
+    
     /**
      * 获取执行详情
      */
@@ -114,4 +146,15 @@ public class WorkflowExecutionController {
         Page<WorkflowExecutionResponse> response = executions.map(WorkflowExecutionResponse::from);
         return ApiResponse.success(response);
     }
+    
+    /**
+     * 工作流执行剖析：关键路径、并行度和节点类型延迟分位数（最近N次执行）
+     */
+    @GetMapping("/workflow/{workflowId}/profile")
+    public ApiResponse<WorkflowProfileReport> getWorkflowProfile(
+            @PathVariable Long workflowId,
+            @RequestParam(defaultValue = "20") int limit) {
+        
+        return ApiResponse.success(profileService.profile(workflowId, limit));
+    }
 }
\ No newline at end of file
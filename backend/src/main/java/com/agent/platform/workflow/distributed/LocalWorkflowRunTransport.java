@@ -0,0 +1,159 @@
+package com.agent.platform.workflow.distributed;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 进程内的工作流传输，模拟 RabbitMQ 的语义
+ * 优先级队列 + 固定消费者数量，处理器抛出异常时消息重新入队；
+ * 用于没有 RabbitMQ 的本地环境和测试
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.workflow.distributed.transport", havingValue = "local")
+public class LocalWorkflowRunTransport implements WorkflowRunTransport {
+
+    @Value("${app.workflow.distributed.consumers:4}")
+    private int consumers;
+
+    @Value("${app.workflow.distributed.node-id:local}")
+    private String nodeId;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final BlockingQueue<Envelope> runQueue = new PriorityBlockingQueue<>();
+
+    private final BlockingQueue<WorkflowRunResult> resultQueue = new LinkedBlockingQueue<>();
+
+    private final List<Thread> workers = new ArrayList<>();
+
+    private volatile boolean running = false;
+
+    @Override
+    public void publish(WorkflowRunMessage message) {
+        message.setOriginNode(nodeId);
+        message.setPublishedAt(System.currentTimeMillis());
+        runQueue.offer(new Envelope(message, sequence.incrementAndGet()));
+    }
+
+    @Override
+    public void publishResult(String originNode, WorkflowRunResult result) {
+        resultQueue.offer(result);
+    }
+
+    @Override
+    public synchronized void start(Consumer<WorkflowRunMessage> runHandler, Consumer<WorkflowRunResult> resultHandler) {
+        if (running) {
+            return;
+        }
+        running = true;
+
+        for (int i = 0; i < consumers; i++) {
+            Thread worker = new Thread(() -> consumeRuns(runHandler), "workflow-run-consumer-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+
+        Thread resultWorker = new Thread(() -> consumeResults(resultHandler), "workflow-result-consumer");
+        resultWorker.setDaemon(true);
+        resultWorker.start();
+        workers.add(resultWorker);
+
+        log.info("本地工作流传输已启动: nodeId={}, consumers={}", nodeId, consumers);
+    }
+
+    private void consumeRuns(Consumer<WorkflowRunMessage> runHandler) {
+        while (running) {
+            Envelope envelope;
+            try {
+                envelope = runQueue.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (envelope == null) {
+                continue;
+            }
+
+            try {
+                runHandler.accept(envelope.message);
+            } catch (Exception e) {
+                // 与 RabbitMQ 的 requeue 行为一致：重新入队，保持原有顺序号
+                log.warn("工作流执行消息处理失败，重新入队: executionId={}, error={}",
+                        envelope.message.getExecutionId(), e.getMessage());
+                runQueue.offer(envelope);
+            }
+        }
+    }
+
+    private void consumeResults(Consumer<WorkflowRunResult> resultHandler) {
+        while (running) {
+            try {
+                WorkflowRunResult result = resultQueue.poll(1, TimeUnit.SECONDS);
+                if (result != null) {
+                    resultHandler.accept(result);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.warn("工作流执行结果处理失败: error={}", e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        workers.clear();
+    }
+
+    @Override
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 获取排队中的消息数量
+     */
+    public int getQueueSize() {
+        return runQueue.size();
+    }
+
+    /**
+     * 队列元素：优先级高的先出队，同优先级按发布顺序
+     */
+    private static class Envelope implements Comparable<Envelope> {
+        private final WorkflowRunMessage message;
+        private final long sequence;
+        private final int rank;
+
+        Envelope(WorkflowRunMessage message, long sequence) {
+            this.message = message;
+            this.sequence = sequence;
+            this.rank = "HIGH".equalsIgnoreCase(message.getPriority()) ? 0
+                    : "LOW".equalsIgnoreCase(message.getPriority()) ? 2 : 1;
+        }
+
+        @Override
+        public int compareTo(Envelope other) {
+            int byRank = Integer.compare(rank, other.rank);
+            return byRank != 0 ? byRank : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.agent.platform.workflow.distributed;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * 基于 RabbitMQ 的分布式工作流传输
+ * 执行消息进入共享的优先级工作队列，各节点通过 prefetch 控制在途消息数量；
+ * 执行结果按发起节点路由回各自的结果队列
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.workflow.distributed.transport", havingValue = "rabbit")
+public class RabbitWorkflowRunTransport implements WorkflowRunTransport {
+
+    static final String RUN_EXCHANGE = "workflow.runs";
+    static final String RUN_QUEUE = "workflow.runs";
+    static final String RUN_ROUTING_KEY = "run";
+    static final String RESULT_EXCHANGE = "workflow.run-results";
+    static final String RESULT_QUEUE_PREFIX = "workflow.run-results.";
+
+    private final ConnectionFactory connectionFactory;
+    private final RabbitTemplate rabbitTemplate;
+    private final ObjectMapper objectMapper;
+    private final String nodeId;
+
+    @Value("${app.workflow.distributed.prefetch:2}")
+    private int prefetch;
+
+    @Value("${app.workflow.distributed.consumers:4}")
+    private int consumers;
+
+    private SimpleMessageListenerContainer runContainer;
+    private SimpleMessageListenerContainer resultContainer;
+
+    public RabbitWorkflowRunTransport(ConnectionFactory connectionFactory,
+                                      RabbitTemplate rabbitTemplate,
+                                      ObjectMapper objectMapper,
+                                      @Value("${app.workflow.distributed.node-id:}") String nodeId) {
+        this.connectionFactory = connectionFactory;
+        this.rabbitTemplate = rabbitTemplate;
+        this.objectMapper = objectMapper;
+        this.nodeId = nodeId == null || nodeId.isBlank()
+                ? "node-" + UUID.randomUUID().toString().substring(0, 8) : nodeId;
+    }
+
+    @Override
+    public void publish(WorkflowRunMessage message) {
+        message.setOriginNode(nodeId);
+        message.setPublishedAt(System.currentTimeMillis());
+
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        properties.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+        properties.setPriority(toAmqpPriority(message.getPriority()));
+
+        rabbitTemplate.send(RUN_EXCHANGE, RUN_ROUTING_KEY, new Message(toBytes(message), properties));
+    }
+
+    @Override
+    public void publishResult(String originNode, WorkflowRunResult result) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        rabbitTemplate.send(RESULT_EXCHANGE, originNode, new Message(toBytes(result), properties));
+    }
+
+    @Override
+    public synchronized void start(Consumer<WorkflowRunMessage> runHandler, Consumer<WorkflowRunResult> resultHandler) {
+        if (runContainer != null) {
+            return;
+        }
+
+        declareTopology();
+
+        runContainer = new SimpleMessageListenerContainer(connectionFactory);
+        runContainer.setQueueNames(RUN_QUEUE);
+        runContainer.setPrefetchCount(prefetch);
+        runContainer.setConcurrentConsumers(consumers);
+        runContainer.setAcknowledgeMode(AcknowledgeMode.AUTO);
+        // 处理器抛出异常时重新入队，由其他节点或稍后重试
+        runContainer.setDefaultRequeueRejected(true);
+        runContainer.setMessageListener(message -> runHandler.accept(fromBytes(message, WorkflowRunMessage.class)));
+        runContainer.start();
+
+        resultContainer = new SimpleMessageListenerContainer(connectionFactory);
+        resultContainer.setQueueNames(RESULT_QUEUE_PREFIX + nodeId);
+        resultContainer.setAcknowledgeMode(AcknowledgeMode.AUTO);
+        resultContainer.setDefaultRequeueRejected(false);
+        resultContainer.setMessageListener(message -> resultHandler.accept(fromBytes(message, WorkflowRunResult.class)));
+        resultContainer.start();
+
+        log.info("RabbitMQ 工作流传输已启动: nodeId={}, consumers={}, prefetch={}", nodeId, consumers, prefetch);
+    }
+
+    @Override
+    @PreDestroy
+    public synchronized void stop() {
+        if (runContainer != null) {
+            runContainer.stop();
+            runContainer = null;
+        }
+        if (resultContainer != null) {
+            resultContainer.stop();
+            resultContainer = null;
+        }
+    }
+
+    @Override
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 声明交换机和队列
+     */
+    private void declareTopology() {
+        RabbitAdmin admin = new RabbitAdmin(connectionFactory);
+
+        DirectExchange runExchange = new DirectExchange(RUN_EXCHANGE, true, false);
+        Queue runQueue = QueueBuilder.durable(RUN_QUEUE)
+                .withArgument("x-max-priority", 10)
+                .build();
+        admin.declareExchange(runExchange);
+        admin.declareQueue(runQueue);
+        admin.declareBinding(BindingBuilder.bind(runQueue).to(runExchange).with(RUN_ROUTING_KEY));
+
+        // 每个节点一个独占结果队列，节点下线后自动删除
+        DirectExchange resultExchange = new DirectExchange(RESULT_EXCHANGE, true, false);
+        Queue resultQueue = new Queue(RESULT_QUEUE_PREFIX + nodeId, false, false, true);
+        admin.declareExchange(resultExchange);
+        admin.declareQueue(resultQueue);
+        admin.declareBinding(BindingBuilder.bind(resultQueue).to(resultExchange).with(nodeId));
+    }
+
+    private int toAmqpPriority(String priority) {
+        if ("HIGH".equalsIgnoreCase(priority)) {
+            return 9;
+        }
+        if ("LOW".equalsIgnoreCase(priority)) {
+            return 1;
+        }
+        return 5;
+    }
+
+    private byte[] toBytes(Object payload) {
+        try {
+            return objectMapper.writeValueAsBytes(payload);
+        } catch (IOException e) {
+            throw new IllegalStateException("序列化消息失败: " + e.getMessage(), e);
+        }
+    }
+
+    private <T> T fromBytes(Message message, Class<T> type) {
+        try {
+            return objectMapper.readValue(message.getBody(), type);
+        } catch (IOException e) {
+            // 无法解析的消息不再重新入队
+            throw new AmqpRejectAndDontRequeueException("无法解析消息: " + e.getMessage(), e);
+        }
+    }
+}
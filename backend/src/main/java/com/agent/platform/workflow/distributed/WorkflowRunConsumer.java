@@ -0,0 +1,121 @@
+package com.agent.platform.workflow.distributed;
+
+import com.agent.platform.common.exception.BusinessException;
+import com.agent.platform.workflow.engine.WorkflowEngine;
+import com.agent.platform.workflow.engine.WorkflowExecutionScheduler;
+import com.agent.platform.workflow.entity.WorkflowExecution;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 分布式工作流执行消费者
+ * 从传输层接收执行消息，交给本节点的公平调度器执行，执行完成后才确认消息，
+ * 因此每个节点的在途执行数受 consumers × prefetch 限制
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WorkflowRunConsumer {
+
+    private final ObjectProvider<WorkflowRunTransport> runTransport;
+    private final WorkflowEngine workflowEngine;
+    private final WorkflowExecutionScheduler executionScheduler;
+
+    // 本节点调度队列已满时，消息重新入队前的等待时间，避免消息在队列和消费者之间空转
+    @Value("${app.workflow.distributed.queue-full-backoff-ms:1000}")
+    private long queueFullBackoffMs;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        WorkflowRunTransport transport = runTransport.getIfAvailable();
+        if (transport == null) {
+            return;
+        }
+        transport.start(this::handleRun, this::handleResult);
+    }
+
+    /**
+     * 执行工作流消息，阻塞直到执行结束
+     */
+    private void handleRun(WorkflowRunMessage message) {
+        long queuedMs = message.getPublishedAt() != null
+                ? System.currentTimeMillis() - message.getPublishedAt() : 0L;
+
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<WorkflowExecution> executed = new AtomicReference<>();
+
+        try {
+            // 排队中被取消时不会执行，通过取消回调释放等待
+            executionScheduler.submit(message.getUserId(), message.getExecutionId(),
+                    WorkflowExecutionScheduler.PriorityClass.of(message.getPriority()), () -> {
+                        try {
+                            executed.set(workflowEngine.runQueuedExecution(message.getExecutionId()));
+                        } finally {
+                            done.countDown();
+                        }
+                    }, done::countDown);
+        } catch (BusinessException e) {
+            if ("SCHEDULER_QUEUE_FULL".equals(e.getCode())) {
+                backoff(message);
+            }
+            throw e;
+        }
+
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待工作流执行被中断: " + message.getExecutionId(), e);
+        }
+
+        WorkflowExecution execution = executed.get();
+        if (execution == null || message.getOriginNode() == null) {
+            return;
+        }
+
+        WorkflowRunResult result = new WorkflowRunResult();
+        result.setExecutionId(execution.getId());
+        result.setStatus(execution.getStatus().name());
+        result.setErrorMessage(execution.getErrorMessage());
+        result.setDurationMs(execution.getDurationMs());
+        result.setWorkerNode(runTransport.getObject().getNodeId());
+        result.setQueuedMs(queuedMs);
+
+        try {
+            runTransport.getObject().publishResult(message.getOriginNode(), result);
+        } catch (Exception e) {
+            // 结果已持久化，回传失败不影响执行
+            log.warn("回传工作流执行结果失败: executionId={}, error={}", execution.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 调度队列已满时先等待再抛出异常重新入队
+     */
+    private void backoff(WorkflowRunMessage message) {
+        log.warn("本节点工作流调度队列已满，{}ms 后重新入队: executionId={}",
+                queueFullBackoffMs, message.getExecutionId());
+        try {
+            Thread.sleep(queueFullBackoffMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 处理其他节点回传的执行结果
+     */
+    private void handleResult(WorkflowRunResult result) {
+        log.info("收到工作流执行结果: executionId={}, status={}, workerNode={}, queued={}ms, duration={}ms",
+                result.getExecutionId(), result.getStatus(), result.getWorkerNode(),
+                result.getQueuedMs(), result.getDurationMs());
+    }
+}
@@ -0,0 +1,23 @@
+package com.agent.platform.workflow.distributed;
+
+import lombok.Data;
+
+/**
+ * 分布式工作流执行消息
+ * 发布到工作队列，由任意后端节点消费执行
+ */
+@Data
+public class WorkflowRunMessage {
+
+    private Long executionId;
+
+    private Long userId;
+
+    // 优先级类别: HIGH, NORMAL, LOW
+    private String priority;
+
+    // 发起节点，用于回传执行结果
+    private String originNode;
+
+    private Long publishedAt;
+}
@@ -0,0 +1,25 @@
+package com.agent.platform.workflow.distributed;
+
+import lombok.Data;
+
+/**
+ * 分布式工作流执行结果
+ * 由执行节点回传给发起节点
+ */
+@Data
+public class WorkflowRunResult {
+
+    private Long executionId;
+
+    private String status;
+
+    private String errorMessage;
+
+    private Long durationMs;
+
+    // 实际执行的节点
+    private String workerNode;
+
+    // 从发布到开始执行的排队时间
+    private Long queuedMs;
+}
@@ -0,0 +1,38 @@
+package com.agent.platform.workflow.distributed;
+
+import java.util.function.Consumer;
+
+/**
+ * 分布式工作流执行传输层
+ * RabbitMQ 实现用于生产环境，本地实现用于单机调试和测试
+ */
+public interface WorkflowRunTransport {
+
+    /**
+     * 发布待执行的工作流
+     */
+    void publish(WorkflowRunMessage message);
+
+    /**
+     * 回传执行结果给发起节点
+     */
+    void publishResult(String originNode, WorkflowRunResult result);
+
+    /**
+     * 开始消费执行消息和结果消息
+     *
+     * @param runHandler    执行处理器，正常返回即确认，抛出异常则重新入队
+     * @param resultHandler 结果处理器
+     */
+    void start(Consumer<WorkflowRunMessage> runHandler, Consumer<WorkflowRunResult> resultHandler);
+
+    /**
+     * 停止消费
+     */
+    void stop();
+
+    /**
+     * 当前节点标识
+     */
+    String getNodeId();
+}
@@ -14,4 +14,6 @@ public class WorkflowExecutionRequest {
     private Map<String, Object> inputData;
     
     private Boolean async = true; // 是否异步执行
+    
+    private String priority; // 优先级类别: HIGH, NORMAL, LOW
 }
\ No newline at end of file
@@ -0,0 +1,76 @@
+package com.agent.platform.workflow.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 工作流执行剖析报告（最近N次执行）
+ */
+@Data
+public class WorkflowProfileReport {
+    
+    private Long workflowId;
+    private Integer executionCount;
+    
+    // 汇总指标
+    private Double avgWallMs;
+    private Double avgCriticalPathMs;
+    private Double avgParallelism;
+    private Double avgSchedulerWaitMs;
+    
+    private List<ExecutionProfile> executions;
+    private List<NodeTypeLatency> nodeTypes;
+    
+    /**
+     * 单次执行剖析
+     */
+    @Data
+    public static class ExecutionProfile {
+        private Long executionId;
+        private String status;
+        // 执行记录创建到首个节点就绪的等待时间（调度排队）
+        private Long schedulerWaitMs;
+        // 首个节点就绪到最后一个节点持久化完成
+        private Long wallMs;
+        private Long criticalPathMs;
+        // 节点运行时间之和 / wallMs
+        private Double parallelism;
+        // 各阶段累计耗时
+        private Long queuedMs;
+        private Long runningMs;
+        private Long persistingMs;
+        private List<NodeTiming> criticalPath;
+    }
+    
+    /**
+     * 节点阶段耗时
+     */
+    @Data
+    public static class NodeTiming {
+        private String nodeId;
+        private String nodeType;
+        private String nodeName;
+        private String status;
+        private Long queuedMs;
+        private Long runningMs;
+        private Long persistingMs;
+    }
+    
+    /**
+     * 按节点类型统计的延迟分位数
+     */
+    @Data
+    public static class NodeTypeLatency {
+        private String nodeType;
+        private Integer samples;
+        private Long runningP50Ms;
+        private Long runningP90Ms;
+        private Long runningP99Ms;
+        private Long runningMaxMs;
+        private Long queuedP50Ms;
+        private Long queuedP99Ms;
+        private Long persistingP50Ms;
+        private Long persistingP99Ms;
+    }
+}
@@ -1,5 +1,8 @@
 package com.agent.platform.workflow.engine;
 
+import com.agent.platform.common.exception.BusinessException;
+import com.agent.platform.workflow.distributed.WorkflowRunMessage;
+import com.agent.platform.workflow.distributed.WorkflowRunTransport;
 import com.agent.platform.workflow.entity.NodeExecution;
 import com.agent.platform.workflow.entity.Workflow;
 import com.agent.platform.workflow.entity.WorkflowExecution;
@@ -8,12 +11,14 @@ import com.agent.platform.workflow.repository.WorkflowExecutionRepository;
 import com.agent.platform.workflow.service.WorkflowService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -26,12 +31,24 @@ public class WorkflowEngine {
     private final NodeExecutionRepository nodeExecutionRepository;
     private final NodeRegistry nodeRegistry;
     private final ExecutionContext executionContext;
+    private final WorkflowExecutionScheduler executionScheduler;
+    private final ObjectProvider<WorkflowRunTransport> runTransport;
+    private final WorkflowMetrics metrics;
     
     /**
      * 执行工作流
      */
     @Transactional
     public WorkflowExecution executeWorkflow(Long workflowId, Map<String, Object> inputData, Long userId) {
+        return executeWorkflow(workflowId, inputData, userId, WorkflowExecutionScheduler.PriorityClass.NORMAL);
+    }
+    
+    /**
+     * 执行工作流（指定优先级类别）
+     */
+    @Transactional
+    public WorkflowExecution executeWorkflow(Long workflowId, Map<String, Object> inputData, Long userId,
+                                             WorkflowExecutionScheduler.PriorityClass priority) {
         try {
             // 1. 加载工作流定义
             Workflow workflow = workflowService.getById(workflowId);
@@ -39,14 +56,19 @@ public class WorkflowEngine {
                 throw new RuntimeException("工作流不存在: " + workflowId);
             }
             
-            // 2. 创建执行记录
+            // 2. 队列已满时直接拒绝，避免产生无法调度的执行记录
+            executionScheduler.checkCapacity(userId);
+            
+            // 3. 创建执行记录
             WorkflowExecution execution = createExecution(workflow, inputData, userId);
             
-            // 3. 异步执行工作流
-            executeWorkflowAsync(execution);
+            // 4. 提交到调度器，事务提交后再入队，避免工作线程读到未提交的执行记录
+            scheduleAfterCommit(userId, execution, priority);
             
             return execution;
             
+        } catch (BusinessException e) {
+            throw e;
         } catch (Exception e) {
             log.error("启动工作流执行失败: workflowId={}, error={}", workflowId, e.getMessage(), e);
             throw new RuntimeException("启动工作流执行失败: " + e.getMessage(), e);
@@ -70,17 +92,85 @@ public class WorkflowEngine {
         context.put("inputData", inputData);
         execution.setContext(context);
         
-        return executionRepository.save(execution);
+        return saveExecution(execution);
+    }
+    
+    /**
+     * 事务提交后提交给调度器；启用分布式模式时发布到工作队列，由任意节点消费
+     */
+    private void scheduleAfterCommit(Long userId, WorkflowExecution execution,
+                                     WorkflowExecutionScheduler.PriorityClass priority) {
+        WorkflowRunTransport transport = runTransport.getIfAvailable();
+        Runnable submit;
+        if (transport != null) {
+            WorkflowRunMessage message = new WorkflowRunMessage();
+            message.setExecutionId(execution.getId());
+            message.setUserId(userId);
+            message.setPriority(priority != null ? priority.name() : null);
+            submit = () -> transport.publish(message);
+        } else {
+            submit = () -> executionScheduler.submit(userId, execution.getId(), priority,
+                    () -> runExecution(execution));
+        }
+        
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    try {
+                        submit.run();
+                    } catch (Exception e) {
+                        markRejected(execution, e.getMessage());
+                    }
+                }
+            });
+        } else {
+            submit.run();
+        }
+    }
+    
+    /**
+     * 调度器拒绝时标记执行失败
+     */
+    private void markRejected(WorkflowExecution execution, String reason) {
+        log.warn("工作流执行被调度器拒绝: executionId={}, reason={}", execution.getId(), reason);
+        metrics.executionRejected(execution.getWorkflow().getId());
+        execution.setStatus(WorkflowExecution.ExecutionStatus.FAILED);
+        execution.setErrorMessage(reason);
+        execution.complete();
+        saveExecution(execution);
+    }
+    
+    /**
+     * 执行从工作队列接收的工作流（分布式模式）
+     *
+     * @return 执行记录，不存在时返回null；已取消或已结束的执行不会重复执行
+     */
+    public WorkflowExecution runQueuedExecution(Long executionId) {
+        WorkflowExecution execution = executionRepository.findByIdWithWorkflow(executionId).orElse(null);
+        if (execution == null) {
+            log.warn("工作流执行记录不存在，忽略消息: executionId={}", executionId);
+            return null;
+        }
+        
+        if (execution.getStatus() != WorkflowExecution.ExecutionStatus.RUNNING) {
+            log.info("工作流执行已结束，跳过: executionId={}, status={}", executionId, execution.getStatus());
+            return execution;
+        }
+        
+        runExecution(execution);
+        return execution;
     }
     
     /**
-     * 异步执行工作流
+     * 执行工作流（由调度器工作线程调用）
      */
-    @Async
-    public CompletableFuture<Void> executeWorkflowAsync(WorkflowExecution execution) {
+    private void runExecution(WorkflowExecution execution) {
+        Long workflowId = execution.getWorkflow().getId();
+        metrics.executionStarted(workflowId);
         try {
             log.info("开始执行工作流: executionId={}, workflowId={}", 
-                    execution.getId(), execution.getWorkflow().getId());
+                    execution.getId(), workflowId);
             
             // 执行工作流
             executeNodes(execution);
@@ -88,7 +178,7 @@ public class WorkflowEngine {
             // 标记完成
             execution.setStatus(WorkflowExecution.ExecutionStatus.COMPLETED);
             execution.complete();
-            executionRepository.save(execution);
+            saveExecution(execution);
             
             log.info("工作流执行完成: executionId={}, duration={}ms", 
                     execution.getId(), execution.getDurationMs());
@@ -101,10 +191,11 @@ public class WorkflowEngine {
             execution.setStatus(WorkflowExecution.ExecutionStatus.FAILED);
             execution.setErrorMessage(e.getMessage());
             execution.complete();
-            executionRepository.save(execution);
+            saveExecution(execution);
+        } finally {
+            metrics.executionFinished(workflowId, execution.getStatus().name(),
+                    execution.getDurationMs() != null ? execution.getDurationMs() : 0L);
         }
-        
-        return CompletableFuture.completedFuture(null);
     }
     
     /**
@@ -129,6 +220,10 @@ public class WorkflowEngine {
         Queue<String> toExecute = new LinkedList<>();
         toExecute.offer(startNode.getId());
         
+        // 节点就绪时间（所有依赖完成的时刻），用于执行剖析
+        Map<String, LocalDateTime> readyAt = new HashMap<>();
+        readyAt.put(startNode.getId(), LocalDateTime.now());
+        
         while (!toExecute.isEmpty()) {
             String nodeId = toExecute.poll();
             
@@ -147,7 +242,7 @@ public class WorkflowEngine {
             // 执行节点
             Workflow.WorkflowNode node = findNodeById(nodes, nodeId);
             if (node != null) {
-                NodeExecution nodeExecution = executeNode(node, execution);
+                NodeExecution nodeExecution = executeNode(node, execution, readyAt.get(nodeId));
                 
                 // 如果节点执行失败且不允许继续，则停止执行
                 if (nodeExecution.getStatus() == NodeExecution.NodeExecutionStatus.FAILED) {
@@ -167,6 +262,14 @@ public class WorkflowEngine {
                     nextNodes = filterNextNodesByCondition(nodeExecution, nextNodes, edges);
                 }
                 
+                LocalDateTime now = LocalDateTime.now();
+                for (String nextNodeId : nextNodes) {
+                    List<String> nextDeps = dependencies.get(nextNodeId);
+                    if (nextDeps == null || executed.containsAll(nextDeps)) {
+                        readyAt.putIfAbsent(nextNodeId, now);
+                    }
+                }
+                
                 toExecute.addAll(nextNodes);
             }
         }
@@ -175,8 +278,9 @@ public class WorkflowEngine {
     /**
      * 执行单个节点
      */
-    private NodeExecution executeNode(Workflow.WorkflowNode node, WorkflowExecution execution) {
-        log.info("执行节点: nodeId={}, nodeType={}, nodeName={}", 
+    private NodeExecution executeNode(Workflow.WorkflowNode node, WorkflowExecution execution,
+                                      LocalDateTime readyAt) {
+        log.debug("执行节点: nodeId={}, nodeType={}, nodeName={}", 
                 node.getId(), node.getType(), node.getName());
         
         // 创建节点执行记录
@@ -187,15 +291,21 @@ public class WorkflowEngine {
         nodeExecution.setNodeName(node.getName());
         nodeExecution.setConfig(node.getConfig());
         nodeExecution.setInputData(node.getData());
-        nodeExecution = nodeExecutionRepository.save(nodeExecution);
+        nodeExecution.setReadyAt(readyAt != null ? readyAt : LocalDateTime.now());
+        nodeExecution = saveNodeExecution(nodeExecution);
+        
+        // 指标只使用已注册执行器的类型，避免任意节点类型造成标签膨胀
+        NodeExecutor executor = nodeRegistry.getExecutor(node.getType());
+        String metricNodeType = executor != null ? executor.getNodeType() : "unknown";
+        long startNanos = System.nanoTime();
+        metrics.nodeStarted();
         
         try {
             // 开始执行
             nodeExecution.start();
-            nodeExecutionRepository.save(nodeExecution);
+            saveNodeExecution(nodeExecution);
             
             // 获取节点执行器
-            NodeExecutor executor = nodeRegistry.getExecutor(node.getType());
             if (executor == null) {
                 throw new RuntimeException("未找到节点执行器: " + node.getType());
             }
@@ -208,12 +318,13 @@ public class WorkflowEngine {
             
             // 完成执行
             nodeExecution.complete(output);
-            nodeExecutionRepository.save(nodeExecution);
             
-            // 更新执行上下文
+            // 更新执行上下文，然后记录持久化完成时间并保存节点结果
             updateExecutionContext(execution, nodeExecution, output);
+            nodeExecution.markPersisted();
+            saveNodeExecution(nodeExecution);
             
-            log.info("节点执行完成: nodeId={}, duration={}ms", 
+            log.debug("节点执行完成: nodeId={}, duration={}ms", 
                     node.getId(), nodeExecution.getDurationMs());
             
         } catch (Exception e) {
@@ -221,17 +332,27 @@ public class WorkflowEngine {
             
             // 标记失败
             nodeExecution.fail(e.getMessage());
-            nodeExecutionRepository.save(nodeExecution);
+            saveNodeExecution(nodeExecution);
+        } finally {
+            metrics.nodeFinished(metricNodeType, nodeExecution.getStatus().name(), System.nanoTime() - startNanos);
         }
         
         return nodeExecution;
     }
     
+    private WorkflowExecution saveExecution(WorkflowExecution execution) {
+        return metrics.recordPersistence("execution", () -> executionRepository.save(execution));
+    }
+    
+    private NodeExecution saveNodeExecution(NodeExecution nodeExecution) {
+        return metrics.recordPersistence("node", () -> nodeExecutionRepository.save(nodeExecution));
+    }
+    
     /**
-     * 构建节点依赖图
+     * 构建节点依赖图（包内可见，供基准测试使用）
      */
-    private Map<String, List<String>> buildDependencyGraph(List<Workflow.WorkflowNode> nodes, 
-                                                          List<Workflow.WorkflowEdge> edges) {
+    Map<String, List<String>> buildDependencyGraph(List<Workflow.WorkflowNode> nodes,
+                                                   List<Workflow.WorkflowEdge> edges) {
         Map<String, List<String>> dependencies = new HashMap<>();
         
         // 初始化所有节点
@@ -268,9 +389,9 @@ public class WorkflowEngine {
     }
     
     /**
-     * 获取下游节点
+     * 获取下游节点（包内可见，供基准测试使用）
      */
-    private List<String> getNextNodes(String nodeId, List<Workflow.WorkflowEdge> edges) {
+    List<String> getNextNodes(String nodeId, List<Workflow.WorkflowEdge> edges) {
         return edges.stream()
                 .filter(edge -> nodeId.equals(edge.getSource()))
                 .map(Workflow.WorkflowEdge::getTarget)
@@ -319,7 +440,7 @@ public class WorkflowEngine {
         
         // 保存上下文
         execution.setContext(context);
-        executionRepository.save(execution);
+        saveExecution(execution);
     }
     
     /**
@@ -331,9 +452,12 @@ public class WorkflowEngine {
                 .orElseThrow(() -> new RuntimeException("执行记录不存在: " + executionId));
         
         if (execution.getStatus() == WorkflowExecution.ExecutionStatus.RUNNING) {
+            // 仍在排队的执行直接从调度队列移除
+            executionScheduler.cancel(executionId);
+            
             execution.setStatus(WorkflowExecution.ExecutionStatus.CANCELLED);
             execution.complete();
-            executionRepository.save(execution);
+            saveExecution(execution);
             
             log.info("工作流执行已取消: executionId={}", executionId);
         }
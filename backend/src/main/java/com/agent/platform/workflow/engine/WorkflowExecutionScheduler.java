@@ -0,0 +1,498 @@
+package com.agent.platform.workflow.engine;
+
+import com.agent.platform.common.exception.BusinessException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 工作流执行调度器
+ * 按用户维护独立队列，用户之间采用赤字轮询（DRR）实现加权公平调度，
+ * 用户内部按优先级类别出队，并限制每个用户的并发执行数
+ */
+@Slf4j
+@Component
+public class WorkflowExecutionScheduler {
+
+    @Value("${app.workflow.scheduler.worker-threads:8}")
+    private int workerThreads;
+
+    @Value("${app.workflow.scheduler.max-concurrent-per-user:4}")
+    private int maxConcurrentPerUser;
+
+    @Value("${app.workflow.scheduler.max-queued-per-user:1000}")
+    private int maxQueuedPerUser;
+
+    @Value("${app.workflow.scheduler.default-weight:1}")
+    private int defaultWeight;
+
+    // 初始用户权重，格式: 用户ID=权重,用户ID=权重
+    @Value("${app.workflow.scheduler.tenant-weights:}")
+    private String tenantWeightsConfig;
+
+    // 用户队列
+    private final Map<Long, TenantQueue> tenants = new HashMap<>();
+
+    // 有待执行任务的用户轮询环
+    private final Deque<TenantQueue> activeRing = new ArrayDeque<>();
+
+    // 用户权重（未设置时使用默认权重）
+    private final Map<Long, Integer> tenantWeights = new ConcurrentHashMap<>();
+
+    private ExecutorService workerPool;
+
+    private int runningCount = 0;
+
+    @PostConstruct
+    public void init() {
+        if (tenantWeightsConfig != null && !tenantWeightsConfig.isBlank()) {
+            for (String entry : tenantWeightsConfig.split(",")) {
+                String[] parts = entry.trim().split("=");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("用户权重格式错误: " + entry);
+                }
+                setTenantWeight(Long.parseLong(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+            }
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        workerPool = new ThreadPoolExecutor(workerThreads, workerThreads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "workflow-worker-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        log.info("工作流调度器已启动: workerThreads={}, maxConcurrentPerUser={}, maxQueuedPerUser={}",
+                workerThreads, maxConcurrentPerUser, maxQueuedPerUser);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workerPool.shutdown();
+        try {
+            if (!workerPool.awaitTermination(5, TimeUnit.SECONDS)) {
+                workerPool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workerPool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 提交工作流执行
+     */
+    public void submit(Long userId, Long executionId, PriorityClass priority, Runnable job) {
+        submit(userId, executionId, priority, job, null);
+    }
+
+    /**
+     * 提交工作流执行，onCancel 在执行仍在排队时被取消后调用（此时 job 不会执行）
+     */
+    public void submit(Long userId, Long executionId, PriorityClass priority, Runnable job, Runnable onCancel) {
+        PriorityClass priorityClass = priority != null ? priority : PriorityClass.NORMAL;
+        synchronized (this) {
+            TenantQueue tenant = tenants.computeIfAbsent(userId, TenantQueue::new);
+            if (tenant.size() >= maxQueuedPerUser) {
+                tenant.rejectedCount++;
+                throw new BusinessException("SCHEDULER_QUEUE_FULL", "排队中的工作流执行过多，请稍后重试");
+            }
+
+            tenant.queues.get(priorityClass).offer(new ScheduledJob(tenant, executionId, job, onCancel));
+            tenant.submittedCount++;
+            if (!tenant.inRing) {
+                tenant.inRing = true;
+                activeRing.offerLast(tenant);
+            }
+        }
+        dispatch();
+    }
+
+    /**
+     * 检查用户队列是否还有容量，用于在创建执行记录前快速拒绝
+     */
+    public synchronized void checkCapacity(Long userId) {
+        TenantQueue tenant = tenants.get(userId);
+        if (tenant != null && tenant.size() >= maxQueuedPerUser) {
+            tenant.rejectedCount++;
+            throw new BusinessException("SCHEDULER_QUEUE_FULL", "排队中的工作流执行过多，请稍后重试");
+        }
+    }
+
+    /**
+     * 取消排队中的执行
+     *
+     * @return 是否从队列中移除
+     */
+    public boolean cancel(Long executionId) {
+        ScheduledJob removed = removeQueued(executionId);
+        if (removed == null) {
+            return false;
+        }
+        if (removed.onCancel != null) {
+            try {
+                removed.onCancel.run();
+            } catch (Exception e) {
+                log.error("工作流取消回调异常: executionId={}, error={}", executionId, e.getMessage(), e);
+            }
+        }
+        return true;
+    }
+
+    private synchronized ScheduledJob removeQueued(Long executionId) {
+        for (TenantQueue tenant : tenants.values()) {
+            for (Deque<ScheduledJob> queue : tenant.queues.values()) {
+                Iterator<ScheduledJob> iterator = queue.iterator();
+                while (iterator.hasNext()) {
+                    ScheduledJob job = iterator.next();
+                    if (job.executionId.equals(executionId)) {
+                        iterator.remove();
+                        if (tenant.isEmpty() && !tenant.inRing) {
+                            evictIfIdle(tenant);
+                        }
+                        return job;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 设置用户权重
+     */
+    public void setTenantWeight(Long userId, int weight) {
+        if (weight < 1) {
+            throw new IllegalArgumentException("权重必须大于0");
+        }
+        tenantWeights.put(userId, weight);
+    }
+
+    /**
+     * 清除用户权重，恢复默认权重
+     */
+    public void removeTenantWeight(Long userId) {
+        tenantWeights.remove(userId);
+    }
+
+    /**
+     * 按DRR选出可执行任务并提交给工作线程
+     */
+    private void dispatch() {
+        List<ScheduledJob> toRun = new ArrayList<>();
+        synchronized (this) {
+            while (runningCount < workerThreads) {
+                ScheduledJob job = nextJob();
+                if (job == null) {
+                    break;
+                }
+                runningCount++;
+                toRun.add(job);
+            }
+        }
+
+        for (ScheduledJob job : toRun) {
+            try {
+                workerPool.execute(() -> runJob(job));
+            } catch (Exception e) {
+                log.error("提交工作流执行失败: executionId={}, error={}", job.executionId, e.getMessage(), e);
+                release(job);
+            }
+        }
+    }
+
+    /**
+     * 赤字轮询选择下一个任务，调用方需持有锁
+     */
+    private ScheduledJob nextJob() {
+        int blocked = 0;
+        while (!activeRing.isEmpty() && blocked < activeRing.size()) {
+            TenantQueue tenant = activeRing.pollFirst();
+
+            if (tenant.isEmpty()) {
+                leaveRing(tenant);
+                continue;
+            }
+
+            // 达到并发上限的用户暂时跳过，保留其赤字
+            if (tenant.running >= maxConcurrentPerUser) {
+                activeRing.offerLast(tenant);
+                blocked++;
+                continue;
+            }
+
+            if (tenant.deficit < 1) {
+                tenant.deficit += tenantWeights.getOrDefault(tenant.userId, defaultWeight);
+            }
+
+            ScheduledJob job = tenant.poll();
+            tenant.deficit--;
+            tenant.running++;
+            tenant.recordWait(System.nanoTime() - job.enqueuedAt);
+
+            if (tenant.isEmpty()) {
+                leaveRing(tenant);
+            } else if (tenant.deficit >= 1) {
+                // 剩余额度继续服务当前用户
+                activeRing.offerFirst(tenant);
+            } else {
+                activeRing.offerLast(tenant);
+            }
+            return job;
+        }
+        return null;
+    }
+
+    private void runJob(ScheduledJob job) {
+        try {
+            job.task.run();
+        } catch (Exception e) {
+            log.error("工作流执行异常: executionId={}, error={}", job.executionId, e.getMessage(), e);
+        } finally {
+            release(job);
+            dispatch();
+        }
+    }
+
+    private synchronized void release(ScheduledJob job) {
+        TenantQueue tenant = job.tenant;
+        runningCount--;
+        tenant.running--;
+        tenant.completedCount++;
+        if (!tenant.isEmpty() && !tenant.inRing) {
+            tenant.inRing = true;
+            activeRing.offerLast(tenant);
+        } else if (!tenant.inRing) {
+            evictIfIdle(tenant);
+        }
+    }
+
+    /**
+     * 用户队列为空时移出轮询环，调用方需持有锁
+     */
+    private void leaveRing(TenantQueue tenant) {
+        tenant.inRing = false;
+        tenant.deficit = 0;
+        evictIfIdle(tenant);
+    }
+
+    /**
+     * 移除既无排队也无运行中任务的用户，避免用户表无限增长；调用方需持有锁
+     */
+    private void evictIfIdle(TenantQueue tenant) {
+        if (tenant.running == 0 && tenant.isEmpty()) {
+            tenants.remove(tenant.userId, tenant);
+        }
+    }
+
+    /**
+     * 获取调度器统计信息
+     */
+    public synchronized SchedulerStats getStats() {
+        SchedulerStats stats = new SchedulerStats();
+        stats.setWorkerThreads(workerThreads);
+        stats.setRunning(runningCount);
+        stats.setMaxConcurrentPerUser(maxConcurrentPerUser);
+
+        List<TenantStats> tenantStats = new ArrayList<>();
+        int queued = 0;
+        for (TenantQueue tenant : tenants.values()) {
+            TenantStats ts = tenant.toStats(tenantWeights.getOrDefault(tenant.userId, defaultWeight));
+            queued += ts.getQueued();
+            tenantStats.add(ts);
+        }
+        tenantStats.sort(Comparator.comparing(TenantStats::getQueued).reversed());
+        stats.setQueued(queued);
+        stats.setTenants(tenantStats);
+        return stats;
+    }
+
+    /**
+     * 排队中的执行总数
+     */
+    public synchronized int getQueuedCount() {
+        int queued = 0;
+        for (TenantQueue tenant : tenants.values()) {
+            queued += tenant.size();
+        }
+        return queued;
+    }
+
+    /**
+     * 已分派给工作线程的执行数
+     */
+    public synchronized int getRunningCount() {
+        return runningCount;
+    }
+
+    /**
+     * 获取用户排队数量
+     */
+    public synchronized int getQueueDepth(Long userId) {
+        TenantQueue tenant = tenants.get(userId);
+        return tenant != null ? tenant.size() : 0;
+    }
+
+    /**
+     * 优先级类别
+     */
+    public enum PriorityClass {
+        HIGH,       // 高优先级
+        NORMAL,     // 普通
+        LOW;        // 低优先级（批量任务）
+
+        public static PriorityClass of(String value) {
+            if (value == null || value.isBlank()) {
+                return NORMAL;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return NORMAL;
+            }
+        }
+    }
+
+    /**
+     * 排队中的执行
+     */
+    private static class ScheduledJob {
+        private final TenantQueue tenant;
+        private final Long executionId;
+        private final Runnable task;
+        // 排队中被取消时的回调，可为 null
+        private final Runnable onCancel;
+        private final long enqueuedAt = System.nanoTime();
+
+        ScheduledJob(TenantQueue tenant, Long executionId, Runnable task, Runnable onCancel) {
+            this.tenant = tenant;
+            this.executionId = executionId;
+            this.task = task;
+            this.onCancel = onCancel;
+        }
+    }
+
+    /**
+     * 单个用户的队列状态
+     */
+    private static class TenantQueue {
+        private final Long userId;
+        private final Map<PriorityClass, Deque<ScheduledJob>> queues = new EnumMap<>(PriorityClass.class);
+        private boolean inRing;
+        private int deficit;
+        private int running;
+        private long submittedCount;
+        private long completedCount;
+        private long rejectedCount;
+        private long dispatchedCount;
+        private long totalWaitNanos;
+        private long maxWaitNanos;
+
+        TenantQueue(Long userId) {
+            this.userId = userId;
+            for (PriorityClass priority : PriorityClass.values()) {
+                queues.put(priority, new ArrayDeque<>());
+            }
+        }
+
+        ScheduledJob poll() {
+            for (PriorityClass priority : PriorityClass.values()) {
+                ScheduledJob job = queues.get(priority).pollFirst();
+                if (job != null) {
+                    return job;
+                }
+            }
+            return null;
+        }
+
+        int size() {
+            int size = 0;
+            for (Deque<ScheduledJob> queue : queues.values()) {
+                size += queue.size();
+            }
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size() == 0;
+        }
+
+        void recordWait(long waitNanos) {
+            dispatchedCount++;
+            totalWaitNanos += waitNanos;
+            maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+        }
+
+        TenantStats toStats(int weight) {
+            TenantStats stats = new TenantStats();
+            stats.setUserId(userId);
+            stats.setWeight(weight);
+            stats.setQueued(size());
+            stats.setQueuedHigh(queues.get(PriorityClass.HIGH).size());
+            stats.setQueuedNormal(queues.get(PriorityClass.NORMAL).size());
+            stats.setQueuedLow(queues.get(PriorityClass.LOW).size());
+            stats.setRunning(running);
+            stats.setSubmitted(submittedCount);
+            stats.setCompleted(completedCount);
+            stats.setRejected(rejectedCount);
+            stats.setAvgWaitMs(dispatchedCount > 0 ? totalWaitNanos / dispatchedCount / 1_000_000.0 : 0.0);
+            stats.setMaxWaitMs(maxWaitNanos / 1_000_000.0);
+            stats.setOldestWaitMs(oldestWaitMs());
+            return stats;
+        }
+
+        double oldestWaitMs() {
+            long now = System.nanoTime();
+            long oldest = 0;
+            for (Deque<ScheduledJob> queue : queues.values()) {
+                ScheduledJob head = queue.peekFirst();
+                if (head != null) {
+                    oldest = Math.max(oldest, now - head.enqueuedAt);
+                }
+            }
+            return oldest / 1_000_000.0;
+        }
+    }
+
+    /**
+     * 调度器统计
+     */
+    @Data
+    public static class SchedulerStats {
+        private int workerThreads;
+        private int running;
+        private int queued;
+        private int maxConcurrentPerUser;
+        private List<TenantStats> tenants;
+    }
+
+    /**
+     * 用户调度统计
+     */
+    @Data
+    public static class TenantStats {
+        private Long userId;
+        private int weight;
+        private int queued;
+        private int queuedHigh;
+        private int queuedNormal;
+        private int queuedLow;
+        private int running;
+        private long submitted;
+        private long completed;
+        private long rejected;
+        private double avgWaitMs;
+        private double maxWaitMs;
+        private double oldestWaitMs;
+    }
+}
@@ -0,0 +1,173 @@
+package com.agent.platform.workflow.engine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 工作流引擎指标
+ * 所有标签取值均有上限：workflow 标签最多保留固定数量的工作流ID，其余归入 other；
+ * node_type 只使用已注册执行器的类型；外部调用只按目标类别和结果打标签
+ */
+@Slf4j
+@Component
+public class WorkflowMetrics {
+
+    private static final String OTHER = "other";
+
+    private final MeterRegistry registry;
+
+    private final int maxWorkflowTags;
+
+    // 已分配标签的工作流
+    private final Map<Long, String> workflowTags = new ConcurrentHashMap<>();
+
+    private final AtomicInteger executionsInFlight = new AtomicInteger();
+    private final AtomicInteger nodesInFlight = new AtomicInteger();
+
+    public WorkflowMetrics(MeterRegistry registry,
+                           WorkflowExecutionScheduler executionScheduler,
+                           @Value("${app.workflow.metrics.max-workflow-tags:100}") int maxWorkflowTags) {
+        this.registry = registry;
+        this.maxWorkflowTags = maxWorkflowTags;
+
+        Gauge.builder("workflow.executions.in_flight", executionsInFlight, AtomicInteger::get)
+                .description("正在执行的工作流数")
+                .register(registry);
+        Gauge.builder("workflow.nodes.in_flight", nodesInFlight, AtomicInteger::get)
+                .description("正在执行的节点数")
+                .register(registry);
+        Gauge.builder("workflow.scheduler.queued", executionScheduler, WorkflowExecutionScheduler::getQueuedCount)
+                .description("调度器排队中的执行数")
+                .register(registry);
+        Gauge.builder("workflow.scheduler.running", executionScheduler, WorkflowExecutionScheduler::getRunningCount)
+                .description("调度器已分派的执行数")
+                .register(registry);
+    }
+
+    /**
+     * 工作流开始执行
+     */
+    public void executionStarted(Long workflowId) {
+        executionsInFlight.incrementAndGet();
+        Counter.builder("workflow.executions.started")
+                .tag("workflow", workflowTag(workflowId))
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * 工作流执行结束
+     *
+     * @param status COMPLETED / FAILED / CANCELLED
+     */
+    public void executionFinished(Long workflowId, String status, long durationMs) {
+        executionsInFlight.decrementAndGet();
+        String workflow = workflowTag(workflowId);
+        // 取消不计入失败，避免拉高失败率
+        String name;
+        if ("COMPLETED".equals(status)) {
+            name = "workflow.executions.completed";
+        } else if ("CANCELLED".equals(status)) {
+            name = "workflow.executions.cancelled";
+        } else {
+            name = "workflow.executions.failed";
+        }
+        Counter.builder(name)
+                .tag("workflow", workflow)
+                .register(registry)
+                .increment();
+        Timer.builder("workflow.execution.duration")
+                .tag("workflow", workflow)
+                .tag("status", status)
+                .register(registry)
+                .record(durationMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 调度器拒绝的执行
+     */
+    public void executionRejected(Long workflowId) {
+        Counter.builder("workflow.executions.rejected")
+                .tag("workflow", workflowTag(workflowId))
+                .register(registry)
+                .increment();
+    }
+
+    public void nodeStarted() {
+        nodesInFlight.incrementAndGet();
+    }
+
+    /**
+     * 节点执行结束
+     */
+    public void nodeFinished(String nodeType, String status, long durationNanos) {
+        nodesInFlight.decrementAndGet();
+        Timer.builder("workflow.node.duration")
+                .tag("node_type", nodeType)
+                .tag("status", status)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录持久化耗时
+     *
+     * @param entity execution / node
+     */
+    public <T> T recordPersistence(String entity, Supplier<T> action) {
+        return Timer.builder("workflow.persistence.duration")
+                .tag("entity", entity)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(action);
+    }
+
+    /**
+     * 记录外部调用耗时
+     *
+     * @param target 调用目标类别：llm / http / knowledge
+     */
+    public <T> T recordExternalCall(String target, Callable<T> call) throws Exception {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            T result = call.call();
+            outcome = "success";
+            return result;
+        } finally {
+            Timer.builder("workflow.external.duration")
+                    .tag("target", target)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(registry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private String workflowTag(Long workflowId) {
+        if (workflowId == null) {
+            return OTHER;
+        }
+        String tag = workflowTags.get(workflowId);
+        if (tag != null) {
+            return tag;
+        }
+        if (workflowTags.size() >= maxWorkflowTags) {
+            return OTHER;
+        }
+        return workflowTags.computeIfAbsent(workflowId, String::valueOf);
+    }
+}
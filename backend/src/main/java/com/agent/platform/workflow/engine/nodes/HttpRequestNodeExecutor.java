@@ -2,6 +2,7 @@ package com.agent.platform.workflow.engine.nodes;
 
 import com.agent.platform.workflow.engine.ExecutionContext;
 import com.agent.platform.workflow.engine.NodeExecutor;
+import com.agent.platform.workflow.engine.WorkflowMetrics;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -22,6 +23,7 @@ public class HttpRequestNodeExecutor implements NodeExecutor {
     
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
+    private final WorkflowMetrics metrics;
     
     @Override
     public Map<String, Object> execute(ExecutionContext context) throws Exception {
@@ -73,12 +75,12 @@ public class HttpRequestNodeExecutor implements NodeExecutor {
             
             // 执行请求
             long startTime = System.currentTimeMillis();
-            ResponseEntity<String> response = restTemplate.exchange(
+            ResponseEntity<String> response = metrics.recordExternalCall("http", () -> restTemplate.exchange(
                     resolvedUrl,
                     HttpMethod.valueOf(method.toUpperCase()),
                     requestEntity,
                     String.class
-            );
+            ));
             long duration = System.currentTimeMillis() - startTime;
             
             // 解析响应
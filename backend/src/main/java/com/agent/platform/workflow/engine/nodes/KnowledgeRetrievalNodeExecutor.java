@@ -5,6 +5,7 @@ import com.agent.platform.knowledge.dto.SearchResult;
 import com.agent.platform.knowledge.service.SearchService;
 import com.agent.platform.workflow.engine.ExecutionContext;
 import com.agent.platform.workflow.engine.NodeExecutor;
+import com.agent.platform.workflow.engine.WorkflowMetrics;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
@@ -22,6 +23,7 @@ import java.util.Map;
 public class KnowledgeRetrievalNodeExecutor implements NodeExecutor {
 
     private final SearchService searchService;
+    private final WorkflowMetrics metrics;
 
     @Override
     public Map<String, Object> execute(ExecutionContext context) throws Exception {
@@ -58,12 +60,10 @@ public class KnowledgeRetrievalNodeExecutor implements NodeExecutor {
             searchRequest.setIncludeMetadata(includeMetadata);
 
             // 执行搜索
-            List<SearchResult> results;
-            if ("hybrid".equals(searchType)) {
-                results = searchService.hybridSearch(null, searchRequest);
-            } else {
-                results = searchService.search(null, searchRequest);
-            }
+            List<SearchResult> results = metrics.recordExternalCall("knowledge", () ->
+                    "hybrid".equals(searchType)
+                            ? searchService.hybridSearch(null, searchRequest)
+                            : searchService.search(null, searchRequest));
 
             // 设置输出
             output.put("results", results);
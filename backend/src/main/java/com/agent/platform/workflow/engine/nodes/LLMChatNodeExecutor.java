@@ -2,6 +2,7 @@ package com.agent.platform.workflow.engine.nodes;
 
 import com.agent.platform.workflow.engine.ExecutionContext;
 import com.agent.platform.workflow.engine.NodeExecutor;
+import com.agent.platform.workflow.engine.WorkflowMetrics;
 import dev.langchain4j.model.chat.ChatLanguageModel;
 import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.UserMessage;
@@ -21,6 +22,7 @@ import java.util.Map;
 public class LLMChatNodeExecutor implements NodeExecutor {
     
     private final ChatLanguageModel chatLanguageModel;
+    private final WorkflowMetrics metrics;
     
     @Override
     public Map<String, Object> execute(ExecutionContext context) throws Exception {
@@ -47,7 +49,8 @@ public class LLMChatNodeExecutor implements NodeExecutor {
             UserMessage userMessage = UserMessage.from(resolvedPrompt);
             
             // 调用LLM
-            AiMessage response = chatLanguageModel.generate(userMessage).content();
+            AiMessage response = metrics.recordExternalCall("llm",
+                    () -> chatLanguageModel.generate(userMessage).content());
             String responseText = response.text();
             
             // 设置输出
@@ -50,12 +50,18 @@ public class NodeExecution {
     @Column(columnDefinition = "jsonb")
     private Map<String, Object> config;
     
+    @Column(name = "ready_at")
+    private LocalDateTime readyAt;
+    
     @Column(name = "started_at")
     private LocalDateTime startedAt;
     
     @Column(name = "completed_at")
     private LocalDateTime completedAt;
     
+    @Column(name = "persisted_at")
+    private LocalDateTime persistedAt;
+    
     @Column(name = "duration_ms")
     private Integer durationMs;
     
@@ -79,6 +85,11 @@ public class NodeExecution {
         calculateDuration();
     }
     
+    // 结果写入完成（输出与执行上下文均已保存）
+    public void markPersisted() {
+        persistedAt = LocalDateTime.now();
+    }
+    
     // 执行失败
     public void fail(String errorMessage) {
         status = NodeExecutionStatus.FAILED;
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -14,6 +15,9 @@ public interface NodeExecutionRepository extends JpaRepository<NodeExecution, Lo
     // 根据执行ID查找节点执行记录
     List<NodeExecution> findByExecutionIdOrderByStartedAt(Long executionId);
     
+    // 批量查找多个执行的节点执行记录
+    List<NodeExecution> findByExecutionIdIn(Collection<Long> executionIds);
+    
     // 根据执行ID和状态查找节点执行记录
     List<NodeExecution> findByExecutionIdAndStatus(Long executionId, NodeExecution.NodeExecutionStatus status);
     
@@ -10,10 +10,15 @@ import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface WorkflowExecutionRepository extends JpaRepository<WorkflowExecution, Long> {
     
+    // 根据ID查找执行记录（同时加载工作流定义）
+    @Query("SELECT e FROM WorkflowExecution e JOIN FETCH e.workflow WHERE e.id = :id")
+    Optional<WorkflowExecution> findByIdWithWorkflow(@Param("id") Long id);
+    
     // 根据工作流ID查找执行记录
     Page<WorkflowExecution> findByWorkflowIdOrderByStartedAtDesc(Long workflowId, Pageable pageable);
     
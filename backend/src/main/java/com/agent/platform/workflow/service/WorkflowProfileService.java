@@ -0,0 +1,233 @@
+package com.agent.platform.workflow.service;
+
+import com.agent.platform.workflow.dto.WorkflowProfileReport;
+import com.agent.platform.workflow.entity.NodeExecution;
+import com.agent.platform.workflow.entity.Workflow;
+import com.agent.platform.workflow.entity.WorkflowExecution;
+import com.agent.platform.workflow.repository.NodeExecutionRepository;
+import com.agent.platform.workflow.repository.WorkflowExecutionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * 工作流执行剖析服务
+ * 基于节点的就绪/开始/完成/持久化时间戳计算关键路径、并行度和各节点类型的延迟分位数
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WorkflowProfileService {
+    
+    private static final int MAX_EXECUTIONS = 200;
+    
+    private final WorkflowService workflowService;
+    private final WorkflowExecutionRepository executionRepository;
+    private final NodeExecutionRepository nodeExecutionRepository;
+    
+    /**
+     * 剖析工作流最近N次执行
+     */
+    @Transactional(readOnly = true)
+    public WorkflowProfileReport profile(Long workflowId, int limit) {
+        Workflow workflow = workflowService.getById(workflowId);
+        int size = Math.max(1, Math.min(limit, MAX_EXECUTIONS));
+        
+        List<WorkflowExecution> executions = executionRepository.findRecentExecutions(
+                workflowId, PageRequest.of(0, size));
+        
+        Map<Long, List<NodeExecution>> nodesByExecution = executions.isEmpty()
+                ? Collections.emptyMap()
+                : nodeExecutionRepository.findByExecutionIdIn(
+                        executions.stream().map(WorkflowExecution::getId).collect(Collectors.toList()))
+                .stream()
+                .filter(n -> n.getStartedAt() != null)
+                .collect(Collectors.groupingBy(n -> n.getExecution().getId()));
+        
+        // 前驱节点表
+        Map<String, List<String>> predecessors = new HashMap<>();
+        if (workflow.getDefinition() != null && workflow.getDefinition().getEdges() != null) {
+            for (Workflow.WorkflowEdge edge : workflow.getDefinition().getEdges()) {
+                predecessors.computeIfAbsent(edge.getTarget(), k -> new ArrayList<>()).add(edge.getSource());
+            }
+        }
+        
+        List<WorkflowProfileReport.ExecutionProfile> profiles = new ArrayList<>();
+        Map<String, PhaseSamples> samplesByType = new TreeMap<>();
+        
+        for (WorkflowExecution execution : executions) {
+            List<NodeExecution> nodes = nodesByExecution.getOrDefault(execution.getId(), Collections.emptyList());
+            if (nodes.isEmpty()) {
+                continue;
+            }
+            profiles.add(profileExecution(execution, nodes, predecessors));
+            
+            for (NodeExecution node : nodes) {
+                samplesByType.computeIfAbsent(node.getNodeType(), k -> new PhaseSamples()).add(node);
+            }
+        }
+        
+        WorkflowProfileReport report = new WorkflowProfileReport();
+        report.setWorkflowId(workflowId);
+        report.setExecutionCount(profiles.size());
+        report.setAvgWallMs(average(profiles, WorkflowProfileReport.ExecutionProfile::getWallMs));
+        report.setAvgCriticalPathMs(average(profiles, WorkflowProfileReport.ExecutionProfile::getCriticalPathMs));
+        report.setAvgSchedulerWaitMs(average(profiles, WorkflowProfileReport.ExecutionProfile::getSchedulerWaitMs));
+        report.setAvgParallelism(profiles.stream()
+                .mapToDouble(WorkflowProfileReport.ExecutionProfile::getParallelism)
+                .average().orElse(0.0));
+        report.setExecutions(profiles);
+        report.setNodeTypes(samplesByType.entrySet().stream()
+                .map(e -> e.getValue().toLatency(e.getKey()))
+                .collect(Collectors.toList()));
+        return report;
+    }
+    
+    /**
+     * 剖析单次执行
+     */
+    private WorkflowProfileReport.ExecutionProfile profileExecution(WorkflowExecution execution,
+                                                                    List<NodeExecution> nodes,
+                                                                    Map<String, List<String>> predecessors) {
+        Map<String, NodeExecution> byNodeId = new HashMap<>();
+        LocalDateTime firstReady = null;
+        LocalDateTime lastFinish = null;
+        NodeExecution lastNode = null;
+        long queued = 0;
+        long running = 0;
+        long persisting = 0;
+        
+        for (NodeExecution node : nodes) {
+            byNodeId.put(node.getNodeId(), node);
+            
+            LocalDateTime ready = readyOf(node);
+            LocalDateTime finish = finishOf(node);
+            if (firstReady == null || ready.isBefore(firstReady)) {
+                firstReady = ready;
+            }
+            if (lastFinish == null || finish.isAfter(lastFinish)) {
+                lastFinish = finish;
+                lastNode = node;
+            }
+            
+            queued += millis(ready, node.getStartedAt());
+            running += millis(node.getStartedAt(), node.getCompletedAt());
+            persisting += millis(node.getCompletedAt(), node.getPersistedAt());
+        }
+        
+        // 从最后完成的节点回溯，每一步选择最晚完成的前驱
+        LinkedList<NodeExecution> path = new LinkedList<>();
+        Set<String> visited = new HashSet<>();
+        NodeExecution current = lastNode;
+        while (current != null && visited.add(current.getNodeId())) {
+            path.addFirst(current);
+            NodeExecution critical = null;
+            for (String predecessorId : predecessors.getOrDefault(current.getNodeId(), Collections.emptyList())) {
+                NodeExecution predecessor = byNodeId.get(predecessorId);
+                if (predecessor != null && (critical == null || finishOf(predecessor).isAfter(finishOf(critical)))) {
+                    critical = predecessor;
+                }
+            }
+            current = critical;
+        }
+        
+        long wallMs = millis(firstReady, lastFinish);
+        
+        WorkflowProfileReport.ExecutionProfile profile = new WorkflowProfileReport.ExecutionProfile();
+        profile.setExecutionId(execution.getId());
+        profile.setStatus(execution.getStatus().name());
+        profile.setSchedulerWaitMs(millis(execution.getStartedAt(), firstReady));
+        profile.setWallMs(wallMs);
+        profile.setCriticalPathMs(millis(readyOf(path.getFirst()), finishOf(path.getLast())));
+        profile.setParallelism(wallMs > 0 ? (double) running / wallMs : 1.0);
+        profile.setQueuedMs(queued);
+        profile.setRunningMs(running);
+        profile.setPersistingMs(persisting);
+        profile.setCriticalPath(path.stream().map(this::toTiming).collect(Collectors.toList()));
+        return profile;
+    }
+    
+    private WorkflowProfileReport.NodeTiming toTiming(NodeExecution node) {
+        WorkflowProfileReport.NodeTiming timing = new WorkflowProfileReport.NodeTiming();
+        timing.setNodeId(node.getNodeId());
+        timing.setNodeType(node.getNodeType());
+        timing.setNodeName(node.getNodeName());
+        timing.setStatus(node.getStatus().name());
+        timing.setQueuedMs(millis(readyOf(node), node.getStartedAt()));
+        timing.setRunningMs(millis(node.getStartedAt(), node.getCompletedAt()));
+        timing.setPersistingMs(millis(node.getCompletedAt(), node.getPersistedAt()));
+        return timing;
+    }
+    
+    // 旧记录没有就绪时间，按开始时间处理
+    private static LocalDateTime readyOf(NodeExecution node) {
+        return node.getReadyAt() != null ? node.getReadyAt() : node.getStartedAt();
+    }
+    
+    private static LocalDateTime finishOf(NodeExecution node) {
+        if (node.getPersistedAt() != null) {
+            return node.getPersistedAt();
+        }
+        return node.getCompletedAt() != null ? node.getCompletedAt() : node.getStartedAt();
+    }
+    
+    private static long millis(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null) {
+            return 0L;
+        }
+        return Math.max(0L, Duration.between(from, to).toMillis());
+    }
+    
+    private static double average(List<WorkflowProfileReport.ExecutionProfile> profiles,
+                                  ToLongFunction<WorkflowProfileReport.ExecutionProfile> field) {
+        return profiles.stream().mapToLong(field).average().orElse(0.0);
+    }
+    
+    /**
+     * 单个节点类型的阶段耗时样本
+     */
+    private static class PhaseSamples {
+        private final List<Long> queued = new ArrayList<>();
+        private final List<Long> running = new ArrayList<>();
+        private final List<Long> persisting = new ArrayList<>();
+        
+        void add(NodeExecution node) {
+            queued.add(millis(readyOf(node), node.getStartedAt()));
+            running.add(millis(node.getStartedAt(), node.getCompletedAt()));
+            persisting.add(millis(node.getCompletedAt(), node.getPersistedAt()));
+        }
+        
+        WorkflowProfileReport.NodeTypeLatency toLatency(String nodeType) {
+            Collections.sort(queued);
+            Collections.sort(running);
+            Collections.sort(persisting);
+            
+            WorkflowProfileReport.NodeTypeLatency latency = new WorkflowProfileReport.NodeTypeLatency();
+            latency.setNodeType(nodeType);
+            latency.setSamples(running.size());
+            latency.setRunningP50Ms(percentile(running, 50));
+            latency.setRunningP90Ms(percentile(running, 90));
+            latency.setRunningP99Ms(percentile(running, 99));
+            latency.setRunningMaxMs(running.get(running.size() - 1));
+            latency.setQueuedP50Ms(percentile(queued, 50));
+            latency.setQueuedP99Ms(percentile(queued, 99));
+            latency.setPersistingP50Ms(percentile(persisting, 50));
+            latency.setPersistingP99Ms(percentile(persisting, 99));
+            return latency;
+        }
+        
+        // 最近秩法，输入已排序
+        private static long percentile(List<Long> sorted, int p) {
+            int rank = (int) Math.ceil(p / 100.0 * sorted.size());
+            return sorted.get(Math.max(0, rank - 1));
+        }
+    }
+}
@@ -0,0 +1,6 @@
+-- 节点调度时间戳：就绪时间（依赖全部完成）与结果持久化完成时间
+ALTER TABLE node_executions ADD COLUMN ready_at TIMESTAMP;
+ALTER TABLE node_executions ADD COLUMN persisted_at TIMESTAMP;
+
+-- 执行剖析按工作流查询最近执行
+CREATE INDEX idx_workflow_executions_workflow_started ON workflow_executions(workflow_id, started_at DESC);
@@ -0,0 +1,21 @@
+-- 智能体消息归档：超过保留期的已完成消息按会话分块，压缩后存入归档表
+-- archive_month 为块内最后一条消息所在月份的第一天，作为分区键预留；
+-- 数据量增大后可改为按 archive_month 的范围分区表，按月整体清理旧分区
+CREATE TABLE agent_message_archive (
+    id BIGSERIAL PRIMARY KEY,
+    conversation_key VARCHAR(41) NOT NULL,
+    archive_month DATE NOT NULL,
+    first_message_id BIGINT NOT NULL,
+    last_message_id BIGINT NOT NULL,
+    first_send_time TIMESTAMP NOT NULL,
+    last_send_time TIMESTAMP NOT NULL,
+    message_count INTEGER NOT NULL,
+    -- GZIP 压缩的 JSON 消息数组
+    payload BYTEA NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- 会话回读按会话和时间范围定位归档块
+CREATE INDEX idx_agent_message_archive_conversation ON agent_message_archive(conversation_key, last_send_time DESC);
+CREATE INDEX idx_agent_message_archive_month ON agent_message_archive(archive_month);